@@ -32,17 +32,25 @@ import java.util.*
 
 open class LookupStorage(
     targetDataDir: File,
-    pathConverter: FileToPathConverter
+    pathConverter: FileToPathConverter,
+    useMappedStorage: Boolean = isMappedStorageEnabled
 ) : BasicMapsOwner(targetDataDir) {
     companion object {
         private val DELETED_TO_SIZE_TRESHOLD = 0.5
         private val MINIMUM_GARBAGE_COLLECTIBLE_SIZE = 10000
+
+        const val MAPPED_STORAGE_PROPERTY = "kotlin.incremental.lookups.mapped.storage"
+
+        val isMappedStorageEnabled: Boolean
+            get() = System.getProperty(MAPPED_STORAGE_PROPERTY)?.toBoolean() ?: false
     }
 
     private val countersFile = "counters".storageFile
     private val idToFile = registerMap(IdToFileMap("id-to-file".storageFile, pathConverter))
     private val fileToId = registerMap(FileToIdMap("file-to-id".storageFile, pathConverter))
-    private val lookupMap = registerMap(LookupMap("lookups".storageFile))
+    private val lookupMap: LookupSymbolStorage =
+        if (useMappedStorage) registerStorage(MappedLookupMap("lookups-log".storageFile))
+        else registerMap(LookupMap("lookups".storageFile))
 
     @Volatile
     private var size: Int = 0
@@ -23,27 +23,41 @@ import org.jetbrains.annotations.TestOnly
 import org.jetbrains.kotlin.utils.Printer
 import java.io.File
 
+/**
+ * A storage which lifecycle is managed by [BasicMapsOwner]
+ */
+interface OwnedStorage {
+    fun clean()
+
+    fun flush(memoryCachesOnly: Boolean)
+
+    fun close()
+
+    @TestOnly
+    fun dump(): String
+}
+
 abstract class BasicMap<K : Comparable<K>, V>(
         storageFile: File,
         keyDescriptor: KeyDescriptor<K>,
         valueExternalizer: DataExternalizer<V>
-) {
+) : OwnedStorage {
     protected val storage = LazyStorage(storageFile, keyDescriptor, valueExternalizer)
 
-    fun clean() {
+    override fun clean() {
         storage.clean()
     }
 
-    fun flush(memoryCachesOnly: Boolean) {
+    override fun flush(memoryCachesOnly: Boolean) {
         storage.flush(memoryCachesOnly)
     }
 
-    fun close() {
+    override fun close() {
         storage.close()
     }
 
     @TestOnly
-    fun dump(): String {
+    override fun dump(): String {
         return with(StringBuilder()) {
             with(Printer(this)) {
                 println(this@BasicMap::class.java.simpleName)
@@ -20,7 +20,7 @@ import org.jetbrains.annotations.TestOnly
 import java.io.File
 
 open class BasicMapsOwner(val cachesDir: File) {
-    private val maps = arrayListOf<BasicMap<*, *>>()
+    private val maps = arrayListOf<OwnedStorage>()
 
     companion object {
         val CACHE_EXTENSION = "tab"
@@ -34,6 +34,11 @@ open class BasicMapsOwner(val cachesDir: File) {
         return map
     }
 
+    protected fun <S : OwnedStorage> registerStorage(storage: S): S {
+        maps.add(storage)
+        return storage
+    }
+
     open fun clean() {
         maps.forEach { it.clean() }
     }
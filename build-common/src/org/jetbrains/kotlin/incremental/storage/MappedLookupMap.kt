@@ -0,0 +1,461 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental.storage
+
+import org.jetbrains.annotations.TestOnly
+import org.jetbrains.kotlin.utils.Printer
+import java.io.*
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.util.*
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * [LookupSymbolStorage] which keeps lookups in a memory-mapped append-only log.
+ *
+ * The log is a header (magic, number of records) followed by fixed size records (nameHash, scopeHash, value),
+ * where value is either a file id or [CLEAR_MARKER] which drops all file ids recorded for the key before.
+ * The log is replayed into [LookupIndex] on open, so reads never touch the disk and writes only append to the mapped buffer.
+ *
+ * Outdated records are dropped by rewriting the log into the next generation file on a background thread,
+ * so neither [flush] nor [close] pay for it.
+ */
+internal class MappedLookupMap(private val storageFile: File) : LookupSymbolStorage {
+    companion object {
+        private const val MAGIC = 0x4B4C4F47
+        private const val HEADER_SIZE = 8
+        private const val RECORD_SIZE = 12
+        private const val CLEAR_MARKER = -1
+        private const val INITIAL_CAPACITY = 64 * 1024
+        private const val MINIMUM_COMPACTIBLE_RECORDS = 10000
+        private const val GARBAGE_TO_SIZE_THRESHOLD = 0.5
+
+        private val compactionExecutor: ExecutorService = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "Kotlin lookups compaction").apply { isDaemon = true }
+        }
+    }
+
+    private val index = LookupIndex()
+
+    private var generation = 0
+    private var channel: FileChannel? = null
+    private var buffer: MappedByteBuffer? = null
+    private var recordsCount = 0
+
+    // incremented whenever a running compaction can't be applied anymore (on close, clean or a finished compaction)
+    private var epoch = 0
+    private var pendingCompaction: Future<*>? = null
+
+    init {
+        load()
+    }
+
+    @Synchronized
+    override fun add(name: String, scope: String, fileId: Int) {
+        val key = LookupSymbolKey(name, scope)
+        if (index.contains(key.pack(), fileId)) return
+
+        index.add(key.pack(), fileId)
+        appendRecord(key.nameHash, key.scopeHash, fileId)
+    }
+
+    @Synchronized
+    override operator fun get(key: LookupSymbolKey): Collection<Int>? =
+        index[key.pack()]?.asList()
+
+    @Synchronized
+    override operator fun set(key: LookupSymbolKey, fileIds: Set<Int>) {
+        val packed = key.pack()
+        val existing = index[packed]
+
+        if (existing != null && !fileIds.containsAll(existing.asList())) {
+            index.remove(packed)
+            appendRecord(key.nameHash, key.scopeHash, CLEAR_MARKER)
+        }
+
+        for (fileId in fileIds.sorted()) {
+            if (index.contains(packed, fileId)) continue
+
+            index.add(packed, fileId)
+            appendRecord(key.nameHash, key.scopeHash, fileId)
+        }
+    }
+
+    @Synchronized
+    override fun remove(key: LookupSymbolKey) {
+        if (index[key.pack()] == null) return
+
+        index.remove(key.pack())
+        appendRecord(key.nameHash, key.scopeHash, CLEAR_MARKER)
+    }
+
+    override val keys: Collection<LookupSymbolKey>
+        @Synchronized get() {
+            val result = ArrayList<LookupSymbolKey>(index.size)
+            index.forEach { key, _, _ -> result.add(unpack(key)) }
+            return result
+        }
+
+    @Synchronized
+    override fun clean() {
+        closeLog()
+        index.clear()
+        recordsCount = 0
+        generation = 0
+        generationFiles().forEach { it.delete() }
+    }
+
+    @Synchronized
+    override fun flush(memoryCachesOnly: Boolean) {
+        if (!memoryCachesOnly) {
+            buffer?.force()
+        }
+
+        compactIfNeeded()
+    }
+
+    @Synchronized
+    override fun close() {
+        closeLog()
+    }
+
+    @TestOnly
+    @Synchronized
+    override fun dump(): String {
+        return with(StringBuilder()) {
+            with(Printer(this)) {
+                // Same format as LookupMap, so dumps of both storages can be compared directly
+                println(LookupMap::class.java.simpleName)
+                pushIndent()
+
+                for (key in keys.sorted()) {
+                    println("$key -> ${index[key.pack()]!!.toSet()}")
+                }
+
+                popIndent()
+            }
+
+            this
+        }.toString()
+    }
+
+    private fun load() {
+        val files = generationFiles().sortedBy { it.generation }
+        val latest = files.lastOrNull() ?: return
+
+        // previous generations are left when they couldn't be deleted after compaction (e.g. when still mapped on Windows)
+        files.dropLast(1).forEach { it.delete() }
+
+        generation = latest.generation
+        openLog(latest)
+
+        val buffer = buffer!!
+        if (buffer.getInt(0) != MAGIC) throw IOException("Corrupted lookups log: $latest")
+
+        recordsCount = buffer.getInt(4)
+        for (i in 0 until recordsCount) {
+            val offset = HEADER_SIZE + i * RECORD_SIZE
+            val key = pack(buffer.getInt(offset), buffer.getInt(offset + 4))
+            val value = buffer.getInt(offset + 8)
+
+            if (value == CLEAR_MARKER) {
+                index.remove(key)
+            } else {
+                index.add(key, value)
+            }
+        }
+    }
+
+    private fun appendRecord(nameHash: Int, scopeHash: Int, value: Int) {
+        if (channel == null) {
+            openLog(generationFile(generation))
+        }
+
+        val requiredSize = HEADER_SIZE + (recordsCount + 1) * RECORD_SIZE
+        if (requiredSize > buffer!!.capacity()) {
+            map(maxOf(requiredSize, buffer!!.capacity() * 2))
+        }
+
+        val buffer = buffer!!
+        val offset = HEADER_SIZE + recordsCount * RECORD_SIZE
+        buffer.putInt(offset, nameHash)
+        buffer.putInt(offset + 4, scopeHash)
+        buffer.putInt(offset + 8, value)
+
+        recordsCount++
+        buffer.putInt(4, recordsCount)
+    }
+
+    private fun openLog(file: File) {
+        file.parentFile.mkdirs()
+        val isNew = !file.exists()
+
+        channel = RandomAccessFile(file, "rw").channel
+        map(maxOf(channel!!.size(), INITIAL_CAPACITY.toLong()).toInt())
+
+        if (isNew) {
+            buffer!!.putInt(0, MAGIC)
+            buffer!!.putInt(4, 0)
+        }
+    }
+
+    private fun map(size: Int) {
+        buffer = channel!!.map(FileChannel.MapMode.READ_WRITE, 0, size.toLong())
+    }
+
+    private fun closeLog() {
+        epoch++
+
+        try {
+            buffer?.force()
+            channel?.close()
+        } finally {
+            buffer = null
+            channel = null
+        }
+    }
+
+    private fun compactIfNeeded() {
+        if (channel == null || pendingCompaction?.isDone == false) return
+
+        val garbageCount = recordsCount - index.valuesCount
+        if (recordsCount < MINIMUM_COMPACTIBLE_RECORDS || garbageCount.toDouble() / recordsCount < GARBAGE_TO_SIZE_THRESHOLD) return
+
+        val snapshot = index.copy()
+        val snapshotRecordsCount = recordsCount
+        val snapshotEpoch = epoch
+        pendingCompaction = compactionExecutor.submit { compact(snapshot, snapshotRecordsCount, snapshotEpoch) }
+    }
+
+    private fun compact(snapshot: LookupIndex, snapshotRecordsCount: Int, snapshotEpoch: Int) {
+        val compactedFile = File(storageFile.parentFile, storageFile.name + ".compacting")
+
+        try {
+            DataOutputStream(BufferedOutputStream(FileOutputStream(compactedFile))).use { output ->
+                output.writeInt(MAGIC)
+                output.writeInt(snapshot.valuesCount)
+
+                snapshot.forEach { key, fileIds, size ->
+                    for (i in 0 until size) {
+                        output.writeInt((key ushr 32).toInt())
+                        output.writeInt(key.toInt())
+                        output.writeInt(fileIds[i])
+                    }
+                }
+            }
+
+            synchronized(this) {
+                if (epoch != snapshotEpoch) return
+
+                // records appended while the snapshot was written are copied as is
+                val tailCount = recordsCount - snapshotRecordsCount
+                val tail = ByteArray(tailCount * RECORD_SIZE)
+                val source = buffer!!.duplicate()
+                source.position(HEADER_SIZE + snapshotRecordsCount * RECORD_SIZE)
+                source.get(tail)
+
+                val newRecordsCount = snapshot.valuesCount + tailCount
+                RandomAccessFile(compactedFile, "rw").use { file ->
+                    file.seek(file.length())
+                    file.write(tail)
+                    file.seek(4)
+                    file.writeInt(newRecordsCount)
+                }
+
+                val oldFile = generationFile(generation)
+                val newFile = generationFile(generation + 1)
+                if (!compactedFile.renameTo(newFile)) return
+
+                closeLog()
+                generation++
+                recordsCount = newRecordsCount
+                openLog(newFile)
+                oldFile.delete()
+            }
+        } catch (e: IOException) {
+            // The current log is still valid, compaction will be retried on the next flush
+        } finally {
+            compactedFile.delete()
+        }
+    }
+
+    private fun generationFile(generation: Int): File =
+        File(storageFile.parentFile, "${storageFile.name}.$generation")
+
+    private fun generationFiles(): List<File> =
+        storageFile.parentFile?.listFiles()?.filter { it.generationOrNull != null } ?: emptyList()
+
+    private val File.generationOrNull: Int?
+        get() = if (name.startsWith(storageFile.name + ".")) name.substring(storageFile.name.length + 1).toIntOrNull() else null
+
+    private val File.generation: Int
+        get() = generationOrNull!!
+}
+
+private fun pack(nameHash: Int, scopeHash: Int): Long =
+    (nameHash.toLong() shl 32) or (scopeHash.toLong() and 0xFFFFFFFFL)
+
+private fun LookupSymbolKey.pack(): Long = pack(nameHash, scopeHash)
+
+private fun unpack(key: Long): LookupSymbolKey = LookupSymbolKey((key ushr 32).toInt(), key.toInt())
+
+/**
+ * Open-addressing (linear probing) hash map from a packed [LookupSymbolKey] to a sorted set of file ids.
+ * Keys and file ids are kept in primitive arrays, so no boxing happens on lookup or insertion.
+ */
+internal class LookupIndex private constructor(
+    private var keys: LongArray,
+    private var values: Array<IntArray?>,
+    private var sizes: IntArray
+) {
+    constructor() : this(LongArray(INITIAL_CAPACITY), arrayOfNulls(INITIAL_CAPACITY), IntArray(INITIAL_CAPACITY))
+
+    var size: Int = 0
+        private set
+
+    var valuesCount: Int = 0
+        private set
+
+    operator fun get(key: Long): IntArray? {
+        val slot = slot(key)
+        val fileIds = values[slot] ?: return null
+        return fileIds.copyOf(sizes[slot])
+    }
+
+    fun contains(key: Long, fileId: Int): Boolean {
+        val slot = slot(key)
+        val fileIds = values[slot] ?: return false
+        return Arrays.binarySearch(fileIds, 0, sizes[slot], fileId) >= 0
+    }
+
+    fun add(key: Long, fileId: Int) {
+        var slot = slot(key)
+        val fileIds = values[slot]
+
+        if (fileIds == null) {
+            if ((size + 1) * 4 > keys.size * 3) {
+                rehash(keys.size * 2)
+                slot = slot(key)
+            }
+
+            keys[slot] = key
+            values[slot] = intArrayOf(fileId)
+            sizes[slot] = 1
+            size++
+            valuesCount++
+            return
+        }
+
+        val count = sizes[slot]
+        val position = Arrays.binarySearch(fileIds, 0, count, fileId)
+        if (position >= 0) return
+
+        val insertionPoint = -position - 1
+        val target = if (count == fileIds.size) fileIds.copyOf(count * 2) else fileIds
+        System.arraycopy(fileIds, insertionPoint, target, insertionPoint + 1, count - insertionPoint)
+        target[insertionPoint] = fileId
+
+        values[slot] = target
+        sizes[slot] = count + 1
+        valuesCount++
+    }
+
+    fun remove(key: Long) {
+        var slot = slot(key)
+        if (values[slot] == null) return
+
+        size--
+        valuesCount -= sizes[slot]
+
+        // backward shift deletion keeps probe sequences intact without tombstones
+        val mask = keys.size - 1
+        var next = slot
+        while (true) {
+            next = (next + 1) and mask
+            if (values[next] == null) break
+
+            val home = hash(keys[next]) and mask
+            val canMove = if (slot <= next) home <= slot || home > next else home <= slot && home > next
+            if (canMove) {
+                keys[slot] = keys[next]
+                values[slot] = values[next]
+                sizes[slot] = sizes[next]
+                slot = next
+            }
+        }
+
+        keys[slot] = 0
+        values[slot] = null
+        sizes[slot] = 0
+    }
+
+    fun clear() {
+        keys = LongArray(INITIAL_CAPACITY)
+        values = arrayOfNulls(INITIAL_CAPACITY)
+        sizes = IntArray(INITIAL_CAPACITY)
+        size = 0
+        valuesCount = 0
+    }
+
+    fun forEach(action: (key: Long, fileIds: IntArray, size: Int) -> Unit) {
+        for (slot in keys.indices) {
+            val fileIds = values[slot] ?: continue
+            action(keys[slot], fileIds, sizes[slot])
+        }
+    }
+
+    fun copy(): LookupIndex {
+        val copiedValues = arrayOfNulls<IntArray>(values.size)
+        for (slot in values.indices) {
+            copiedValues[slot] = values[slot]?.copyOf(sizes[slot])
+        }
+
+        return LookupIndex(keys.copyOf(), copiedValues, sizes.copyOf()).also {
+            it.size = size
+            it.valuesCount = valuesCount
+        }
+    }
+
+    private fun slot(key: Long): Int {
+        val mask = keys.size - 1
+        var slot = hash(key) and mask
+
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) and mask
+        }
+
+        return slot
+    }
+
+    private fun rehash(newCapacity: Int) {
+        val oldKeys = keys
+        val oldValues = values
+        val oldSizes = sizes
+
+        keys = LongArray(newCapacity)
+        values = arrayOfNulls(newCapacity)
+        sizes = IntArray(newCapacity)
+
+        for (oldSlot in oldKeys.indices) {
+            val fileIds = oldValues[oldSlot] ?: continue
+            val slot = slot(oldKeys[oldSlot])
+            keys[slot] = oldKeys[oldSlot]
+            values[slot] = fileIds
+            sizes[slot] = oldSizes[oldSlot]
+        }
+    }
+
+    private companion object {
+        const val INITIAL_CAPACITY = 1024
+
+        fun hash(key: Long): Int {
+            val h = (key xor (key ushr 32)).toInt() * -0x61c88647
+            return h xor (h ushr 16)
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental.storage
+
+import com.intellij.util.containers.MultiMap
+import org.jetbrains.kotlin.TestWithWorkingDir
+import org.jetbrains.kotlin.incremental.LookupStorage
+import org.jetbrains.kotlin.incremental.LookupSymbol
+import org.junit.Test
+import java.io.File
+
+class MappedLookupStorageTest : TestWithWorkingDir() {
+    @Test
+    fun testDumpIsSameAsForPersistentHashMapStorage() {
+        val symbols = fillAndDump(workingDir.resolve("default"), useMappedStorage = false)
+        val mappedSymbols = fillAndDump(workingDir.resolve("mapped"), useMappedStorage = true)
+        assertEquals(symbols, mappedSymbols)
+    }
+
+    @Test
+    fun testLookupsAreReadAfterReopening() {
+        val projectRoot = workingDir.resolve("mapped")
+        val expected = fillAndDump(projectRoot, useMappedStorage = true)
+
+        val lookupStorage = LookupStorage(projectRoot.resolve("storage"), RelativeFileToPathConverter(projectRoot), useMappedStorage = true)
+        try {
+            assertEquals(expected, lookupStorage.dump(allSymbols()))
+            assertEquals(10, lookupStorage.get(LookupSymbol("MyClass_0", "myscope_0")).size)
+        } finally {
+            lookupStorage.close()
+        }
+    }
+
+    @Test
+    fun testRemovedFilesAreNotReturned() {
+        val projectRoot = workingDir.resolve("mapped")
+        val lookupStorage = LookupStorage(projectRoot.resolve("storage"), RelativeFileToPathConverter(projectRoot), useMappedStorage = true)
+        try {
+            fill(projectRoot, lookupStorage)
+            val removed = projectRoot.sourceFile(LookupSymbol("MyClass_1", "myscope_1"))
+            lookupStorage.removeLookupsFrom(sequenceOf(removed))
+            lookupStorage.forceGC()
+
+            val paths = lookupStorage.get(LookupSymbol("MyClass_0", "myscope_0"))
+            assertEquals(9, paths.size)
+            assertFalse(removed.invariantSeparatorsPath in paths.map { File(it).invariantSeparatorsPath })
+        } finally {
+            lookupStorage.close()
+        }
+    }
+
+    private fun fillAndDump(projectRoot: File, useMappedStorage: Boolean): String {
+        val lookupStorage = LookupStorage(projectRoot.resolve("storage"), RelativeFileToPathConverter(projectRoot), useMappedStorage)
+        try {
+            fill(projectRoot, lookupStorage)
+            return lookupStorage.dump(allSymbols())
+        } finally {
+            lookupStorage.close()
+        }
+    }
+
+    /**
+     * i_th file looks up symbols declared in files from 0 to i-1
+     */
+    private fun fill(projectRoot: File, lookupStorage: LookupStorage) {
+        val files = LinkedHashSet<String>()
+        val lookups = MultiMap.createOrderedSet<LookupSymbol, String>()
+
+        for ((i, symbol) in allSymbols().withIndex()) {
+            val sourcePath = projectRoot.sourceFile(symbol).invariantSeparatorsPath
+            files.add(sourcePath)
+
+            for (lookedUpSymbol in allSymbols().take(i)) {
+                lookups.putValue(lookedUpSymbol, sourcePath)
+            }
+        }
+
+        lookupStorage.addAll(lookups, files)
+        lookupStorage.flush(memoryCachesOnly = false)
+    }
+
+    private fun allSymbols(): Set<LookupSymbol> =
+        (0..10).mapTo(LinkedHashSet()) { LookupSymbol(name = "MyClass_$it", scope = "myscope_$it") }
+
+    private fun File.sourceFile(symbol: LookupSymbol): File =
+        resolve("src/${symbol.scope}/${symbol.name}").canonicalFile
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+// usages in build scripts are not tracked properly
+@file:Suppress("unused")
+
+import org.gradle.api.Project
+import org.gradle.api.tasks.JavaExec
+import org.gradle.api.tasks.compile.JavaCompile
+import org.gradle.kotlin.dsl.register
+
+/**
+ * Creates tasks which run JMH benchmarks from the main source set: `jmhBytecode` generates the harness sources,
+ * `jmhCompile` compiles them and `jmhExec` runs the benchmarks. JMH options can be passed as `-PjmhArgs="<options>"`.
+ */
+fun Project.jmhTasks(jmhExecBody: JavaExec.() -> Unit = {}) {
+    val generatedSources = "$buildDir/generated-sources/jmh"
+    val generatedClasses = "$buildDir/generated-classes/jmh"
+
+    val jmhBytecode = tasks.register<JavaExec>("jmhBytecode") {
+        dependsOn("classes")
+        classpath = mainSourceSet.runtimeClasspath
+        main = "org.openjdk.jmh.generators.bytecode.JmhBytecodeGenerator"
+        args("$buildDir/classes/kotlin/main", generatedSources, generatedClasses, "default")
+    }
+
+    val jmhCompile = tasks.register<JavaCompile>("jmhCompile") {
+        dependsOn(jmhBytecode)
+        classpath = mainSourceSet.runtimeClasspath
+        source(fileTree(generatedSources))
+        destinationDir = file(generatedClasses)
+    }
+
+    tasks.register<JavaExec>("jmhExec") {
+        dependsOn(jmhCompile)
+        classpath = files(generatedClasses) + mainSourceSet.runtimeClasspath
+        main = "org.openjdk.jmh.Main"
+        (findProperty("jmhArgs") as String?)?.let { args(it.split(' ')) }
+        jmhExecBody()
+    }
+}
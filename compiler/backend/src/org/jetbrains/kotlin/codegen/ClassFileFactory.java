@@ -58,6 +58,7 @@ public class ClassFileFactory implements OutputFileCollection {
     private final GenerationState state;
     private final ClassBuilderFactory builderFactory;
     private final Map<String, OutAndSourceFileList> generators = new LinkedHashMap<>();
+    private final ThreadLocal<OutputBucket> currentBucket = new ThreadLocal<>();
 
     private boolean isDone = false;
 
@@ -93,7 +94,7 @@ public class ClassFileFactory implements OutputFileCollection {
             @NotNull Collection<? extends PsiFile> sourceFiles
     ) {
         ClassBuilder answer = builderFactory.newClassBuilder(origin);
-        generators.put(
+        putGenerator(
                 asmType.getInternalName() + ".class",
                 new ClassBuilderAndSourceFileList(answer, toIoFilesIgnoringNonPhysical(sourceFiles))
         );
@@ -107,13 +108,61 @@ public class ClassFileFactory implements OutputFileCollection {
             @NotNull List<File> sourceFiles
     ) {
         ClassBuilder answer = builderFactory.newClassBuilder(origin);
-        generators.put(
+        putGenerator(
                 asmType.getInternalName() + ".class",
                 new ClassBuilderAndSourceFileList(answer, sourceFiles)
         );
         return answer;
     }
 
+    private void putGenerator(@NotNull String relativePath, @NotNull OutAndSourceFileList generator) {
+        OutputBucket bucket = currentBucket.get();
+        if (bucket != null) {
+            bucket.generators.put(relativePath, generator);
+        }
+        else {
+            synchronized (generators) {
+                generators.put(relativePath, generator);
+            }
+        }
+    }
+
+    @Nullable
+    private OutAndSourceFileList findGenerator(@NotNull String relativePath) {
+        OutputBucket bucket = currentBucket.get();
+        if (bucket != null) {
+            OutAndSourceFileList generator = bucket.generators.get(relativePath);
+            if (generator != null) return generator;
+        }
+        synchronized (generators) {
+            return generators.get(relativePath);
+        }
+    }
+
+    /**
+     * Classes created by {@code generation} are not visible to other threads until the returned bucket is committed,
+     * which lets files be generated in parallel and still be written in a deterministic order.
+     */
+    @NotNull
+    public OutputBucket generateIntoBucket(@NotNull Runnable generation) {
+        assert currentBucket.get() == null : "Nested output buckets are not supported";
+        OutputBucket bucket = new OutputBucket();
+        currentBucket.set(bucket);
+        try {
+            generation.run();
+        }
+        finally {
+            currentBucket.remove();
+        }
+        return bucket;
+    }
+
+    public void commitBucket(@NotNull OutputBucket bucket) {
+        synchronized (generators) {
+            generators.putAll(bucket.generators);
+        }
+    }
+
     public void done() {
         if (!isDone) {
             isDone = true;
@@ -122,7 +171,9 @@ public class ClassFileFactory implements OutputFileCollection {
     }
 
     public void releaseGeneratedOutput() {
-        generators.clear();
+        synchronized (generators) {
+            generators.clear();
+        }
     }
 
     private void writeModuleMappings() {
@@ -140,7 +191,7 @@ public class ClassFileFactory implements OutputFileCollection {
 
         JvmModuleProtoBuf.Module moduleProto = builder.build();
 
-        generators.put(outputFilePath, new OutAndSourceFileList(CollectionsKt.toList(sourceFiles)) {
+        putGenerator(outputFilePath, new OutAndSourceFileList(CollectionsKt.toList(sourceFiles)) {
             @Override
             public byte[] asBytes(ClassBuilderFactory factory) {
                 int flags = 0;
@@ -189,13 +240,15 @@ public class ClassFileFactory implements OutputFileCollection {
 
     @NotNull
     public List<OutputFile> getCurrentOutput() {
-        return CollectionsKt.map(generators.keySet(), OutputClassFile::new);
+        synchronized (generators) {
+            return CollectionsKt.map(generators.keySet(), OutputClassFile::new);
+        }
     }
 
     @Override
     @Nullable
     public OutputFile get(@NotNull String relativePath) {
-        return generators.containsKey(relativePath) ? new OutputClassFile(relativePath) : null;
+        return findGenerator(relativePath) != null ? new OutputClassFile(relativePath) : null;
     }
 
     @NotNull
@@ -297,7 +350,7 @@ public class ClassFileFactory implements OutputFileCollection {
         @NotNull
         @Override
         public List<File> getSourceFiles() {
-            OutAndSourceFileList pair = generators.get(relativeClassFilePath);
+            OutAndSourceFileList pair = findGenerator(relativeClassFilePath);
             if (pair == null) {
                 throw new IllegalStateException("No record for binary file " + relativeClassFilePath);
             }
@@ -309,7 +362,7 @@ public class ClassFileFactory implements OutputFileCollection {
         @Override
         public byte[] asByteArray() {
             try {
-                return generators.get(relativeClassFilePath).asBytes(builderFactory);
+                return findGenerator(relativeClassFilePath).asBytes(builderFactory);
             }
             catch (RuntimeException e) {
                 throw new RuntimeException("Error generating class file " + this.toString() + ": " + e.getMessage(), e);
@@ -320,7 +373,7 @@ public class ClassFileFactory implements OutputFileCollection {
         @Override
         public String asText() {
             try {
-                return generators.get(relativeClassFilePath).asText(builderFactory);
+                return findGenerator(relativeClassFilePath).asText(builderFactory);
             }
             catch (RuntimeException e) {
                 throw new RuntimeException("Error generating class file " + this.toString() + ": " + e.getMessage(), e);
@@ -366,9 +419,18 @@ public class ClassFileFactory implements OutputFileCollection {
         public abstract String asText(ClassBuilderFactory factory);
     }
 
+    public static final class OutputBucket {
+        private final Map<String, OutAndSourceFileList> generators = new LinkedHashMap<>();
+
+        private OutputBucket() {
+        }
+    }
+
     public void removeClasses(Set<String> classNamesToRemove) {
-        for (String classInternalName : classNamesToRemove) {
-            generators.remove(classInternalName + ".class");
+        synchronized (generators) {
+            for (String classInternalName : classNamesToRemove) {
+                generators.remove(classInternalName + ".class");
+            }
         }
     }
 
@@ -16,12 +16,15 @@
 
 package org.jetbrains.kotlin.codegen
 
+import com.intellij.openapi.progress.ProcessCanceledException
 import com.intellij.util.containers.MultiMap
 import org.jetbrains.kotlin.codegen.state.GenerationState
 import org.jetbrains.kotlin.fileClasses.JvmFileClassUtil
 import org.jetbrains.kotlin.name.FqName
 import org.jetbrains.kotlin.progress.ProgressIndicatorAndCompilationCanceledStatus
 import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.utils.withThreadPool
+import java.util.concurrent.Callable
 
 interface CodegenFactory {
     fun generateModule(state: GenerationState, files: Collection<KtFile>, errorHandler: CompilationErrorHandler)
@@ -62,12 +65,72 @@ object DefaultCodegenFactory : CodegenFactory {
         }
 
         val packagesWithObsoleteParts = HashSet(state.packagesWithObsoleteParts)
+        if (state.isParallelCodegen) {
+            generatePackagesInParallel(state, packagesWithObsoleteParts + filesInPackages.keySet(), filesInPackages, errorHandler)
+            return
+        }
+
         for (packageFqName in packagesWithObsoleteParts + filesInPackages.keySet()) {
             CodegenFactory.doCheckCancelled(state)
             generatePackage(state, packageFqName, filesInPackages.get(packageFqName), errorHandler)
         }
     }
 
+    private fun generatePackagesInParallel(
+            state: GenerationState,
+            packageFqNames: Collection<FqName>,
+            filesInPackages: MultiMap<FqName, KtFile>,
+            errorHandler: CompilationErrorHandler
+    ) {
+        // Codegens are created on this thread, because it also registers source files of the module
+        val codegens = packageFqNames.map { state.factory.forPackage(it, filesInPackages.get(it)) }
+        if (codegens.any { it !is PackageCodegenImpl }) {
+            for (codegen in codegens) {
+                CodegenFactory.doCheckCancelled(state)
+                codegen.generate(errorHandler)
+            }
+            return
+        }
+
+        withThreadPool(state.parallelBackendThreads) { pool ->
+            val tasks = codegens.flatMap { codegen ->
+                (codegen as PackageCodegenImpl).files.map { file ->
+                    file to pool.submit(Callable { generateFileIntoBucket(state, codegen, file) })
+                }
+            }
+
+            // Output of each file is committed in the same order as in sequential codegen, so it doesn't depend on scheduling
+            for ((file, task) in tasks) {
+                CodegenFactory.doCheckCancelled(state)
+                val generatedFile = task.join()
+                state.factory.commitBucket(generatedFile.output)
+
+                val exception = generatedFile.exception
+                when (exception) {
+                    null -> state.afterIndependentPart()
+                    is ProcessCanceledException -> throw exception
+                    else -> PackageCodegenImpl.reportException(file, exception, errorHandler)
+                }
+            }
+        }
+    }
+
+    private class GeneratedFile(val output: ClassFileFactory.OutputBucket, val exception: Throwable?)
+
+    private fun generateFileIntoBucket(state: GenerationState, codegen: PackageCodegenImpl, file: KtFile): GeneratedFile {
+        var exception: Throwable? = null
+        val output = state.factory.generateIntoBucket {
+            try {
+                ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
+                codegen.generateFile(file)
+            }
+            catch (e: Throwable) {
+                exception = e
+            }
+        }
+        return GeneratedFile(output, exception)
+    }
+
     override fun createPackageCodegen(state: GenerationState, files: Collection<KtFile>, fqName: FqName) =
             PackageCodegenImpl(state, files, fqName)
 
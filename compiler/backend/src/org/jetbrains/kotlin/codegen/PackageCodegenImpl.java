@@ -72,17 +72,21 @@ public class PackageCodegenImpl implements PackageCodegen {
                 throw e;
             }
             catch (Throwable e) {
-                VirtualFile vFile = file.getVirtualFile();
-                errorHandler.reportException(e, vFile == null ? "no file" : vFile.getUrl());
-                DiagnosticUtils.throwIfRunningOnServer(e);
-                if (ApplicationManager.getApplication().isInternal()) {
-                    //noinspection CallToPrintStackTrace
-                    e.printStackTrace();
-                }
+                reportException(file, e, errorHandler);
             }
         }
     }
 
+    public static void reportException(@NotNull KtFile file, @NotNull Throwable e, @NotNull CompilationErrorHandler errorHandler) {
+        VirtualFile vFile = file.getVirtualFile();
+        errorHandler.reportException(e, vFile == null ? "no file" : vFile.getUrl());
+        DiagnosticUtils.throwIfRunningOnServer(e);
+        if (ApplicationManager.getApplication().isInternal()) {
+            //noinspection CallToPrintStackTrace
+            e.printStackTrace();
+        }
+    }
+
     public static void generateClassesAndObjectsInFile(
             @NotNull KtFile file,
             @NotNull CodegenContext<?> context,
@@ -119,7 +123,7 @@ public class PackageCodegenImpl implements PackageCodegen {
         }
     }
 
-    private void generateFile(@NotNull KtFile file) {
+    public void generateFile(@NotNull KtFile file) {
         JvmFileClassInfo fileClassInfo = JvmFileClassUtil.getFileClassInfoNoResolve(file);
         if (fileClassInfo.getWithJvmMultifileClass()) return;
 
@@ -173,6 +177,11 @@ public class PackageCodegenImpl implements PackageCodegen {
         return fragments.get(0);
     }
 
+    @NotNull
+    public Collection<KtFile> getFiles() {
+        return files;
+    }
+
     @Override
     public PackageFragmentDescriptor getPackageFragment() {
         return packageFragment;
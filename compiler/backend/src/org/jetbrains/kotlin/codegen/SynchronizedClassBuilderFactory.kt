@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin
+
+/**
+ * Used as the outermost factory in parallel codegen: each class builder is only used by one thread,
+ * but wrapped factories collect class names and signatures into shared maps when a class is created or done.
+ */
+class SynchronizedClassBuilderFactory(delegate: ClassBuilderFactory) : DelegatingClassBuilderFactory(delegate) {
+    private val lock = Any()
+
+    override fun newClassBuilder(origin: JvmDeclarationOrigin): DelegatingClassBuilder {
+        val builder = synchronized(lock) { delegate.newClassBuilder(origin) }
+        return object : DelegatingClassBuilder() {
+            override fun getDelegate() = builder
+
+            override fun done() {
+                synchronized(lock) { super.done() }
+            }
+        }
+    }
+
+    override fun close() {
+        synchronized(lock) { delegate.close() }
+    }
+}
@@ -65,11 +65,30 @@ abstract class TransformationMethodVisitor(
 
         super.visitEnd()
 
+        transformAndEmit()
+    }
+
+    /**
+     * Can be overridden to run [transform] on another thread. [emit] should still be called on the thread generating the class,
+     * in the order the methods are finished, since class writers are not thread-safe.
+     */
+    protected open fun transformAndEmit() {
+        transform()
+        emit()
+    }
+
+    protected fun transform() {
         try {
             if (shouldBeTransformed(methodNode)) {
                 performTransformations(methodNode)
             }
+        } catch (t: Throwable) {
+            throw CompilationException("Couldn't transform method node:\n" + methodNode.nodeText, t, null)
+        }
+    }
 
+    protected fun emit() {
+        try {
             methodNode.accept(EndIgnoringMethodVisitorDecorator(Opcodes.API_VERSION, delegate))
 
 
@@ -16,24 +16,59 @@
 
 package org.jetbrains.kotlin.codegen.inline
 
-import com.intellij.util.containers.SLRUMap
+import com.intellij.openapi.vfs.VirtualFile
 import org.jetbrains.kotlin.name.ClassId
 import org.jetbrains.org.objectweb.asm.commons.Method
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.CRC32
 
-data class MethodId(val ownerInternalName: String, val method: Method)
+/**
+ * Identifies contents of a compiled class file, so that data read from it can be reused by all modules
+ * which have this file in dependencies, but not after the file has changed.
+ */
+data class ClassFileKey(val path: String, val contentHash: Long)
 
-class InlineCache {
-    val classBytes: SLRUMap<ClassId, ByteArray> = SLRUMap(30, 20)
-    val methodNodeById: SLRUMap<MethodId, SMAPAndMethodNode> = SLRUMap(60, 50)
-}
+data class MethodNodeKey(val classFile: ClassFileKey, val method: Method)
+
+/**
+ * Caches bodies of compiled inline functions for one module. The data is kept in [storage], which may be shared by several modules.
+ */
+class InlineCache(private val storage: InlineCacheStorage = InlineCacheStorage()) {
+    private class ClassFile(val key: ClassFileKey, val file: VirtualFile)
+
+    private val classFiles = ConcurrentHashMap<ClassId, ClassFile>()
+
+    val statistics: InlineCacheStatistics
+        get() = storage.statistics
+
+    fun getOrLoadMethodNode(
+        classId: ClassId,
+        method: Method,
+        findFile: () -> VirtualFile,
+        load: (ByteArray) -> SMAPAndMethodNode?
+    ): SMAPAndMethodNode? {
+        val classFile = classFiles[classId] ?: run {
+            val file = findFile()
+            val bytes = file.contentsToByteArray()
+            val classFile = ClassFile(ClassFileKey(file.path, contentHash(bytes)), file)
+            storage.putClassBytes(classFile.key, bytes)
+            classFiles.putIfAbsent(classId, classFile) ?: classFile
+        }
+
+        val key = MethodNodeKey(classFile.key, method)
+        storage.getMethodNode(key)?.let { return it }
+
+        val bytes = storage.getClassBytes(classFile.key) ?: classFile.file.contentsToByteArray().also { bytes ->
+            // The file may have changed since it was first read, and its new contents should not be cached under the old key
+            if (contentHash(bytes) != classFile.key.contentHash) return load(bytes)
+            storage.putClassBytes(classFile.key, bytes)
+        }
+        return load(bytes)?.also { storage.putMethodNode(key, it) }
+    }
 
-inline fun <K, V> SLRUMap<K, V>.getOrPut(key: K, defaultValue: () -> V): V {
-    val value = get(key)
-    return if (value == null) {
-        val answer = defaultValue()
-        put(key, answer)
-        answer
-    } else {
-        value
+    private fun contentHash(bytes: ByteArray): Long {
+        val crc = CRC32()
+        crc.update(bytes)
+        return (bytes.size.toLong() shl 32) or crc.value
     }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.inline
+
+import java.util.concurrent.atomic.AtomicLong
+
+class InlineCacheStatistics {
+    val hits = AtomicLong()
+    val misses = AtomicLong()
+    val evictions = AtomicLong()
+
+    override fun toString() = "hits: ${hits.get()}, misses: ${misses.get()}, evictions: ${evictions.get()}"
+}
+
+/**
+ * Least recently used class files and method nodes, limited by their estimated size in memory.
+ */
+class InlineCacheStorage(val maxSizeInBytes: Long = DEFAULT_MAX_SIZE_IN_BYTES) {
+    private class Entry(val value: Any, val sizeInBytes: Long)
+
+    val statistics = InlineCacheStatistics()
+
+    private val entries = LinkedHashMap<Any, Entry>(16, 0.75f, /* accessOrder = */ true)
+    private var sizeInBytes = 0L
+
+    fun getClassBytes(key: ClassFileKey): ByteArray? =
+        get(key) as ByteArray?
+
+    fun putClassBytes(key: ClassFileKey, bytes: ByteArray) {
+        put(key, bytes, bytes.size.toLong())
+    }
+
+    fun getMethodNode(key: MethodNodeKey): SMAPAndMethodNode? {
+        val node = get(key) as SMAPAndMethodNode?
+        (if (node != null) statistics.hits else statistics.misses).incrementAndGet()
+        return node
+    }
+
+    fun putMethodNode(key: MethodNodeKey, node: SMAPAndMethodNode) {
+        put(key, node, estimateSize(node))
+    }
+
+    @Synchronized
+    private fun get(key: Any): Any? = entries[key]?.value
+
+    @Synchronized
+    private fun put(key: Any, value: Any, size: Long) {
+        if (size > maxSizeInBytes) return
+
+        entries.put(key, Entry(value, size))?.let { sizeInBytes -= it.sizeInBytes }
+        sizeInBytes += size
+
+        val iterator = entries.values.iterator()
+        while (sizeInBytes > maxSizeInBytes) {
+            sizeInBytes -= iterator.next().sizeInBytes
+            iterator.remove()
+            statistics.evictions.incrementAndGet()
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        sizeInBytes = 0
+    }
+
+    companion object {
+        const val DEFAULT_MAX_SIZE_IN_BYTES = 16L * 1024 * 1024
+
+        // Roughly what ASM allocates per instruction node, including labels, frames and operands
+        private const val INSTRUCTION_SIZE_IN_BYTES = 64
+        private const val METHOD_NODE_SIZE_IN_BYTES = 512
+
+        private var shared: InlineCacheStorage? = null
+
+        /**
+         * Returns the storage shared by all compilations in this process (e.g. in the compile daemon),
+         * which is recreated if another size is requested.
+         */
+        @JvmStatic
+        @Synchronized
+        fun getShared(maxSizeInBytes: Long): InlineCacheStorage =
+            shared?.takeIf { it.maxSizeInBytes == maxSizeInBytes }
+                ?: InlineCacheStorage(maxSizeInBytes).also { shared = it }
+
+        private fun estimateSize(node: SMAPAndMethodNode): Long =
+            METHOD_NODE_SIZE_IN_BYTES + node.node.instructions.size().toLong() * INSTRUCTION_SIZE_IN_BYTES
+    }
+}
@@ -551,21 +551,17 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
             else
                 mangleSuspendInlineFunctionAsmMethodIfNeeded(functionDescriptor, jvmSignature.asmMethod)
 
-            val owner = state.typeMapper.mapImplementationOwner(functionDescriptor)
-            val methodId = MethodId(owner.internalName, asmMethod)
             val directMember = getDirectMemberAndCallableFromObject(functionDescriptor)
             if (!isBuiltInArrayIntrinsic(functionDescriptor) && directMember !is DescriptorWithContainerSource) {
                 return sourceCompilerForInline.doCreateMethodNodeFromSource(functionDescriptor, jvmSignature, callDefault, asmMethod)
             }
 
-            val resultInCache = state.inlineCache.methodNodeById.getOrPut(methodId) {
-                val result = doCreateMethodNodeFromCompiled(directMember, state, asmMethod)
-                    ?: if (functionDescriptor.isSuspend)
-                        doCreateMethodNodeFromCompiled(directMember, state, jvmSignature.asmMethod)
-                    else
-                        null
-                result ?: throw IllegalStateException("Couldn't obtain compiled function body for $functionDescriptor")
-            }
+            val result = doCreateMethodNodeFromCompiled(directMember, state, asmMethod)
+                ?: if (functionDescriptor.isSuspend)
+                    doCreateMethodNodeFromCompiled(directMember, state, jvmSignature.asmMethod)
+                else
+                    null
+            val resultInCache = result ?: throw IllegalStateException("Couldn't obtain compiled function body for $functionDescriptor")
 
             return resultInCache.copyWithNewNode(cloneMethodNode(resultInCache.node))
         }
@@ -586,11 +582,14 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
         }
 
         private fun cloneMethodNode(methodNode: MethodNode): MethodNode {
-            methodNode.instructions.resetLabels()
-            return MethodNode(
-                Opcodes.API_VERSION, methodNode.access, methodNode.name, methodNode.desc, methodNode.signature,
-                ArrayUtil.toStringArray(methodNode.exceptions)
-            ).also(methodNode::accept)
+            // Cached nodes may be cloned by several threads, and both resetting and visiting labels mutates them
+            synchronized(methodNode) {
+                methodNode.instructions.resetLabels()
+                return MethodNode(
+                    Opcodes.API_VERSION, methodNode.access, methodNode.name, methodNode.desc, methodNode.signature,
+                    ArrayUtil.toStringArray(methodNode.exceptions)
+                ).also(methodNode::accept)
+            }
         }
 
         private fun doCreateMethodNodeFromCompiled(
@@ -615,21 +614,24 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
 
             val containerId = containingClasses.implClassId
 
-            val bytes = state.inlineCache.classBytes.getOrPut(containerId) {
-                findVirtualFile(state, containerId)?.contentsToByteArray()
-                    ?: throw IllegalStateException("Couldn't find declaration file for $containerId")
-            }
-
-            val methodNode =
-                getMethodNode(bytes, asmMethod.name, asmMethod.descriptor, AsmUtil.asmTypeByClassId(containerId)) ?: return null
+            return state.inlineCache.getOrLoadMethodNode(
+                containerId, asmMethod,
+                findFile = {
+                    findVirtualFile(state, containerId) ?: throw IllegalStateException("Couldn't find declaration file for $containerId")
+                }
+            ) { bytes ->
+                val methodNode =
+                    getMethodNode(bytes, asmMethod.name, asmMethod.descriptor, AsmUtil.asmTypeByClassId(containerId))
+                        ?: return@getOrLoadMethodNode null
+
+                // KLUDGE: Inline suspend function built with compiler version less than 1.1.4/1.2-M1 did not contain proper
+                // before/after suspension point marks, so we detect those functions here and insert the corresponding marks
+                if (isLegacySuspendInlineFunction(callableDescriptor)) {
+                    insertLegacySuspendInlineMarks(methodNode.node)
+                }
 
-            // KLUDGE: Inline suspend function built with compiler version less than 1.1.4/1.2-M1 did not contain proper
-            // before/after suspension point marks, so we detect those functions here and insert the corresponding marks
-            if (isLegacySuspendInlineFunction(callableDescriptor)) {
-                insertLegacySuspendInlineMarks(methodNode.node)
+                methodNode
             }
-
-            return methodNode
         }
 
         private fun isBuiltInArrayIntrinsic(callableDescriptor: CallableMemberDescriptor): Boolean {
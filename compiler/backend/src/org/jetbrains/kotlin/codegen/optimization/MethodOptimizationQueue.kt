@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization
+
+import org.jetbrains.kotlin.utils.getOrRethrow
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Future
+
+/**
+ * Transforms methods of one class on [executor] and emits them in the order they were finished, when the class is done.
+ *
+ * Methods are still declared in the class writer when they are created, but their code is written later than in the sequential
+ * mode, so the constant pool of the class may be ordered differently. The methods and their code are the same.
+ */
+class MethodOptimizationQueue(private val executor: ExecutorService) {
+    private class PendingMethod(val transformation: Future<*>, val emission: () -> Unit)
+
+    private val pendingMethods = ArrayList<PendingMethod>()
+    private var isDone = false
+
+    fun submit(transformation: () -> Unit, emission: () -> Unit) {
+        if (isDone) {
+            // The method is finished after its class, there's nothing to wait for
+            transformation()
+            emission()
+            return
+        }
+
+        pendingMethods.add(PendingMethod(executor.submit(Callable { transformation() }), emission))
+    }
+
+    fun emitAll() {
+        isDone = true
+        try {
+            for (method in pendingMethods) {
+                method.transformation.getOrRethrow()
+                method.emission()
+            }
+        } finally {
+            for (method in pendingMethods) {
+                method.transformation.cancel(false)
+            }
+            pendingMethods.clear()
+        }
+    }
+
+    val hasPendingMethods: Boolean
+        get() = pendingMethods.isNotEmpty()
+}
@@ -24,13 +24,19 @@ import org.jetbrains.kotlin.codegen.state.GenerationState;
 import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin;
 import org.jetbrains.org.objectweb.asm.MethodVisitor;
 
+import java.util.concurrent.ExecutorService;
+
 public class OptimizationClassBuilder extends DelegatingClassBuilder {
     private final ClassBuilder delegate;
     private final GenerationState generationState;
+    private final MethodOptimizationQueue methodOptimizationQueue;
 
     public OptimizationClassBuilder(@NotNull ClassBuilder delegate, @NotNull GenerationState generationState) {
         this.delegate = delegate;
         this.generationState = generationState;
+
+        ExecutorService executor = generationState.getMethodOptimizationExecutor();
+        this.methodOptimizationQueue = executor != null ? new MethodOptimizationQueue(executor) : null;
     }
 
     @NotNull
@@ -51,7 +57,16 @@ public class OptimizationClassBuilder extends DelegatingClassBuilder {
     ) {
         return new OptimizationMethodVisitor(
                 super.newMethod(origin, access, name, desc, signature, exceptions),
-                generationState, access, name, desc, signature, exceptions
+                generationState, methodOptimizationQueue, access, name, desc, signature, exceptions
         );
     }
+
+    @Override
+    public void done() {
+        if (methodOptimizationQueue != null) {
+            methodOptimizationQueue.emitAll();
+            assert !methodOptimizationQueue.getHasPendingMethods() : "Methods of " + getThisName() + " are not emitted";
+        }
+        super.done();
+    }
 }
@@ -30,6 +30,7 @@ import org.jetbrains.org.objectweb.asm.tree.MethodNode
 class OptimizationMethodVisitor(
     delegate: MethodVisitor,
     private val generationState: GenerationState,
+    private val methodOptimizationQueue: MethodOptimizationQueue?,
     access: Int,
     name: String,
     desc: String,
@@ -58,6 +59,14 @@ class OptimizationMethodVisitor(
         MethodVerifier("AFTER optimizations")
     )
 
+    override fun transformAndEmit() {
+        if (methodOptimizationQueue != null) {
+            methodOptimizationQueue.submit(this::transform, this::emit)
+        } else {
+            super.transformAndEmit()
+        }
+    }
+
     override fun performTransformations(methodNode: MethodNode) {
         normalizationMethodTransformer.transform("fake", methodNode)
         constructorCallNormalizationTransformer.transform("fake", methodNode)
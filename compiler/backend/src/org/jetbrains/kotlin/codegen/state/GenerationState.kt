@@ -16,6 +16,7 @@ import org.jetbrains.kotlin.codegen.context.RootContext
 import org.jetbrains.kotlin.codegen.extensions.ClassBuilderInterceptorExtension
 import org.jetbrains.kotlin.codegen.inline.GlobalInlineContext
 import org.jetbrains.kotlin.codegen.inline.InlineCache
+import org.jetbrains.kotlin.codegen.inline.InlineCacheStorage
 import org.jetbrains.kotlin.codegen.intrinsics.IntrinsicMethods
 import org.jetbrains.kotlin.codegen.optimization.OptimizationClassBuilderFactory
 import org.jetbrains.kotlin.codegen.serialization.JvmSerializationBindings
@@ -42,9 +43,12 @@ import org.jetbrains.kotlin.resolve.jvm.JvmClassName
 import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin
 import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOriginKind.*
 import org.jetbrains.kotlin.serialization.deserialization.DeserializationConfiguration
+import org.jetbrains.kotlin.storage.LockBasedLazyResolveStorageManager
 import org.jetbrains.kotlin.storage.LockBasedStorageManager
 import org.jetbrains.kotlin.types.KotlinType
 import java.io.File
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.ForkJoinPool
 
 class GenerationState private constructor(
     val project: Project,
@@ -136,7 +140,31 @@ class GenerationState private constructor(
         }
     }
 
-    val inlineCache: InlineCache = InlineCache()
+    private val canGenerateInParallel = builderFactory.classBuilderMode.generateBodies && configuration.get(JVMConfigurationKeys.IR) != true
+
+    val parallelBackendThreads: Int =
+        if (canGenerateInParallel) configuration.get(JVMConfigurationKeys.PARALLEL_BACKEND_THREADS, 1) else 1
+
+    val isParallelCodegen: Boolean get() = parallelBackendThreads > 1
+
+    private val methodOptimizationThreads: Int =
+        if (canGenerateInParallel) configuration.get(JVMConfigurationKeys.PARALLEL_METHOD_OPTIMIZATION_THREADS, 1) else 1
+
+    // Methods are optimized on this pool while the class is still being generated, and emitted when the class is done
+    val methodOptimizationExecutor: ExecutorService? =
+        if (methodOptimizationThreads > 1) ForkJoinPool(methodOptimizationThreads) else null
+
+    // Bindings are recorded and diagnostics are reported from several threads at once in parallel codegen,
+    // and bindings are read by method optimizations running in parallel with codegen
+    private val traceStorageManager: LockBasedLazyResolveStorageManager? =
+        if (isParallelCodegen || methodOptimizationExecutor != null)
+            LockBasedLazyResolveStorageManager(LockBasedStorageManager("GenerationState"))
+        else null
+
+    val inlineCache: InlineCache = InlineCache(
+        configuration.get(JVMConfigurationKeys.INLINE_CACHE_SIZE)?.let { InlineCacheStorage.getShared(it * 1024L * 1024L) }
+            ?: InlineCacheStorage()
+    )
 
     val incrementalCacheForThisTarget: IncrementalCache?
     val packagesWithObsoleteParts: Set<FqName>
@@ -145,7 +173,15 @@ class GenerationState private constructor(
         CompilerDeserializationConfiguration(configuration.languageVersionSettings)
 
     val deprecationProvider =
-        DeprecationResolver(LockBasedStorageManager.NO_LOCKS, configuration.languageVersionSettings, CoroutineCompatibilitySupport.ENABLED, JavaDeprecationSettings)
+        DeprecationResolver(
+            if (isParallelCodegen)
+                LockBasedStorageManager.createConcurrent("GenerationState", LockBasedStorageManager.ExceptionHandlingStrategy.THROW)
+            else
+                LockBasedStorageManager.NO_LOCKS,
+            configuration.languageVersionSettings,
+            CoroutineCompatibilitySupport.ENABLED,
+            JavaDeprecationSettings
+        )
 
     init {
         val icComponents = configuration.get(JVMConfigurationKeys.INCREMENTAL_COMPILATION_COMPONENTS)
@@ -170,7 +206,7 @@ class GenerationState private constructor(
     }
 
     val extraJvmDiagnosticsTrace: BindingTrace =
-        DelegatingBindingTrace(bindingContext, "For extra diagnostics in ${this::class.java}", false)
+        DelegatingBindingTrace(bindingContext, "For extra diagnostics in ${this::class.java}", false).lockProtectedIfParallel()
     private val interceptedBuilderFactory: ClassBuilderFactory
     private var used = false
 
@@ -189,7 +225,7 @@ class GenerationState private constructor(
     val bindingTrace: BindingTrace = DelegatingBindingTrace(
         bindingContext, "trace in GenerationState",
         filter = if (wantsDiagnostics) BindingTraceFilter.ACCEPT_ALL else BindingTraceFilter.NO_DIAGNOSTICS
-    )
+    ).lockProtectedIfParallel()
     val bindingContext: BindingContext = bindingTrace.bindingContext
     val mainFunctionDetector = MainFunctionDetector(bindingContext, languageVersionSettings)
     private val isIrBackend = configuration.get(JVMConfigurationKeys.IR) ?: false
@@ -209,7 +245,9 @@ class GenerationState private constructor(
         IntrinsicMethods(target, canReplaceStdlibRuntimeApiBehavior, shouldUseConsistentEquals)
     }
     val samWrapperClasses: SamWrapperClasses = SamWrapperClasses(this)
-    val globalInlineContext: GlobalInlineContext = GlobalInlineContext(diagnostics)
+    // Inline context tracks the stack of functions being inlined, so each codegen thread needs its own one
+    private val globalInlineContexts = ThreadLocal.withInitial { GlobalInlineContext(diagnostics) }
+    val globalInlineContext: GlobalInlineContext get() = globalInlineContexts.get()
     val mappingsClassesForWhenByEnum: MappingsClassesForWhenByEnum = MappingsClassesForWhenByEnum(this)
     val jvmRuntimeTypes: JvmRuntimeTypes = JvmRuntimeTypes(module, configuration.languageVersionSettings)
     val factory: ClassFileFactory
@@ -284,6 +322,7 @@ class GenerationState private constructor(
             .wrapWith(ClassBuilderInterceptorExtension.getInstances(project)) { classBuilderFactory, extension ->
                 extension.interceptClassBuilderFactory(classBuilderFactory, bindingContext, diagnostics)
             }
+            .wrapWith({ if (isParallelCodegen) SynchronizedClassBuilderFactory(it) else it })
 
         this.factory = ClassFileFactory(this, interceptedBuilderFactory)
     }
@@ -298,6 +337,9 @@ class GenerationState private constructor(
         onIndependentPartCompilationEnd(this)
     }
 
+    private fun BindingTrace.lockProtectedIfParallel(): BindingTrace =
+        traceStorageManager?.createSafeTrace(this) ?: this
+
     private fun markUsed() {
         if (used) throw IllegalStateException("${GenerationState::class.java} cannot be used more than once")
 
@@ -305,6 +347,7 @@ class GenerationState private constructor(
     }
 
     fun destroy() {
+        methodOptimizationExecutor?.shutdown()
         interceptedBuilderFactory.close()
     }
 
@@ -41,7 +41,7 @@ public class MappingsClassesForWhenByEnum {
 
         assert mapping != null : "mapping class should not be requested for non enum when";
 
-        if (!generatedMappingClasses.contains(mapping.getMappingsClassInternalName())) {
+        if (!isGenerated(mapping.getMappingsClassInternalName())) {
             List<WhenByEnumsMapping> mappings = state.getBindingContext().get(
                     CodegenBinding.MAPPINGS_FOR_WHENS_BY_ENUM_IN_CLASS_FILE,
                     mapping.getOuterClassInternalNameForExpression()
@@ -52,7 +52,18 @@ public class MappingsClassesForWhenByEnum {
             Type mappingsClassType = Type.getObjectType(mapping.getMappingsClassInternalName());
 
             mappingsCodegen.generate(mappings, mappingsClassType, expression.getContainingKtFile());
-            generatedMappingClasses.add(mapping.getMappingsClassInternalName());
+            if (!state.isParallelCodegen()) {
+                generatedMappingClasses.add(mapping.getMappingsClassInternalName());
+            }
         }
     }
+
+    private boolean isGenerated(@NotNull String mappingsClassInternalName) {
+        if (state.isParallelCodegen()) {
+            // In parallel codegen, each file generates the mappings it uses unless they were already committed to the class file factory,
+            // so that the first file in the generation order always owns the class, no matter how the files were scheduled
+            return state.getFactory().get(mappingsClassInternalName + ".class") != null;
+        }
+        return generatedMappingClasses.contains(mappingsClassInternalName);
+    }
 }
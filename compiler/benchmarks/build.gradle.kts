@@ -0,0 +1,29 @@
+plugins {
+    kotlin("jvm")
+}
+
+val jmhVersion = "1.21"
+
+dependencies {
+    compile(project(":compiler:cli"))
+    compile(project(":compiler:ir.serialization.js"))
+    compile(projectTests(":compiler:tests-common"))
+    compileOnly(intellijCoreDep()) { includeJars("intellij-core") }
+    compileOnly(intellijDep()) { includeJars("openapi", "util", "asm-all", rootProject = rootProject) }
+    runtime(intellijDep())
+    runtime(project(":kotlin-reflect"))
+    compile("org.openjdk.jmh", "jmh-core", jmhVersion)
+    compile("org.openjdk.jmh", "jmh-generator-bytecode", jmhVersion)
+}
+
+sourceSets {
+    "main" { projectDefault() }
+    "test" { }
+}
+
+// Usage: ./gradlew :compiler:benchmarks:jmhExec -PjmhArgs="<benchmark name regexp> <JMH options>"
+jmhTasks {
+    dependsOn(":dist", ":compiler:ir.serialization.js:generateFullRuntimeKLib")
+    workingDir = rootDir
+    systemProperty("idea.home.path", intellijRootDir().canonicalPath)
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.config.CommonConfigurationKeys
+import org.jetbrains.kotlin.config.CompilerConfiguration
+import org.jetbrains.kotlin.ir.backend.js.loadIr
+import org.jetbrains.kotlin.ir.backend.js.loadKlib
+import org.jetbrains.kotlin.library.KotlinLibrary
+import org.jetbrains.kotlin.psi.KtFile
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Loads IR of box tests in `compiler/testData/codegen/box/controlStructures` with the JS runtime klib as a dependency, which
+ * deserializes the header of the runtime module and all declarations referenced from the test.
+ *
+ * Note that the measured time includes the frontend analysis of the (small) test file, since [loadIr] always performs it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+open class IrDeserializationBenchmark : AbstractEnvironmentBenchmark() {
+    private lateinit var runtime: KotlinLibrary
+    private lateinit var files: List<KtFile>
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        val configuration = CompilerConfiguration().apply {
+            put(CommonConfigurationKeys.MODULE_NAME, "benchmark")
+            put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE)
+        }
+        environment = KotlinCoreEnvironment.createForTests(disposable, configuration, EnvironmentConfigFiles.JS_CONFIG_FILES)
+        runtime = loadKlib(FULL_RUNTIME_KLIB)
+
+        // Tests which can't be compiled to JS are skipped
+        files = loadCorpus(CONTROL_STRUCTURES_TEST_DATA).filter(::isSingleFileJvmBoxTest).map(::createFile).filter { file ->
+            try {
+                loadIrOf(file)
+                true
+            } catch (e: Throwable) {
+                false
+            }
+        }
+    }
+
+    private fun loadIrOf(file: KtFile): Int {
+        val moduleInfo = loadIr(environment.project, listOf(file), environment.configuration, listOf(runtime), emptyList())
+        return moduleInfo.allDependencies.sumBy { it.files.size }
+    }
+
+    @Benchmark
+    fun loadIrOfFiles(): Int = files.sumBy(::loadIrOf)
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmProtoBufUtil
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Reads metadata of classes and multifile class parts of the standard library, and resolves names of all their members
+ * and the class names of the types in the signatures of functions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+open class JvmNameResolverBenchmark {
+    private lateinit var classes: List<Metadata>
+    private lateinit var packageParts: List<Metadata>
+
+    @Setup
+    fun setUp() {
+        classes = CLASSES.map(::loadMetadata)
+        packageParts = PACKAGE_PARTS.map(::loadMetadata)
+    }
+
+    private fun loadMetadata(className: String): Metadata =
+        Class.forName(className).getAnnotation(Metadata::class.java) ?: error("No metadata in $className")
+
+    @Benchmark
+    fun classes(): Int {
+        var length = 0
+        for (metadata in classes) {
+            val (nameResolver, proto) = JvmProtoBufUtil.readClassDataFrom(metadata.data1, metadata.data2)
+            length += nameResolver.getQualifiedClassName(proto.fqName).length
+            for (supertype in proto.supertypeList) {
+                if (supertype.hasClassName()) length += nameResolver.getQualifiedClassName(supertype.className).length
+            }
+            for (function in proto.functionList) {
+                length += nameResolver.getString(function.name).length
+            }
+            for (property in proto.propertyList) {
+                length += nameResolver.getString(property.name).length
+            }
+        }
+        return length
+    }
+
+    @Benchmark
+    fun packageParts(): Int {
+        var length = 0
+        for (metadata in packageParts) {
+            val (nameResolver, proto) = JvmProtoBufUtil.readPackageDataFrom(metadata.data1, metadata.data2)
+            for (function in proto.functionList) {
+                length += nameResolver.getString(function.name).length
+                for (parameter in function.valueParameterList) {
+                    length += nameResolver.getString(parameter.name).length
+                }
+            }
+            for (property in proto.propertyList) {
+                length += nameResolver.getString(property.name).length
+            }
+        }
+        return length
+    }
+
+    // Class names of types repeat a lot within a part, as they do when its functions are deserialized
+    @Benchmark
+    fun packagePartTypes(): Int {
+        var length = 0
+        for (metadata in packageParts) {
+            val (nameResolver, proto) = JvmProtoBufUtil.readPackageDataFrom(metadata.data1, metadata.data2)
+            for (function in proto.functionList) {
+                if (function.returnType.hasClassName()) {
+                    length += nameResolver.getQualifiedClassName(function.returnType.className).length
+                }
+                for (parameter in function.valueParameterList) {
+                    if (parameter.type.hasClassName()) {
+                        length += nameResolver.getQualifiedClassName(parameter.type.className).length
+                    }
+                }
+            }
+        }
+        return length
+    }
+
+    companion object {
+        private val CLASSES = listOf(
+            "kotlin.collections.AbstractList", "kotlin.collections.AbstractMutableList", "kotlin.collections.IndexedValue",
+            "kotlin.text.Regex", "kotlin.text.MatchGroup", "kotlin.ranges.IntRange", "kotlin.ranges.CharProgression",
+            "kotlin.io.FileTreeWalk", "kotlin.Pair", "kotlin.Triple", "kotlin.Result", "kotlin.KotlinVersion"
+        )
+
+        private val PACKAGE_PARTS = listOf(
+            "kotlin.collections.CollectionsKt___CollectionsKt", "kotlin.collections.ArraysKt___ArraysKt",
+            "kotlin.sequences.SequencesKt___SequencesKt", "kotlin.text.StringsKt___StringsKt", "kotlin.text.StringsKt__StringsKt"
+        )
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import com.intellij.lang.ASTNode
+import org.jetbrains.kotlin.lexer.KotlinLexer
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Lexes and parses all files of `compiler/testData/psi`.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+open class LexerAndParserBenchmark : AbstractEnvironmentBenchmark() {
+    private lateinit var corpus: List<CorpusFile>
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        createJvmEnvironment(ConfigurationKind.JDK_ONLY)
+        corpus = loadCorpus(PSI_TEST_DATA)
+    }
+
+    @Benchmark
+    fun lex(): Int {
+        var tokens = 0
+        val lexer = KotlinLexer()
+        for (file in corpus) {
+            lexer.start(file.text)
+            while (lexer.tokenType != null) {
+                tokens++
+                lexer.advance()
+            }
+        }
+        return tokens
+    }
+
+    @Benchmark
+    fun parse(): Int {
+        var nodes = 0
+        for (file in corpus) {
+            // Blocks of functions are parsed lazily, so the whole tree is traversed to parse them
+            nodes += countNodes(createFile(file).node)
+        }
+        return nodes
+    }
+
+    private fun countNodes(node: ASTNode): Int {
+        var count = 1
+        var child = node.firstChildNode
+        while (child != null) {
+            count += countNodes(child)
+            child = child.treeNext
+        }
+        return count
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.jetbrains.kotlin.descriptors.CallableDescriptor
+import org.jetbrains.kotlin.descriptors.ModuleDescriptor
+import org.jetbrains.kotlin.descriptors.findClassAcrossModuleDependencies
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.resolve.lazy.JvmResolveUtil
+import org.jetbrains.kotlin.resolve.scopes.MemberScope
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Deserializes members of classes and packages of the standard library (which is the corpus here, since it's the largest
+ * library deserialized by every compilation). Deserialized descriptors are cached in the module,
+ * so each invocation uses a new module created by the analysis of an empty file.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+open class MemberDeserializerBenchmark : AbstractEnvironmentBenchmark() {
+    private lateinit var emptyFile: KtFile
+    private lateinit var module: ModuleDescriptor
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        createJvmEnvironment(ConfigurationKind.ALL)
+        emptyFile = createFile(CorpusFile("empty.kt", ""))
+    }
+
+    @Setup(Level.Invocation)
+    fun createModule() {
+        module = JvmResolveUtil.analyze(emptyFile, environment).moduleDescriptor
+    }
+
+    @Benchmark
+    fun deserializeMembers(): Int {
+        var members = 0
+        for (packageName in PACKAGES) {
+            members += module.getPackage(FqName(packageName)).memberScope.resolveMembers()
+        }
+        for (className in CLASSES) {
+            val classDescriptor = module.findClassAcrossModuleDependencies(ClassId.topLevel(FqName(className))) ?: continue
+            members += classDescriptor.unsubstitutedMemberScope.resolveMembers()
+        }
+        return members
+    }
+
+    private fun MemberScope.resolveMembers(): Int {
+        var members = 0
+        for (descriptor in getContributedDescriptors()) {
+            if (descriptor is CallableDescriptor) {
+                descriptor.returnType
+                descriptor.valueParameters.forEach { it.type }
+                descriptor.typeParameters.forEach { it.upperBounds }
+            }
+            members++
+        }
+        return members
+    }
+
+    companion object {
+        private val PACKAGES = listOf("kotlin", "kotlin.collections", "kotlin.text", "kotlin.sequences", "kotlin.ranges", "kotlin.io")
+
+        private val CLASSES = listOf(
+            "kotlin.String", "kotlin.Int", "kotlin.Array", "kotlin.collections.List", "kotlin.collections.Map",
+            "kotlin.collections.AbstractList", "kotlin.collections.AbstractMutableList", "kotlin.collections.IndexedValue",
+            "kotlin.sequences.Sequence", "kotlin.text.Regex", "kotlin.text.MatchResult", "kotlin.ranges.IntRange",
+            "kotlin.ranges.CharProgression", "kotlin.io.FileTreeWalk", "kotlin.Pair", "kotlin.Triple", "kotlin.Result", "kotlin.Lazy"
+        )
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.jetbrains.kotlin.codegen.ClassBuilderFactories
+import org.jetbrains.kotlin.codegen.GenerationUtils
+import org.jetbrains.kotlin.codegen.optimization.OptimizationMethodVisitor
+import org.jetbrains.kotlin.codegen.state.GenerationState
+import org.jetbrains.kotlin.config.JVMConfigurationKeys
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.org.objectweb.asm.ClassReader
+import org.jetbrains.org.objectweb.asm.ClassVisitor
+import org.jetbrains.org.objectweb.asm.MethodVisitor
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Runs [OptimizationMethodVisitor] on all methods of unoptimized bytecode of box tests in
+ * `compiler/testData/codegen/box/controlStructures` and `compiler/testData/codegen/box/boxingOptimization`.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+open class MethodOptimizationBenchmark : AbstractEnvironmentBenchmark() {
+    private lateinit var classes: List<ByteArray>
+    private lateinit var state: GenerationState
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        createJvmEnvironment(ConfigurationKind.ALL)
+        val configuration = environment.configuration.copy().apply {
+            put(JVMConfigurationKeys.DISABLE_OPTIMIZATION, true)
+        }
+
+        val corpus = (loadCorpus(CONTROL_STRUCTURES_TEST_DATA) + loadCorpus(BOXING_OPTIMIZATION_TEST_DATA)).filter(::isSingleFileJvmBoxTest)
+        // Each file is compiled separately, so that a test which doesn't compile in this environment is skipped
+        val states = corpus.mapNotNull { file ->
+            try {
+                GenerationUtils.compileFiles(
+                    listOf(createFile(file)), configuration, ClassBuilderFactories.BINARIES, environment::createPackagePartProvider
+                )
+            } catch (e: Throwable) {
+                null
+            }
+        }
+
+        classes = states.flatMap { state ->
+            state.factory.asList().filter { it.relativePath.endsWith(".class") }.map { it.asByteArray() }
+        }
+
+        // Optimizations only use the configuration and a few services of the state, which don't depend on the analyzed files
+        val first = states.first()
+        state = GenerationState.Builder(
+            first.project, ClassBuilderFactories.BINARIES, first.module, first.bindingContext, first.files, environment.configuration
+        ).build()
+    }
+
+    @Benchmark
+    fun optimizeMethods(): Int {
+        val methods = ArrayList<MethodNode>()
+        for (bytes in classes) {
+            ClassReader(bytes).accept(object : ClassVisitor(Opcodes.API_VERSION) {
+                override fun visitMethod(
+                    access: Int, name: String, desc: String, signature: String?, exceptions: Array<String>?
+                ): MethodVisitor {
+                    val method = MethodNode(Opcodes.API_VERSION, access, name, desc, signature, exceptions)
+                    methods.add(method)
+                    return OptimizationMethodVisitor(method, state, null, access, name, desc, signature, exceptions)
+                }
+            }, ClassReader.SKIP_FRAMES)
+        }
+        return methods.sumBy { it.instructions.size() }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.jetbrains.kotlin.storage.LockBasedStorageManager
+import org.jetbrains.kotlin.storage.MemoizedFunctionToNotNull
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Memoized functions and lazy values of [LockBasedStorageManager], with the global lock (`locking`)
+ * and without it (`concurrent`, see [LockBasedStorageManager.createConcurrent]).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+open class StorageManagerBenchmark {
+    @Param("locking", "concurrent")
+    lateinit var storageManagerKind: String
+
+    private lateinit var storageManager: LockBasedStorageManager
+    private lateinit var memoizedFunction: MemoizedFunctionToNotNull<Int, String>
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        storageManager = createStorageManager()
+        memoizedFunction = storageManager.createMemoizedFunction { it.toString() }
+        for (key in 0 until KEYS) {
+            memoizedFunction(key)
+        }
+    }
+
+    private fun createStorageManager(): LockBasedStorageManager = when (storageManagerKind) {
+        "locking" -> LockBasedStorageManager("benchmark")
+        "concurrent" -> LockBasedStorageManager.createConcurrent("benchmark", LockBasedStorageManager.ExceptionHandlingStrategy.THROW)
+        else -> error("Unknown storage manager kind: $storageManagerKind")
+    }
+
+    @Benchmark
+    fun memoizedFunctionHits(): Int {
+        var length = 0
+        for (key in 0 until KEYS) {
+            length += memoizedFunction(key).length
+        }
+        return length
+    }
+
+    @Benchmark
+    @Threads(4)
+    fun memoizedFunctionHitsFromFourThreads(): Int = memoizedFunctionHits()
+
+    @Benchmark
+    fun memoizedFunctionFill(): Int {
+        val function = storageManager.createMemoizedFunction<Int, String> { it.toString() }
+        var length = 0
+        for (key in 0 until KEYS) {
+            length += function(key).length
+        }
+        return length
+    }
+
+    @Benchmark
+    fun lazyValues(): Int {
+        var sum = 0
+        for (i in 0 until KEYS) {
+            sum += storageManager.createLazyValue { i }()
+        }
+        return sum
+    }
+
+    companion object {
+        private const val KEYS = 1000
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.resolve.lazy.JvmResolveUtil
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.types.KotlinType
+import org.jetbrains.kotlin.types.checker.NewKotlinTypeChecker
+import org.jetbrains.kotlin.types.isError
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Checks subtyping between pairs of expression types of box tests in `compiler/testData/codegen/box/controlStructures`.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+open class TypeCheckerBenchmark : AbstractEnvironmentBenchmark() {
+    private lateinit var types: List<KotlinType>
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        createJvmEnvironment(ConfigurationKind.ALL)
+        val files = loadCorpus(CONTROL_STRUCTURES_TEST_DATA).filter(::isSingleFileJvmBoxTest).map(::createFile)
+        val bindingContext = JvmResolveUtil.analyze(files, environment).bindingContext
+        types = bindingContext.getSliceContents(BindingContext.EXPRESSION_TYPE_INFO).values
+            .mapNotNull { it.type?.takeUnless(KotlinType::isError) }
+            .distinct()
+            .sortedBy { it.toString() }
+    }
+
+    @Benchmark
+    fun isSubtypeOf(): Int {
+        var subtypes = 0
+        val size = types.size
+        for (i in 0 until size) {
+            if (NewKotlinTypeChecker.Default.isSubtypeOf(types[i], types[(i * 31 + 17) % size])) {
+                subtypes++
+            }
+        }
+        return subtypes
+    }
+}
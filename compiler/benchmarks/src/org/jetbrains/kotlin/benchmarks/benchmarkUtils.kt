@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.util.Disposer
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.io.File
+
+// Corpora are fixed directories of compiler/testData, so that results of different runs are comparable.
+// Benchmarks are run with the repository root as the working directory.
+internal const val PSI_TEST_DATA = "compiler/testData/psi"
+internal const val CONTROL_STRUCTURES_TEST_DATA = "compiler/testData/codegen/box/controlStructures"
+internal const val BOXING_OPTIMIZATION_TEST_DATA = "compiler/testData/codegen/box/boxingOptimization"
+internal const val FULL_RUNTIME_KLIB = "compiler/ir/serialization.js/build/fullRuntime/klib"
+
+internal class CorpusFile(val name: String, val text: String)
+
+internal fun loadCorpus(path: String): List<CorpusFile> {
+    val root = File(path)
+    if (!root.isDirectory) error("Corpus not found: ${root.absolutePath}; benchmarks should be run from the repository root")
+
+    return root.walkTopDown()
+        .filter { it.isFile && it.extension == "kt" }
+        .sortedBy { it.path }
+        .map { CorpusFile(it.name, KotlinTestUtils.doLoadFile(it)) }
+        .toList()
+}
+
+// Box tests with several files or modules, or those not supported by the JVM backend, are skipped
+internal fun isSingleFileJvmBoxTest(file: CorpusFile): Boolean =
+    listOf("// IGNORE_BACKEND", "// TARGET_BACKEND", "// FILE:", "// MODULE:").none { file.text.contains(it) }
+
+@State(Scope.Benchmark)
+abstract class AbstractEnvironmentBenchmark {
+    protected val disposable: Disposable = Disposer.newDisposable()
+
+    protected lateinit var environment: KotlinCoreEnvironment
+
+    protected fun createJvmEnvironment(configurationKind: ConfigurationKind) {
+        environment = KotlinTestUtils.createEnvironmentWithMockJdkAndIdeaAnnotations(disposable, configurationKind)
+    }
+
+    internal fun createFile(file: CorpusFile): KtFile =
+        KotlinTestUtils.createFile(file.name, file.text, environment.project)
+
+    @TearDown(Level.Trial)
+    fun disposeEnvironment() {
+        Disposer.dispose(disposable)
+    }
+}
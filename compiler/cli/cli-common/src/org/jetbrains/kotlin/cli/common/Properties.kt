@@ -18,6 +18,12 @@ package org.jetbrains.kotlin.cli.common
 
 val KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY = "kotlin.environment.keepalive"
 
+// number of project environments prepared in advance while the application environment is kept alive, none by default
+val KOTLIN_COMPILER_ENVIRONMENT_POOL_SIZE_PROPERTY = "kotlin.environment.pool.size"
+
+// memory limit in bytes, which the used memory should stay well below when project environments are prepared, the max heap by default
+val KOTLIN_COMPILER_ENVIRONMENT_POOL_MEMORY_LIMIT_PROPERTY = "kotlin.environment.pool.memory.limit"
+
 
 fun String?.toBooleanLenient(): Boolean? = when (this?.toLowerCase()) {
     null -> false
@@ -42,6 +42,13 @@ class K2JSDceArguments : CommonToolArguments() {
     )
     var printReachabilityInfo: Boolean by FreezableVar(false)
 
+    @Argument(
+            value = "-Xthreads",
+            valueDescription = "<N>",
+            description = "Number of threads to parse input files and write output files with"
+    )
+    var threads: String? by NullableStringFreezableVar(null)
+
     @Argument(
             value = "-dev-mode",
             description = "Development mode: don't strip out any code, just copy dependencies"
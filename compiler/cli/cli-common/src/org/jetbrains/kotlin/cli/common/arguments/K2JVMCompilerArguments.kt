@@ -75,6 +75,67 @@ class K2JVMCompilerArguments : CommonCompilerArguments() {
     @Argument(value = "-Xuse-ir", description = "Use the IR backend")
     var useIR: Boolean by FreezableVar(false)
 
+    @Argument(
+        value = "-Xbackend-threads",
+        valueDescription = "<N>",
+        description = "Generate bytecode of different files in parallel on N threads (experimental, not supported with -Xuse-ir)"
+    )
+    var backendThreads: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xoptimization-threads",
+        valueDescription = "<N>",
+        description = "Run bytecode optimizations of different methods in parallel on N threads (experimental)"
+    )
+    var optimizationThreads: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xfir-resolve-threads",
+        valueDescription = "<N>",
+        description = "Resolve imports and bodies of different files in parallel on N threads when compiling with -Xuse-fir (experimental)"
+    )
+    var firResolveThreads: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xparsing-threads",
+        valueDescription = "<N>",
+        description = "Parse source files in parallel on N threads before analysis (experimental)"
+    )
+    var parsingThreads: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xcompact-binding-context",
+        description = "Keep the types, resolved calls and reference targets of expressions in a denser form during analysis (experimental)"
+    )
+    var compactBindingContext: Boolean by FreezableVar(false)
+
+    @Argument(
+        value = "-Xrelease-analysis-data",
+        description = "Release analysis results of each file once its classes are written to the output directory (experimental)"
+    )
+    var releaseAnalysisData: Boolean by FreezableVar(false)
+
+    @Argument(
+        value = "-Xinline-cache-size",
+        valueDescription = "<MB>",
+        description = "Cache up to MB megabytes of compiled inline function bodies, and share them with other compilations in the same process"
+    )
+    var inlineCacheSize: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xmetadata-cache-size",
+        valueDescription = "<MB>",
+        description = "Cache up to MB megabytes of parsed metadata of compiled Kotlin classes, and share it with other compilations in the same process"
+    )
+    var metadataCacheSize: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xclasspath-package-tables",
+        valueDescription = "<path>",
+        description = "Keep tables of packages in classpath jars in the given directory and reuse them in subsequent compilations"
+    )
+    var classpathPackageTablesDirectory: String? by NullableStringFreezableVar(null)
+
     @Argument(value = "-Xmodule-path", valueDescription = "<path>", description = "Paths where to find Java 9+ modules")
     var javaModulePath: String? by NullableStringFreezableVar(null)
 
@@ -70,6 +70,12 @@ class K2JSDce : CLITool<K2JSDceArguments>() {
 
     private fun performDce(files: List<InputFile>, arguments: K2JSDceArguments, messageCollector: MessageCollector): ExitCode {
         val includedDeclarations = arguments.declarationsToKeep.orEmpty().toSet()
+        val threadCount = arguments.threads?.let { threads ->
+            threads.toIntOrNull()?.takeIf { it > 0 } ?: run {
+                messageCollector.report(CompilerMessageSeverity.ERROR, "number of threads should be a positive integer: $threads")
+                return ExitCode.COMPILATION_ERROR
+            }
+        } ?: 1
 
         val logConsumer = { level: DCELogLevel, message: String ->
             val severity = when (level) {
@@ -80,7 +86,7 @@ class K2JSDce : CLITool<K2JSDceArguments>() {
             messageCollector.report(severity, message)
         }
 
-        val dceResult = DeadCodeElimination.run(files, includedDeclarations, logConsumer)
+        val dceResult = DeadCodeElimination.run(files, includedDeclarations, threadCount, logConsumer)
         if (dceResult.status == DeadCodeEliminationStatus.FAILED) return ExitCode.COMPILATION_ERROR
         val nodes = dceResult.reachableNodes.filterTo(mutableSetOf()) { it.reachable }
 
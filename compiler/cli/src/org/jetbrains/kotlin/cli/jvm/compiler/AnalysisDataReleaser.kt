@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.compiler
+
+import org.jetbrains.kotlin.fileClasses.JvmFileClassUtil
+import org.jetbrains.kotlin.lexer.KtTokens
+import org.jetbrains.kotlin.psi.*
+import org.jetbrains.kotlin.psi.psiUtil.anyDescendantOfType
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.resolve.BindingTraceContext
+import org.jetbrains.kotlin.utils.addIfNotNull
+import java.io.File
+
+/**
+ * Drops the analysis results recorded for the expressions and calls of the source files whose classes are already generated
+ * and written, so that they don't stay in memory until the whole module is generated.
+ *
+ * Declarations are kept, because the code generated for other files refers to their descriptors. Files which contain
+ * inline or expected declarations, or parts of multifile classes, are never released: the code of their bodies is generated
+ * again from the source when they are inlined, when default values of actual functions are generated, or when the facade is built.
+ *
+ * Removal from the trace copies the retained entries, so the files are released in batches of [batchSize].
+ */
+class AnalysisDataReleaser private constructor(
+    private val trace: BindingTraceContext,
+    sourceFiles: Collection<KtFile>,
+    private val batchSize: Int
+) {
+    // keys are the same as the source files of the generated output, see ClassFileFactory
+    private val releasableFiles: MutableMap<File, KtFile> =
+        sourceFiles.filter(::isReleasable).mapNotNull { file -> file.virtualFile?.let { File(it.path) to file } }.toMap(hashMapOf())
+
+    private val pending = hashSetOf<KtFile>()
+
+    fun filesGenerated(files: Collection<File>) {
+        for (file in files) {
+            pending.addIfNotNull(releasableFiles.remove(file))
+        }
+        if (pending.size < batchSize) return
+
+        val released = HashSet(pending)
+        pending.clear()
+        trace.removeEntries { key -> getFile(key) in released }
+    }
+
+    private fun getFile(key: Any?): KtFile? {
+        val element = when (key) {
+            is Call -> key.callElement
+            is KtDeclaration -> return null
+            is KtExpression -> key
+            else -> return null
+        }
+        return element.containingFile as? KtFile
+    }
+
+    companion object {
+        // the number of batches the source files are released in, which limits the number of copies of the trace
+        private const val RELEASE_BATCHES = 8
+
+        fun create(context: BindingContext, sourceFiles: Collection<KtFile>): AnalysisDataReleaser? {
+            val trace = BindingTraceContext.getTrace(context) ?: return null
+            return AnalysisDataReleaser(trace, sourceFiles, (sourceFiles.size / RELEASE_BATCHES).coerceAtLeast(1))
+        }
+
+        private fun isReleasable(file: KtFile): Boolean {
+            if (JvmFileClassUtil.getFileClassInfoNoResolve(file).withJvmMultifileClass) return false
+
+            return !file.anyDescendantOfType<KtModifierListOwner> { declaration ->
+                declaration.hasModifier(KtTokens.INLINE_KEYWORD) || declaration.hasModifier(KtTokens.EXPECT_KEYWORD) ||
+                        declaration.hasModifier(KtTokens.HEADER_KEYWORD)
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.jetbrains.kotlin.psi.KtPsiUtil
 import org.jetbrains.kotlin.resolve.BindingContext
 import org.jetbrains.kotlin.resolve.BindingTrace
 import org.jetbrains.kotlin.resolve.BindingTraceContext
+import org.jetbrains.kotlin.resolve.BindingTraceFilter
 import org.jetbrains.kotlin.resolve.CodeAnalyzerInitializer
 import org.jetbrains.kotlin.resolve.lazy.KotlinCodeAnalyzer
 import org.jetbrains.kotlin.util.slicedMap.ReadOnlySlice
@@ -43,7 +44,7 @@ class CliTraceHolder : CodeAnalyzerInitializer {
 
 
 // TODO: needs better name + list of keys to skip somewhere
-class NoScopeRecordCliBindingTrace : CliBindingTrace() {
+class NoScopeRecordCliBindingTrace(compactStorage: Boolean = false) : CliBindingTrace(compactStorage) {
     override fun <K, V> record(slice: WritableSlice<K, V>, key: K, value: V) {
         if (slice == BindingContext.LEXICAL_SCOPE || slice == BindingContext.DATA_FLOW_INFO_BEFORE) {
             // In the compiler there's no need to keep scopes
@@ -57,7 +58,10 @@ class NoScopeRecordCliBindingTrace : CliBindingTrace() {
     }
 }
 
-open class CliBindingTrace @TestOnly constructor() : BindingTraceContext() {
+open class CliBindingTrace(compactStorage: Boolean) : BindingTraceContext(BindingTraceFilter.ACCEPT_ALL, false, compactStorage) {
+    @TestOnly
+    constructor() : this(false)
+
     private var kotlinCodeAnalyzer: KotlinCodeAnalyzer? = null
 
     override fun toString(): String {
@@ -205,6 +205,8 @@ class KotlinCoreEnvironment private constructor(
 
         sourceFiles.sortBy { it.virtualFile.path }
 
+        parseSourceFilesInParallel(configuration, sourceFiles, configuration.get(JVMConfigurationKeys.PARALLEL_PARSING_THREADS, 1))
+
         val jdkHome = configuration.get(JVMConfigurationKeys.JDK_HOME)
         val jrtFileSystem = VirtualFileManager.getInstance().getFileSystem(StandardFileSystems.JRT_PROTOCOL)
         val javaModuleFinder = CliJavaModuleFinder(jdkHome?.path?.let { path ->
@@ -242,7 +244,10 @@ class KotlinCoreEnvironment private constructor(
 
         // REPL and kapt2 update classpath dynamically
         rootsIndex = JvmDependenciesDynamicCompoundIndex().apply {
-            addIndex(JvmDependenciesIndexImpl(roots))
+            val packageTableStorage = configuration.get(JVMConfigurationKeys.CLASSPATH_PACKAGE_TABLES_DIRECTORY)?.let {
+                JarPackageTableStorage.getInstance(it)
+            }
+            addIndex(JvmDependenciesIndexImpl(roots, packageTableStorage))
             updateClasspathFromRootsIndex(this)
         }
 
@@ -428,7 +433,7 @@ class KotlinCoreEnvironment private constructor(
             parentDisposable: Disposable, configuration: CompilerConfiguration, configFiles: EnvironmentConfigFiles
         ): KotlinCoreEnvironment {
             val appEnv = getOrCreateApplicationEnvironmentForProduction(parentDisposable, configuration)
-            val projectEnv = ProjectEnvironment(parentDisposable, appEnv)
+            val projectEnv = ProjectEnvironmentPool.take(parentDisposable, appEnv) ?: ProjectEnvironment(parentDisposable, appEnv)
             val environment = KotlinCoreEnvironment(projectEnv, configuration, configFiles)
 
             synchronized(APPLICATION_LOCK) {
@@ -503,6 +508,7 @@ class KotlinCoreEnvironment private constructor(
             synchronized(APPLICATION_LOCK) {
                 val environment = ourApplicationEnvironment ?: return
                 ourApplicationEnvironment = null
+                ProjectEnvironmentPool.clear()
                 Disposer.dispose(environment.parentDisposable)
                 ZipHandler.clearFileAccessorCache()
             }
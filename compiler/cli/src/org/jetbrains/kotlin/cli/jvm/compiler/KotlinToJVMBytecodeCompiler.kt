@@ -38,6 +38,7 @@ import org.jetbrains.kotlin.cli.common.ExitCode
 import org.jetbrains.kotlin.cli.common.checkKotlinPackageUsage
 import org.jetbrains.kotlin.cli.common.config.addKotlinSourceRoot
 import org.jetbrains.kotlin.cli.common.messages.AnalyzerWithCompilerReport
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity.LOGGING
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity.OUTPUT
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity.WARNING
 import org.jetbrains.kotlin.cli.common.messages.MessageCollector
@@ -62,6 +63,7 @@ import org.jetbrains.kotlin.fir.service
 import org.jetbrains.kotlin.idea.MainFunctionDetector
 import org.jetbrains.kotlin.javac.JavacWrapper
 import org.jetbrains.kotlin.load.kotlin.ModuleVisibilityManager
+import org.jetbrains.kotlin.load.kotlin.SharedJvmMetadataCache
 import org.jetbrains.kotlin.modules.Module
 import org.jetbrains.kotlin.modules.TargetId
 import org.jetbrains.kotlin.name.FqName
@@ -102,13 +104,17 @@ object KotlinToJVMBytecodeCompiler {
         outputFiles.writeAll(outputDir, messageCollector, reportOutputFiles)
     }
 
-    private fun createOutputFilesFlushingCallbackIfPossible(configuration: CompilerConfiguration): GenerationStateEventCallback {
+    private fun createOutputFilesFlushingCallbackIfPossible(
+        configuration: CompilerConfiguration,
+        analysisDataReleaser: AnalysisDataReleaser? = null
+    ): GenerationStateEventCallback {
         if (configuration.get(JVMConfigurationKeys.OUTPUT_DIRECTORY) == null) {
             return GenerationStateEventCallback.DO_NOTHING
         }
         return GenerationStateEventCallback { state ->
             val currentOutput = SimpleOutputFileCollection(state.factory.currentOutput)
             writeOutput(configuration, currentOutput, null)
+            analysisDataReleaser?.filesGenerated(currentOutput.asList().flatMap { it.sourceFiles })
             if (!configuration.get(JVMConfigurationKeys.RETAIN_OUTPUT_IN_MEMORY, false)) {
                 state.factory.releaseGeneratedOutput()
             }
@@ -334,7 +340,7 @@ object KotlinToJVMBytecodeCompiler {
                 firFile
             }.also {
                 try {
-                    resolveTransformer.processFiles(it)
+                    resolveTransformer.processFiles(it, moduleConfiguration.get(JVMConfigurationKeys.PARALLEL_FIR_RESOLVE_THREADS, 1))
                 } catch (e: Exception) {
                     throw e
                 }
@@ -555,7 +561,7 @@ object KotlinToJVMBytecodeCompiler {
             TopDownAnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
                 project,
                 sourceFiles,
-                NoScopeRecordCliBindingTrace(),
+                NoScopeRecordCliBindingTrace(environment.configuration.getBoolean(JVMConfigurationKeys.COMPACT_BINDING_CONTEXT)),
                 environment.configuration,
                 environment::createPackagePartProvider,
                 sourceModuleSearchScope = scope
@@ -563,6 +569,9 @@ object KotlinToJVMBytecodeCompiler {
         }
 
         performanceManager?.notifyAnalysisFinished(sourceFiles.size, environment.countLinesOfCode(sourceFiles), targetDescription)
+        environment.configuration.get(JVMConfigurationKeys.METADATA_CACHE_SIZE)?.let { size ->
+            collector.report(LOGGING, "Metadata cache: ${SharedJvmMetadataCache.getShared(size * 1024L * 1024L).statistics}")
+        }
 
         val analysisResult = analyzerWithCompilerReport.analysisResult
 
@@ -609,6 +618,12 @@ object KotlinToJVMBytecodeCompiler {
     ): GenerationState {
         val isIR = configuration.getBoolean(JVMConfigurationKeys.IR) ||
                 configuration.getBoolean(CommonConfigurationKeys.USE_FIR)
+        // In the parallel mode other files would still be generated while the analysis data is removed
+        val analysisDataReleaser =
+            if (configuration.getBoolean(JVMConfigurationKeys.RELEASE_ANALYSIS_DATA) && !isIR &&
+                configuration.get(JVMConfigurationKeys.PARALLEL_BACKEND_THREADS, 1) <= 1
+            ) AnalysisDataReleaser.create(result.bindingContext, sourceFiles)
+            else null
         val generationState = GenerationState.Builder(
             environment.project,
             ClassBuilderFactories.BINARIES,
@@ -623,7 +638,7 @@ object KotlinToJVMBytecodeCompiler {
                 ) else DefaultCodegenFactory
             )
             .withModule(module)
-            .onIndependentPartCompilationEnd(createOutputFilesFlushingCallbackIfPossible(configuration))
+            .onIndependentPartCompilationEnd(createOutputFilesFlushingCallbackIfPossible(configuration, analysisDataReleaser))
             .build()
 
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
@@ -638,6 +653,7 @@ object KotlinToJVMBytecodeCompiler {
             environment.countLinesOfCode(sourceFiles),
             additionalDescription = if (module != null) "target " + module.getModuleName() + "-" + module.getModuleType() + " " else ""
         )
+        environment.messageCollector.report(LOGGING, "Inline cache: ${generationState.inlineCache.statistics}")
 
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
 
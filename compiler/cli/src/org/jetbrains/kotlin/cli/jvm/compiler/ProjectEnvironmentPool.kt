@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.compiler
+
+import com.intellij.core.JavaCoreApplicationEnvironment
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.util.Disposer
+import org.jetbrains.kotlin.cli.common.KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY
+import org.jetbrains.kotlin.cli.common.KOTLIN_COMPILER_ENVIRONMENT_POOL_MEMORY_LIMIT_PROPERTY
+import org.jetbrains.kotlin.cli.common.KOTLIN_COMPILER_ENVIRONMENT_POOL_SIZE_PROPERTY
+import org.jetbrains.kotlin.cli.common.toBooleanLenient
+import java.util.*
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Keeps a few project environments created in advance on a background thread, so that a compilation in a long-living process
+ * (e.g. the compile daemon) does not have to wait for the project, its extension areas and core services to be set up.
+ *
+ * Environments are never reused: the project holds PSI, file manager and plugin extensions bound to a particular compilation,
+ * so each compilation takes a fresh one from the pool and disposes it together with its own root disposable.
+ *
+ * The pool is only active when the application environment is kept alive, see [KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY],
+ * and its size is configured with [KOTLIN_COMPILER_ENVIRONMENT_POOL_SIZE_PROPERTY]. Environments are not prepared when the used memory
+ * is close to the limit from [KOTLIN_COMPILER_ENVIRONMENT_POOL_MEMORY_LIMIT_PROPERTY], or to the max heap if it is not set.
+ */
+internal object ProjectEnvironmentPool {
+    private val LOG = Logger.getInstance(ProjectEnvironmentPool::class.java)
+
+    // environments are not prepared when less than this part of the memory limit is available, not to push the process towards OOM
+    private const val MIN_FREE_MEMORY_RATIO = 0.25
+
+    private class PooledEnvironment(val disposable: Disposable, val environment: KotlinCoreEnvironment.ProjectEnvironment)
+
+    private val pooled = ArrayDeque<PooledEnvironment>()
+    private var scheduled = 0
+
+    private val executor: ExecutorService by lazy {
+        Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "Kotlin project environment pool").apply { isDaemon = true }
+        }
+    }
+
+    private val poolSize: Int
+        get() {
+            if (System.getProperty(KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY).toBooleanLenient() != true) return 0
+            return System.getProperty(KOTLIN_COMPILER_ENVIRONMENT_POOL_SIZE_PROPERTY)?.toIntOrNull()?.coerceAtLeast(0) ?: 0
+        }
+
+    /**
+     * Returns a prepared environment for [applicationEnvironment], which will be disposed with [parentDisposable],
+     * or `null` if none is available. Schedules preparation of the environments for subsequent calls in any case.
+     */
+    fun take(parentDisposable: Disposable, applicationEnvironment: JavaCoreApplicationEnvironment): KotlinCoreEnvironment.ProjectEnvironment? {
+        val size = poolSize
+        if (size == 0) return null
+
+        val result = synchronized(this) { pooled.pollFirst() }
+        schedule(applicationEnvironment, size)
+
+        if (result == null) return null
+        if (result.environment.environment !== applicationEnvironment) {
+            // the application environment was recreated after this one has been prepared
+            Disposer.dispose(result.disposable)
+            return null
+        }
+
+        Disposer.register(parentDisposable, result.disposable)
+        return result.environment
+    }
+
+    fun clear() {
+        val environments = synchronized(this) {
+            pooled.toList().also { pooled.clear() }
+        }
+        environments.forEach { Disposer.dispose(it.disposable) }
+    }
+
+    private fun schedule(applicationEnvironment: JavaCoreApplicationEnvironment, size: Int) {
+        val count = synchronized(this) {
+            (size - pooled.size - scheduled).coerceAtLeast(0).also { scheduled += it }
+        }
+
+        repeat(count) {
+            executor.execute {
+                try {
+                    if (hasEnoughFreeMemory()) {
+                        prepare(applicationEnvironment)
+                    }
+                } catch (e: Throwable) {
+                    LOG.warn("Unable to prepare project environment", e)
+                } finally {
+                    synchronized(this) { scheduled-- }
+                }
+            }
+        }
+    }
+
+    private fun prepare(applicationEnvironment: JavaCoreApplicationEnvironment) {
+        if (KotlinCoreEnvironment.applicationEnvironment !== applicationEnvironment) return
+
+        val disposable = Disposer.newDisposable()
+        val environment = try {
+            KotlinCoreEnvironment.ProjectEnvironment(disposable, applicationEnvironment)
+        } catch (e: Throwable) {
+            Disposer.dispose(disposable)
+            throw e
+        }
+
+        synchronized(this) {
+            pooled.addLast(PooledEnvironment(disposable, environment))
+        }
+    }
+
+    private fun hasEnoughFreeMemory(): Boolean {
+        val runtime = Runtime.getRuntime()
+        val limit = System.getProperty(KOTLIN_COMPILER_ENVIRONMENT_POOL_MEMORY_LIMIT_PROPERTY)?.toLongOrNull()
+            ?.takeIf { it > 0 }?.coerceAtMost(runtime.maxMemory())
+            ?: runtime.maxMemory()
+        val used = runtime.totalMemory() - runtime.freeMemory()
+        return limit - used >= limit * MIN_FREE_MEMORY_RATIO
+    }
+}
@@ -11,6 +11,7 @@ import com.intellij.openapi.vfs.StandardFileSystems
 import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.openapi.vfs.VirtualFileManager
 import com.intellij.psi.PsiManager
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor
 import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys
 import org.jetbrains.kotlin.cli.common.config.KotlinSourceRoot
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation
@@ -21,6 +22,8 @@ import org.jetbrains.kotlin.extensions.PreprocessedFileCreator
 import org.jetbrains.kotlin.idea.KotlinFileType
 import org.jetbrains.kotlin.psi.KtFile
 import org.jetbrains.kotlin.resolve.multiplatform.isCommonSource
+import org.jetbrains.kotlin.utils.mapInParallel
+import org.jetbrains.kotlin.utils.withThreadPool
 import java.io.File
 
 fun CompilerConfiguration.report(severity: CompilerMessageSeverity, message: String, location: CompilerMessageLocation? = null) {
@@ -79,4 +82,26 @@ fun createSourceFilesFromSourceRoots(
     }
 
     return result
-}
\ No newline at end of file
+}
+
+/**
+ * Builds the syntax trees of [files] on [threadCount] threads. Otherwise each file is lexed and parsed on the first access
+ * to its PSI, i.e. one by one on the analysis thread. Parsing of different files is independent, each file holds its own lock.
+ *
+ * The whole tree of each file is walked, since the file node and the blocks in it are only parsed on the first access to their children.
+ */
+fun parseSourceFilesInParallel(configuration: CompilerConfiguration, files: List<KtFile>, threadCount: Int) {
+    if (threadCount <= 1 || files.size <= 1) return
+
+    val start = System.currentTimeMillis()
+    withThreadPool(threadCount) { pool ->
+        files.mapInParallel(pool) { file ->
+            file.accept(object : PsiRecursiveElementWalkingVisitor() {})
+        }
+    }
+
+    configuration.report(
+        CompilerMessageSeverity.LOGGING,
+        "Parsed ${files.size} files on $threadCount threads in ${System.currentTimeMillis() - start} ms"
+    )
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.index
+
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.ZipFile
+
+/**
+ * Names of all packages (directories) in a jar, sorted by their UTF-8 bytes, so that a lookup is a binary search in the mapped file.
+ *
+ * Layout: header (see [JarPackageTableStorage.writeTable]), then `count + 1` offsets of the names relative to the start of names,
+ * then the names themselves, e.g. `org`, `org/jetbrains`.
+ */
+class JarPackageTable internal constructor(private val buffer: ByteBuffer, private val namesStart: Int, private val count: Int) {
+    private val offsetsStart = namesStart - (count + 1) * 4
+
+    val size: Int get() = count
+
+    /**
+     * @param packagePath package name with '/' as a separator, empty for the root package
+     */
+    fun containsPackage(packagePath: String): Boolean {
+        if (packagePath.isEmpty()) return true
+
+        val key = packagePath.toByteArray(Charsets.UTF_8)
+        var low = 0
+        var high = count - 1
+        while (low <= high) {
+            val middle = (low + high) ushr 1
+            val comparison = compareName(middle, key)
+            when {
+                comparison < 0 -> low = middle + 1
+                comparison > 0 -> high = middle - 1
+                else -> return true
+            }
+        }
+        return false
+    }
+
+    private fun compareName(index: Int, key: ByteArray): Int {
+        val start = namesStart + buffer.getInt(offsetsStart + index * 4)
+        val length = namesStart + buffer.getInt(offsetsStart + (index + 1) * 4) - start
+        for (i in 0 until minOf(length, key.size)) {
+            val comparison = (buffer.get(start + i).toInt() and 0xFF) - (key[i].toInt() and 0xFF)
+            if (comparison != 0) return comparison
+        }
+        return length - key.size
+    }
+}
+
+/**
+ * Keeps [JarPackageTable]s of classpath jars in [directory], so that they are built once per jar and then reused by all compilations
+ * until the jar is modified. Tables which have been read are also kept in memory while the process (e.g. the compile daemon) is alive.
+ *
+ * Thread-safe; a table file is written to a temporary file first, so concurrent processes may share the same directory.
+ */
+class JarPackageTableStorage private constructor(private val directory: File) {
+    private class LoadedTable(val timestamp: Long, val length: Long, val table: JarPackageTable)
+
+    private val loadedTables = ConcurrentHashMap<String, LoadedTable>()
+
+    /**
+     * @return the package table of [jar], or `null` if it can't be read, in which case the jar should be traversed as usual
+     */
+    fun getPackageTable(jar: File): JarPackageTable? {
+        val path = jar.absolutePath
+        val timestamp = jar.lastModified()
+        val length = jar.length()
+        if (timestamp == 0L) return null
+
+        loadedTables[path]?.let { loaded ->
+            if (loaded.timestamp == timestamp && loaded.length == length) return loaded.table
+        }
+
+        val tableFile = File(directory, "${jar.name}-${Integer.toHexString(path.hashCode())}.packages")
+        val table = try {
+            readTable(tableFile, path, timestamp, length) ?: run {
+                writeTable(tableFile, path, timestamp, length, collectPackages(jar))
+                readTable(tableFile, path, timestamp, length)
+            }
+        } catch (e: IOException) {
+            null
+        } ?: return null
+
+        loadedTables[path] = LoadedTable(timestamp, length, table)
+        return table
+    }
+
+    private fun readTable(tableFile: File, path: String, timestamp: Long, length: Long): JarPackageTable? {
+        if (!tableFile.isFile) return null
+
+        val buffer = FileChannel.open(tableFile.toPath(), StandardOpenOption.READ).use { channel ->
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+        }
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null
+        if (buffer.getLong() != timestamp || buffer.getLong() != length) return null
+
+        val pathBytes = ByteArray(buffer.getInt().takeIf { it in 0..buffer.remaining() } ?: return null)
+        buffer.get(pathBytes)
+        if (String(pathBytes, Charsets.UTF_8) != path) return null
+
+        val count = buffer.getInt()
+        val namesStart = buffer.position() + (count + 1) * 4
+        if (count < 0 || namesStart > buffer.limit() || namesStart + buffer.getInt(namesStart - 4) != buffer.limit()) return null
+
+        return JarPackageTable(buffer, namesStart, count)
+    }
+
+    private fun writeTable(tableFile: File, path: String, timestamp: Long, length: Long, packages: Collection<String>) {
+        val names = packages.map { it.toByteArray(Charsets.UTF_8) }.sortedWith(UNSIGNED_BYTES_ORDER)
+
+        directory.mkdirs()
+        val temporaryFile = File.createTempFile(tableFile.name, ".tmp", directory)
+        try {
+            DataOutputStream(temporaryFile.outputStream().buffered()).use { output ->
+                output.writeInt(MAGIC)
+                output.writeInt(VERSION)
+                output.writeLong(timestamp)
+                output.writeLong(length)
+                val pathBytes = path.toByteArray(Charsets.UTF_8)
+                output.writeInt(pathBytes.size)
+                output.write(pathBytes)
+
+                output.writeInt(names.size)
+                var offset = 0
+                output.writeInt(offset)
+                for (name in names) {
+                    offset += name.size
+                    output.writeInt(offset)
+                }
+                names.forEach(output::write)
+            }
+            Files.move(temporaryFile.toPath(), tableFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+        } finally {
+            temporaryFile.delete()
+        }
+    }
+
+    private fun collectPackages(jar: File): Set<String> {
+        val packages = HashSet<String>()
+        ZipFile(jar).use { zip ->
+            for (entry in zip.entries()) {
+                var end = entry.name.lastIndexOf('/')
+                while (end > 0 && packages.add(entry.name.substring(0, end))) {
+                    end = entry.name.lastIndexOf('/', end - 1)
+                }
+            }
+        }
+        return packages
+    }
+
+    companion object {
+        private const val MAGIC = 0x4b4a5054 // "KJPT"
+        private const val VERSION = 1
+        private const val HEADER_SIZE = 4 + 4 + 8 + 8 + 4
+
+        private val UNSIGNED_BYTES_ORDER = Comparator<ByteArray> { a, b ->
+            for (i in 0 until minOf(a.size, b.size)) {
+                val comparison = (a[i].toInt() and 0xFF) - (b[i].toInt() and 0xFF)
+                if (comparison != 0) return@Comparator comparison
+            }
+            a.size - b.size
+        }
+
+        private val storages = ConcurrentHashMap<File, JarPackageTableStorage>()
+
+        @JvmStatic
+        fun getInstance(directory: File): JarPackageTableStorage =
+            storages.getOrPut(directory.absoluteFile) { JarPackageTableStorage(directory.absoluteFile) }
+    }
+}
@@ -18,18 +18,25 @@ package org.jetbrains.kotlin.cli.jvm.index
 
 import com.intellij.ide.highlighter.JavaClassFileType
 import com.intellij.ide.highlighter.JavaFileType
+import com.intellij.openapi.vfs.StandardFileSystems
 import com.intellij.openapi.vfs.VfsUtilCore
 import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.util.containers.IntArrayList
+import com.intellij.util.io.URLUtil
 import gnu.trove.THashMap
 import org.jetbrains.kotlin.name.ClassId
 import org.jetbrains.kotlin.name.FqName
+import java.io.File
 import java.util.*
 
 // speeds up finding files/classes in classpath/java source roots
-// NOT THREADSAFE, needs to be adapted/removed if we want compiler to be multithreaded
 // the main idea of this class is for each package to store roots which contains it to avoid excessive file system traversal
-class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
+// directories of a package are found one by one under a lock, handlers are invoked outside of it, so the index can be used by several threads
+// if packageTableStorage is given, jar roots which don't contain a package are skipped without traversing the jar
+class JvmDependenciesIndexImpl(
+    _roots: List<JavaRoot>,
+    private val packageTableStorage: JarPackageTableStorage? = null
+) : JvmDependenciesIndex {
     //these fields are computed based on _roots passed to constructor which are filled in later
     private val roots: List<JavaRoot> by lazy { _roots.toList() }
 
@@ -60,14 +67,22 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
 
     // holds the request and the result last time we searched for class
     // helps improve several scenarios, LazyJavaResolverContext.findClassInJava being the most important
+    @Volatile
     private var lastClassSearch: Pair<FindClassRequest, SearchResult>? = null
 
     override val indexedRoots by lazy { roots.asSequence() }
 
+    // guards "Cache" objects and package caches, which are filled while directories of a package are searched for
+    private val lock = Any()
+
     private val packageCache: Array<out MutableMap<String, VirtualFile?>> by lazy {
         Array(roots.size) { THashMap<String, VirtualFile?>() }
     }
 
+    private val packageTables: Array<JarPackageTable?> by lazy {
+        Array(roots.size) { rootIndex -> packageTableStorage?.let { findPackageTable(roots[rootIndex], it) } }
+    }
+
     override fun traverseDirectoriesInPackage(
         packageFqName: FqName,
         acceptedRootTypes: Set<JavaRoot.RootType>,
@@ -85,11 +100,12 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
         findClassGivenDirectory: (VirtualFile, JavaRoot.RootType) -> T?
     ): T? {
         // make a decision based on information saved from last class search
-        if (lastClassSearch?.first?.classId != classId) {
+        val lastSearch = lastClassSearch
+        if (lastSearch == null || lastSearch.first.classId != classId) {
             return search(FindClassRequest(classId, acceptedRootTypes), findClassGivenDirectory)
         }
 
-        val (cachedRequest, cachedResult) = lastClassSearch!!
+        val (cachedRequest, cachedResult) = lastSearch
         return when (cachedResult) {
             is SearchResult.NotFound -> {
                 val limitedRootTypes = acceptedRootTypes - cachedRequest.acceptedRootTypes
@@ -113,9 +129,41 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
         // a list of package sub names, ["org", "jb", "kotlin"]
         val packagesPath = request.packageFqName.pathSegments().map { it.identifier }
         // a list of caches corresponding to packages, [default, "org", "org.jb", "org.jb.kotlin"]
-        val caches = cachesPath(packagesPath)
+        val caches = synchronized(lock) { cachesPath(packagesPath) }
 
         var processedRootsUpTo = -1
+        while (true) {
+            val directory = synchronized(lock) {
+                findNextDirectory(request.packageFqName, packagesPath, caches, processedRootsUpTo)
+            } ?: break
+            processedRootsUpTo = directory.rootIndex
+
+            val root = roots[directory.rootIndex]
+            if (root.type in request.acceptedRootTypes) {
+                val result = handler(directory.file, root.type)
+                if (result != null) {
+                    if (request is FindClassRequest) {
+                        lastClassSearch = Pair(request, SearchResult.Found(directory.file, root))
+                    }
+                    return result
+                }
+            }
+        }
+
+        if (request is FindClassRequest) {
+            lastClassSearch = Pair(request, SearchResult.NotFound)
+        }
+        return null
+    }
+
+    // returns the directory corresponding to the package in the first root after processedRootsUpTo which contains it
+    private fun findNextDirectory(
+        packageFqName: FqName,
+        packagesPath: List<String>,
+        caches: List<Cache>,
+        processedRootsUpTo: Int
+    ): PackageDirectory? {
+        var processedUpTo = processedRootsUpTo
         // traverse caches starting from last, which contains most specific information
 
         // NOTE: indices manipulation instead of using caches.reversed() is here for performance reasons
@@ -123,26 +171,16 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
             val cacheRootIndices = caches[cacheIndex].rootIndices
             for (i in 0..cacheRootIndices.size() - 1) {
                 val rootIndex = cacheRootIndices[i]
-                if (rootIndex <= processedRootsUpTo) continue // roots with those indices have been processed by now
-
-                val directoryInRoot = travelPath(rootIndex, request.packageFqName, packagesPath, cacheIndex, caches) ?: continue
-                val root = roots[rootIndex]
-                if (root.type in request.acceptedRootTypes) {
-                    val result = handler(directoryInRoot, root.type)
-                    if (result != null) {
-                        if (request is FindClassRequest) {
-                            lastClassSearch = Pair(request, SearchResult.Found(directoryInRoot, root))
-                        }
-                        return result
-                    }
-                }
+                if (rootIndex <= processedUpTo) continue // roots with those indices have been processed by now
+
+                val directoryInRoot = travelPath(rootIndex, packageFqName, packagesPath, cacheIndex, caches) ?: continue
+                return PackageDirectory(directoryInRoot, rootIndex)
+            }
+            if (!cacheRootIndices.isEmpty) {
+                processedUpTo = maxOf(processedUpTo, cacheRootIndices.get(cacheRootIndices.size() - 1))
             }
-            processedRootsUpTo = if (cacheRootIndices.isEmpty) processedRootsUpTo else cacheRootIndices.get(cacheRootIndices.size() - 1)
         }
 
-        if (request is FindClassRequest) {
-            lastClassSearch = Pair(request, SearchResult.NotFound)
-        }
         return null
     }
 
@@ -164,6 +202,12 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
             return null
         }
 
+        val packageTable = packageTables[rootIndex]
+        if (packageTable != null && !packageTable.containsPackage(packagesPath.joinToString("/"))) {
+            fillCachesFromPackageTable(rootIndex, packageTable, packagesPath, fillCachesAfter, cachesPath)
+            return null
+        }
+
         return packageCache[rootIndex].getOrPut(packageFqName.asString()) {
             doTravelPath(rootIndex, packagesPath, fillCachesAfter, cachesPath)
         }
@@ -196,6 +240,35 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
         return currentFile
     }
 
+    // the package is not in the root, but some of its parent packages may be, and they should be known to contain this root
+    private fun fillCachesFromPackageTable(
+        rootIndex: Int,
+        packageTable: JarPackageTable,
+        packagesPath: List<String>,
+        fillCachesAfter: Int,
+        cachesPath: List<Cache>
+    ) {
+        val packagePath = StringBuilder()
+        for (pathIndex in packagesPath.indices) {
+            if (pathIndex > 0) packagePath.append('/')
+            packagePath.append(packagesPath[pathIndex])
+            if (!packageTable.containsPackage(packagePath.toString())) return
+
+            val correspondingCacheIndex = pathIndex + 1
+            if (correspondingCacheIndex > fillCachesAfter) {
+                cachesPath[correspondingCacheIndex].rootIndices.add(rootIndex)
+            }
+        }
+    }
+
+    private fun findPackageTable(root: JavaRoot, storage: JarPackageTableStorage): JarPackageTable? {
+        if (root.type != JavaRoot.RootType.BINARY || root.prefixFqName != null) return null
+        if (root.file.fileSystem.protocol != StandardFileSystems.JAR_PROTOCOL) return null
+
+        val jarPath = root.file.path.substringBefore(URLUtil.JAR_SEPARATOR)
+        return storage.getPackageTable(File(jarPath))
+    }
+
     private fun VirtualFile.findChildPackage(subPackageName: String, rootType: JavaRoot.RootType): VirtualFile? {
         val childDirectory = findChild(subPackageName) ?: return null
 
@@ -241,6 +314,8 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
         val acceptedRootTypes: Set<JavaRoot.RootType>
     }
 
+    private class PackageDirectory(val file: VirtualFile, val rootIndex: Int)
+
     private sealed class SearchResult {
         class Found(val packageDirectory: VirtualFile, val root: JavaRoot) : SearchResult()
 
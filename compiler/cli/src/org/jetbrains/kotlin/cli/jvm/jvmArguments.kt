@@ -139,6 +139,20 @@ fun KotlinCoreEnvironment.registerJavacIfNeeded(
 }
 
 
+private fun CompilerConfiguration.putPositiveInt(key: CompilerConfigurationKey<Int>, value: String?, description: String) {
+    if (value == null) return
+
+    val intValue = value.toIntOrNull()
+    if (intValue == null || intValue < 1) {
+        getNotNull(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY).report(
+            ERROR,
+            "$description should be a positive integer: $value"
+        )
+    } else {
+        put(key, intValue)
+    }
+}
+
 fun CompilerConfiguration.configureAdvancedJvmOptions(arguments: K2JVMCompilerArguments) {
 
     put(JVMConfigurationKeys.PARAMETERS_METADATA, arguments.javaParameters)
@@ -153,6 +167,14 @@ fun CompilerConfiguration.configureAdvancedJvmOptions(arguments: K2JVMCompilerAr
     )
     put(JVMConfigurationKeys.DISABLE_OPTIMIZATION, arguments.noOptimize)
 
+    putPositiveInt(JVMConfigurationKeys.PARALLEL_BACKEND_THREADS, arguments.backendThreads, "Number of backend threads")
+    putPositiveInt(JVMConfigurationKeys.PARALLEL_METHOD_OPTIMIZATION_THREADS, arguments.optimizationThreads, "Number of optimization threads")
+    putPositiveInt(JVMConfigurationKeys.PARALLEL_FIR_RESOLVE_THREADS, arguments.firResolveThreads, "Number of FIR resolve threads")
+    putPositiveInt(JVMConfigurationKeys.PARALLEL_PARSING_THREADS, arguments.parsingThreads, "Number of parsing threads")
+    putPositiveInt(JVMConfigurationKeys.INLINE_CACHE_SIZE, arguments.inlineCacheSize, "Inline cache size")
+    putPositiveInt(JVMConfigurationKeys.METADATA_CACHE_SIZE, arguments.metadataCacheSize, "Metadata cache size")
+    arguments.classpathPackageTablesDirectory?.let { put(JVMConfigurationKeys.CLASSPATH_PACKAGE_TABLES_DIRECTORY, File(it)) }
+
     if (!JVMConstructorCallNormalizationMode.isSupportedValue(arguments.constructorCallNormalizationMode)) {
         getNotNull(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY).report(
             ERROR,
@@ -187,6 +209,8 @@ fun CompilerConfiguration.configureAdvancedJvmOptions(arguments: K2JVMCompilerAr
     put(JVMConfigurationKeys.USE_TYPE_TABLE, arguments.useTypeTable)
     put(JVMConfigurationKeys.SKIP_RUNTIME_VERSION_CHECK, arguments.skipRuntimeVersionCheck)
     put(JVMConfigurationKeys.USE_FAST_CLASS_FILES_READING, !arguments.useOldClassFilesReading)
+    put(JVMConfigurationKeys.COMPACT_BINDING_CONTEXT, arguments.compactBindingContext)
+    put(JVMConfigurationKeys.RELEASE_ANALYSIS_DATA, arguments.releaseAnalysisData)
 
     if (arguments.useOldClassFilesReading) {
         getNotNull(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY)
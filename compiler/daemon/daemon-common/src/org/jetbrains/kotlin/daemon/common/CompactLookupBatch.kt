@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon.common
+
+import org.jetbrains.kotlin.incremental.components.Position
+import org.jetbrains.kotlin.incremental.components.ScopeKind
+import java.io.Serializable
+
+/**
+ * Lookups sent from the daemon to the client while a compilation is running.
+ * Each string is stored once in the table of the batch, and lookups refer to strings by indices.
+ */
+class CompactLookupBatch private constructor(
+    private val strings: Array<String>,
+    // Indices of the file path, the scope fq name and the name, and the ordinal of the scope kind of each lookup
+    private val lookups: IntArray,
+    // Line and column of each lookup, or null if positions are not recorded
+    private val positions: IntArray?
+) : Serializable {
+    val size: Int
+        get() = lookups.size / LOOKUP_SIZE
+
+    fun forEach(action: (filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) -> Unit) {
+        for (index in 0 until size) {
+            val offset = index * LOOKUP_SIZE
+            val position = if (positions != null) Position(positions[index * 2], positions[index * 2 + 1]) else Position.NO_POSITION
+            action(
+                strings[lookups[offset]], position, strings[lookups[offset + 1]], SCOPE_KINDS[lookups[offset + 3]], strings[lookups[offset + 2]]
+            )
+        }
+    }
+
+    class Builder(private val maxSize: Int, private val recordPositions: Boolean) {
+        private val stringIndices = HashMap<String, Int>()
+        private val strings = ArrayList<String>()
+        private val lookups = IntArray(maxSize * LOOKUP_SIZE)
+        private val positions = if (recordPositions) IntArray(maxSize * 2) else null
+        private var size = 0
+
+        // Lookups without positions are often repeated, so they are only added once
+        private val addedLookups = HashSet<Long>()
+
+        init {
+            assert(maxSize * 3 < 1 shl INDEX_BITS) { "Too many lookups in a batch: $maxSize" }
+        }
+
+        val isEmpty: Boolean
+            get() = size == 0
+
+        val isFull: Boolean
+            get() = size == maxSize
+
+        fun add(filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) {
+            assert(!isFull) { "Lookup batch is full" }
+
+            val filePathIndex = indexOf(filePath)
+            val scopeFqNameIndex = indexOf(scopeFqName)
+            val nameIndex = indexOf(name)
+            if (positions == null) {
+                val key = (scopeKind.ordinal.toLong() shl 3 * INDEX_BITS) or (filePathIndex.toLong() shl 2 * INDEX_BITS) or
+                        (scopeFqNameIndex.toLong() shl INDEX_BITS) or nameIndex.toLong()
+                if (!addedLookups.add(key)) return
+            } else {
+                positions[size * 2] = position.line
+                positions[size * 2 + 1] = position.column
+            }
+
+            val offset = size * LOOKUP_SIZE
+            lookups[offset] = filePathIndex
+            lookups[offset + 1] = scopeFqNameIndex
+            lookups[offset + 2] = nameIndex
+            lookups[offset + 3] = scopeKind.ordinal
+            size++
+        }
+
+        private fun indexOf(string: String): Int =
+            stringIndices.getOrPut(string) {
+                strings.add(string)
+                strings.size - 1
+            }
+
+        fun build(): CompactLookupBatch =
+            CompactLookupBatch(strings.toTypedArray(), lookups.copyOf(size * LOOKUP_SIZE), positions?.copyOf(size * 2))
+    }
+
+    private companion object {
+        const val LOOKUP_SIZE = 4
+
+        // Number of bits of a string index in keys of added lookups
+        const val INDEX_BITS = 20
+
+        val SCOPE_KINDS = ScopeKind.values()
+    }
+}
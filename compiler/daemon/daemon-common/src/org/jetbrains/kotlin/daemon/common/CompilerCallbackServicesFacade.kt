@@ -88,6 +88,9 @@ interface CompilerCallbackServicesFacade : Remote {
     @Throws(RemoteException::class)
     fun lookupTracker_record(lookups: Collection<LookupInfo>)
 
+    @Throws(RemoteException::class)
+    fun lookupTracker_recordBatch(batch: CompactLookupBatch)
+
     @Throws(RemoteException::class)
     fun lookupTracker_isDoNothing(): Boolean
 
@@ -48,6 +48,8 @@ val COMPILE_DAEMON_DEFAULT_SHUTDOWN_DELAY_MS: Long = 1000L // 1 sec
 val COMPILE_DAEMON_MEMORY_THRESHOLD_INFINITE: Long = 0L
 val COMPILE_DAEMON_FORCE_SHUTDOWN_DEFAULT_TIMEOUT_MS: Long = 10000L // 10 secs
 val COMPILE_DAEMON_TIMEOUT_INFINITE_MS: Long = 0L
+val COMPILE_DAEMON_PARALLEL_COMPILATIONS_UNLIMITED: Int = 0
+val COMPILE_DAEMON_NO_PROJECT_ENVIRONMENT_POOL: Int = 0
 val COMPILE_DAEMON_IS_READY_MESSAGE = "Kotlin compile daemon is ready"
 
 val COMPILE_DAEMON_CUSTOM_RUN_FILES_PATH_FOR_TESTS: String = "kotlin.daemon.custom.run.files.path.for.tests"
@@ -209,7 +211,9 @@ data class DaemonOptions(
         var shutdownDelayMilliseconds: Long = COMPILE_DAEMON_DEFAULT_SHUTDOWN_DELAY_MS,
         var forceShutdownTimeoutMilliseconds: Long = COMPILE_DAEMON_FORCE_SHUTDOWN_DEFAULT_TIMEOUT_MS,
         var verbose: Boolean = false,
-        var reportPerf: Boolean = false
+        var reportPerf: Boolean = false,
+        var maxParallelCompilations: Int = COMPILE_DAEMON_PARALLEL_COMPILATIONS_UNLIMITED,
+        var projectEnvironmentPoolSize: Int = COMPILE_DAEMON_NO_PROJECT_ENVIRONMENT_POOL
 ) : OptionsGroup {
 
     override val mappers: List<PropMapper<*, *, *>>
@@ -221,7 +225,9 @@ data class DaemonOptions(
                        PropMapper(this, DaemonOptions::shutdownDelayMilliseconds, fromString = String::toLong, skipIf = { it == COMPILE_DAEMON_DEFAULT_SHUTDOWN_DELAY_MS }, mergeDelimiter = "="),
                        PropMapper(this, DaemonOptions::forceShutdownTimeoutMilliseconds, fromString = String::toLong, skipIf = { it == COMPILE_DAEMON_FORCE_SHUTDOWN_DEFAULT_TIMEOUT_MS }, mergeDelimiter = "="),
                        BoolPropMapper(this, DaemonOptions::verbose),
-                       BoolPropMapper(this, DaemonOptions::reportPerf))
+                       BoolPropMapper(this, DaemonOptions::reportPerf),
+                       PropMapper(this, DaemonOptions::maxParallelCompilations, fromString = String::toInt, skipIf = { it == COMPILE_DAEMON_PARALLEL_COMPILATIONS_UNLIMITED }, mergeDelimiter = "="),
+                       PropMapper(this, DaemonOptions::projectEnvironmentPoolSize, fromString = String::toInt, skipIf = { it == COMPILE_DAEMON_NO_PROJECT_ENVIRONMENT_POOL }, mergeDelimiter = "="))
 }
 
 // TODO: consider implementing generic approach to it or may be replace getters with ones returning default if necessary
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import org.jetbrains.kotlin.daemon.common.COMPILE_DAEMON_PARALLEL_COMPILATIONS_UNLIMITED
+
+/**
+ * Limits the number of compilations running on the daemon at the same time, and measures how long each of them waited for admission.
+ *
+ * With [COMPILE_DAEMON_PARALLEL_COMPILATIONS_UNLIMITED] compilations are admitted immediately, as before.
+ */
+class CompilationAdmissionControl(private val maxParallelCompilations: Int) {
+
+    class Admission internal constructor(val waitTime: Long)
+
+    private val isLimited = maxParallelCompilations != COMPILE_DAEMON_PARALLEL_COMPILATIONS_UNLIMITED
+
+    private val lock = Object()
+    private var running = 0
+
+    val runningCompilations: Int
+        get() = synchronized(lock) { running }
+
+    /**
+     * Blocks until a compilation may start. [release] should be called when it is finished.
+     */
+    fun admit(): Admission {
+        val waitStart = System.nanoTime()
+        synchronized(lock) {
+            while (isLimited && running >= maxParallelCompilations) {
+                lock.wait()
+            }
+            running++
+        }
+        return Admission(System.nanoTime() - waitStart)
+    }
+
+    fun release() {
+        synchronized(lock) {
+            running--
+            lock.notifyAll()
+        }
+    }
+}
@@ -25,6 +25,8 @@ import org.jetbrains.kotlin.build.JvmSourceRoot
 import org.jetbrains.kotlin.cli.common.CLICompiler
 import org.jetbrains.kotlin.cli.common.ExitCode
 import org.jetbrains.kotlin.cli.common.KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY
+import org.jetbrains.kotlin.cli.common.KOTLIN_COMPILER_ENVIRONMENT_POOL_MEMORY_LIMIT_PROPERTY
+import org.jetbrains.kotlin.cli.common.KOTLIN_COMPILER_ENVIRONMENT_POOL_SIZE_PROPERTY
 import org.jetbrains.kotlin.cli.common.arguments.*
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity
 import org.jetbrains.kotlin.cli.common.messages.MessageCollector
@@ -76,6 +78,16 @@ const val REMOTE_STREAM_BUFFER_SIZE = 4096
 
 fun nowSeconds() = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime())
 
+// the pool of project environments in the compiler is configured with system properties, since the compiler does not know about the daemon
+internal fun DaemonOptions.configureProjectEnvironmentPool() {
+    if (projectEnvironmentPoolSize != COMPILE_DAEMON_NO_PROJECT_ENVIRONMENT_POOL) {
+        System.setProperty(KOTLIN_COMPILER_ENVIRONMENT_POOL_SIZE_PROPERTY, projectEnvironmentPoolSize.toString())
+    }
+    if (autoshutdownMemoryThreshold != COMPILE_DAEMON_MEMORY_THRESHOLD_INFINITE) {
+        System.setProperty(KOTLIN_COMPILER_ENVIRONMENT_POOL_MEMORY_LIMIT_PROPERTY, autoshutdownMemoryThreshold.toString())
+    }
+}
+
 interface CompilerSelector {
     operator fun get(targetPlatform: CompileService.TargetPlatform): CLICompiler<*>
 }
@@ -106,6 +118,7 @@ abstract class CompileServiceImplBase(
 
     init {
         System.setProperty(KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY, "true")
+        daemonOptions.configureProjectEnvironmentPool()
     }
 
     // wrapped in a class to encapsulate alive check logic
@@ -127,6 +140,8 @@ abstract class CompileServiceImplBase(
 
     protected val compilationsCounter = AtomicInteger(0)
 
+    protected val admissionControl = CompilationAdmissionControl(daemonOptions.maxParallelCompilations)
+
     protected val classpathWatcher = LazyClasspathWatcher(compilerId.compilerClasspath)
 
     enum class Aliveness {
@@ -405,7 +420,12 @@ abstract class CompileServiceImplBase(
         try {
             val profiler = if (daemonOptions.reportPerf) WallAndThreadAndMemoryTotalProfiler(withGC = false) else DummyProfiler()
 
-            val res = profiler.withMeasure(null, body)
+            val admission = admissionControl.admit()
+            val res = try {
+                profiler.withMeasure(null, body)
+            } finally {
+                admissionControl.release()
+            }
 
             val endMem = if (daemonOptions.reportPerf) usedMemory(withGC = false) else 0L
 
@@ -415,7 +435,7 @@ abstract class CompileServiceImplBase(
                 val pc = profiler.getTotalCounters()
                 val rpc = rpcProfiler.getTotalCounters()
 
-                "PERF: Compile on daemon: ${pc.time.ms()} ms; thread: user ${pc.threadUserTime.ms()} ms, sys ${(pc.threadTime - pc.threadUserTime).ms()} ms; rpc: ${rpc.count} calls, ${rpc.time.ms()} ms, thread ${rpc.threadTime.ms()} ms; memory: ${endMem.kb()} kb (${"%+d".format(
+                "PERF: Compile on daemon: ${pc.time.ms()} ms (waited ${admission.waitTime.ms()} ms); thread: user ${pc.threadUserTime.ms()} ms, sys ${(pc.threadTime - pc.threadUserTime).ms()} ms; rpc: ${rpc.count} calls, ${rpc.time.ms()} ms, thread ${rpc.threadTime.ms()} ms; memory: ${endMem.kb()} kb (${"%+d".format(
                     pc.memory.kb()
                 )} kb)".let {
                     daemonMessageReporter.report(ReportSeverity.INFO, it)
@@ -16,9 +16,7 @@
 
 package org.jetbrains.kotlin.daemon
 
-import com.intellij.util.containers.StringInterner
-import gnu.trove.THashMap
-import gnu.trove.THashSet
+import org.jetbrains.kotlin.daemon.common.CompactLookupBatch
 import org.jetbrains.kotlin.daemon.common.CompilerCallbackServicesFacade
 import org.jetbrains.kotlin.daemon.common.DummyProfiler
 import org.jetbrains.kotlin.daemon.common.Profiler
@@ -27,61 +25,77 @@ import org.jetbrains.kotlin.incremental.components.LookupInfo
 import org.jetbrains.kotlin.incremental.components.LookupTracker
 import org.jetbrains.kotlin.incremental.components.Position
 import org.jetbrains.kotlin.incremental.components.ScopeKind
+import java.rmi.RemoteException
 
+private const val LOOKUP_BATCH_SIZE = 20000
 
+/**
+ * Sends lookups to the client in batches while the compilation is running, so that they are not accumulated in the daemon.
+ * Lookups repeated in different batches are sent again, since the client side records lookups into a set anyway.
+ * Clients built before [CompilerCallbackServicesFacade.lookupTracker_recordBatch] was added receive the lookups
+ * with [CompilerCallbackServicesFacade.lookupTracker_record] instead.
+ */
 class RemoteLookupTrackerClient(
     val facade: CompilerCallbackServicesFacade,
     eventManager: EventManager,
-    val profiler: Profiler = DummyProfiler()
+    val profiler: Profiler = DummyProfiler(),
+    private val batchSize: Int = LOOKUP_BATCH_SIZE
 ) : LookupTracker {
     private val isDoNothing = profiler.withMeasure(this) { facade.lookupTracker_isDoNothing() }
 
-    // Map: FileName -> (ScopeFqName -> Set<Name[String] | LookupInfo>)
-    private val lookups = THashMap<String, MutableMap<String, MutableSet<Any>>>()
-    private val interner = StringInterner()
-
     override val requiresPosition: Boolean = profiler.withMeasure(this) { facade.lookupTracker_requiresPosition() }
 
+    private var batch = CompactLookupBatch.Builder(batchSize, requiresPosition)
+
+    private var isBatchSupported = true
+
+    // Lookups may be recorded from several threads, e.g. by parallel codegen
+    @Synchronized
     override fun record(filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) {
         if (isDoNothing) return
 
-        val internedSymbolFqName = interner.intern(scopeFqName)
-        val internedName = interner.intern(name)
-
-        val objectToPut: Any =
-            if (requiresPosition)
-                LookupInfo(filePath, position, scopeFqName, scopeKind, name)
-            else
-                internedName
+        if (requiresPosition) {
+            batch.add(filePath, position, scopeFqName, scopeKind, name)
+        } else {
+            batch.add(filePath, Position.NO_POSITION, scopeFqName, ScopeKind.CLASSIFIER, name)
+        }
 
-        lookups.getOrPut(filePath, ::THashMap).getOrPut(internedSymbolFqName, ::THashSet).add(objectToPut)
+        if (batch.isFull) {
+            flush()
+        }
     }
 
     init {
         eventManager.onCompilationFinished { flush() }
     }
 
+    @Synchronized
     private fun flush() {
-        if (isDoNothing || lookups.isEmpty) return
+        if (isDoNothing || batch.isEmpty) return
 
+        val lookups = batch.build()
         profiler.withMeasure(this) {
-            facade.lookupTracker_record(
-                lookups.flatMap { (filePath, lookupsByFile) ->
-                    lookupsByFile.flatMap { (scopeFqName, lookupsByScopeFqName) ->
-                        lookupsByScopeFqName.map { lookupInfoOrString ->
-                            if (requiresPosition)
-                                lookupInfoOrString as LookupInfo
-                            else
-                                LookupInfo(
-                                    filePath, Position.NO_POSITION, scopeFqName, ScopeKind.CLASSIFIER,
-                                    lookupInfoOrString as String
-                                )
-                        }
-                    }
+            if (isBatchSupported) {
+                try {
+                    facade.lookupTracker_recordBatch(lookups)
+                } catch (e: RemoteException) {
+                    // An old client does not know the method. If the connection is broken instead, sending the lookups below fails too
+                    isBatchSupported = false
                 }
-            )
+            }
+            if (!isBatchSupported) {
+                facade.lookupTracker_record(lookups.toLookupInfos())
+            }
         }
 
-        lookups.clear()
+        batch = CompactLookupBatch.Builder(batchSize, requiresPosition)
+    }
+}
+
+private fun CompactLookupBatch.toLookupInfos(): Collection<LookupInfo> {
+    val result = ArrayList<LookupInfo>(size)
+    forEach { filePath, position, scopeFqName, scopeKind, name ->
+        result.add(LookupInfo(filePath, position, scopeFqName, scopeKind, name))
     }
+    return result
 }
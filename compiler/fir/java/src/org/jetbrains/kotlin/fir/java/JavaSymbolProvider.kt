@@ -45,7 +45,7 @@ class JavaSymbolProvider(
     val session: FirSession,
     val project: Project,
     private val searchScope: GlobalSearchScope
-) : AbstractFirSymbolProvider() {
+) : AbstractFirSymbolProvider(session) {
 
     private val facade: KotlinJavaPsiFacade get() = KotlinJavaPsiFacade.getInstance(project)
 
@@ -269,16 +269,16 @@ class JavaSymbolProvider(
     }
 
     fun getJavaTopLevelClasses(): List<FirRegularClass> {
-        return classCache.values
+        return classCache.computedValues
             .filterIsInstance<FirClassSymbol>()
             .filter { it.classId.relativeClassName.parent().isRoot }
             .map { it.fir }
     }
 
-    private val knownClassNamesInPackage = mutableMapOf<FqName, Set<String>?>()
+    private val knownClassNamesInPackage = FirSymbolCache<FqName, Set<String>?>(session)
 
     private fun hasTopLevelClassOf(classId: ClassId): Boolean {
-        val knownNames = knownClassNamesInPackage.getOrPut(classId.packageFqName) {
+        val knownNames = knownClassNamesInPackage.lookupCacheOrCalculate(classId.packageFqName) {
             facade.knownClassNamesInPackage(classId.packageFqName)
         } ?: return true
         return classId.relativeClassName.topLevelName() in knownNames
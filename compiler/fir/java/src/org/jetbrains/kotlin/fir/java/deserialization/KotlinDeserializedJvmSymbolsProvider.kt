@@ -52,7 +52,7 @@ import org.jetbrains.kotlin.resolve.jvm.JvmClassName
 import org.jetbrains.kotlin.serialization.deserialization.IncompatibleVersionErrorData
 import org.jetbrains.kotlin.serialization.deserialization.getName
 import org.jetbrains.kotlin.utils.addToStdlib.firstNotNullResult
-import org.jetbrains.kotlin.utils.getOrPutNullable
+import java.util.concurrent.ConcurrentHashMap
 
 class KotlinDeserializedJvmSymbolsProvider(
     val session: FirSession,
@@ -61,12 +61,14 @@ class KotlinDeserializedJvmSymbolsProvider(
     private val javaSymbolProvider: JavaSymbolProvider,
     private val kotlinClassFinder: KotlinClassFinder,
     private val javaClassFinder: JavaClassFinder
-) : AbstractFirSymbolProvider() {
-    private val classesCache = HashMap<ClassId, FirClassSymbol>()
-    private val typeAliasCache = HashMap<ClassId, FirTypeAliasSymbol?>()
-    private val packagePartsCache = HashMap<FqName, Collection<PackagePartsCacheData>>()
+) : AbstractFirSymbolProvider(session) {
+    private val classesCache = ConcurrentHashMap<ClassId, FirClassSymbol>()
+    private val typeAliasCache = FirSymbolCache<ClassId, FirTypeAliasSymbol?>(session)
+    private val packagePartsCache = FirSymbolCache<FqName, Collection<PackagePartsCacheData>>(session)
 
+    // Only accessed under the symbol computation lock
     private val handledByJava = HashSet<ClassId>()
+    private val classesBeingLoaded = HashMap<ClassId, FirClassSymbol>()
 
     private class PackagePartsCacheData(
         val proto: ProtoBuf.Package,
@@ -87,10 +89,10 @@ class KotlinDeserializedJvmSymbolsProvider(
         }
     }
 
-    private val knownClassNamesInPackage = mutableMapOf<FqName, Set<String>?>()
+    private val knownClassNamesInPackage = FirSymbolCache<FqName, Set<String>?>(session)
 
     private fun hasTopLevelClassOf(classId: ClassId): Boolean {
-        val knownNames = knownClassNamesInPackage.getOrPut(classId.packageFqName) {
+        val knownNames = knownClassNamesInPackage.lookupCacheOrCalculate(classId.packageFqName) {
             javaClassFinder.knownClassNamesInPackage(classId.packageFqName)
         } ?: return false
         return classId.relativeClassName.topLevelName() in knownNames
@@ -156,7 +158,7 @@ class KotlinDeserializedJvmSymbolsProvider(
     private fun findAndDeserializeTypeAlias(
         classId: ClassId
     ): FirTypeAliasSymbol? {
-        return typeAliasCache.getOrPutNullable(classId) {
+        return typeAliasCache.lookupCacheOrCalculate(classId) {
             getPackageParts(classId.packageFqName).firstNotNullResult { part ->
                 val ids = part.typeAliasNameIndex[classId.shortClassName]
                 if (ids == null || ids.isEmpty()) return@firstNotNullResult null
@@ -311,51 +313,58 @@ class KotlinDeserializedJvmSymbolsProvider(
         parentContext: FirDeserializationContext? = null
     ): FirClassSymbol? {
         if (!hasTopLevelClassOf(classId)) return null
-        if (classesCache.containsKey(classId)) return classesCache[classId]
+        classesCache[classId]?.let { return it }
+
+        // A class is published in the cache only when it's fully loaded, since the cache is read by other threads without locking
+        synchronized(session.symbolComputationLock) {
+            (classesCache[classId] ?: classesBeingLoaded[classId])?.let { return it }
+            if (classId in handledByJava) return null
+
+            val kotlinJvmBinaryClass = when (val result = kotlinClassFinder.findKotlinClassOrContent(classId)) {
+                is KotlinClassFinder.Result.KotlinClass -> result.kotlinJvmBinaryClass
+                is KotlinClassFinder.Result.ClassFileContent -> {
+                    handledByJava.add(classId)
+                    return javaSymbolProvider.getFirJavaClass(classId, result) as FirClassSymbol?
+                }
+                null -> null
+            }
+            if (kotlinJvmBinaryClass == null) {
+                val outerClassId = classId.outerClassId ?: return null
+                findAndDeserializeClass(outerClassId) ?: return null
+            } else {
+                if (kotlinJvmBinaryClass.classHeader.kind != KotlinClassHeader.Kind.CLASS) return null
+                val (nameResolver, classProto) = kotlinJvmBinaryClass.readClassDataFrom() ?: return null
+
+                val symbol = FirClassSymbol(classId)
+                deserializeClassToSymbol(
+                    classId, classProto, symbol, nameResolver, session,
+                    JvmBinaryAnnotationDeserializer(session),
+                    parentContext, this::findAndDeserializeClass
+                )
+                // Annotations of the class may refer to the class itself or to its entries
+                val loadedSymbols = symbol.fir.declarations.filterIsInstance<FirEnumEntryImpl>().map { it.symbol } + symbol
+                loadedSymbols.associateByTo(classesBeingLoaded) { it.classId }
+                try {
+                    val annotations = mutableListOf<FirAnnotationCall>()
+                    kotlinJvmBinaryClass.loadClassAnnotations(object : KotlinJvmBinaryClass.AnnotationVisitor {
+                        override fun visitAnnotation(classId: ClassId, source: SourceElement): KotlinJvmBinaryClass.AnnotationArgumentVisitor? {
+                            return loadAnnotationIfNotSpecial(classId, annotations)
+                        }
 
-        if (classId in handledByJava) return null
+                        override fun visitEnd() {
+                        }
 
-        val kotlinJvmBinaryClass = when (val result = kotlinClassFinder.findKotlinClassOrContent(classId)) {
-            is KotlinClassFinder.Result.KotlinClass -> result.kotlinJvmBinaryClass
-            is KotlinClassFinder.Result.ClassFileContent -> {
-                handledByJava.add(classId)
-                return javaSymbolProvider.getFirJavaClass(classId, result) as FirClassSymbol?
-            }
-            null -> null
-        }
-        if (kotlinJvmBinaryClass == null) {
-            val outerClassId = classId.outerClassId ?: return null
-            findAndDeserializeClass(outerClassId) ?: return null
-        } else {
-            if (kotlinJvmBinaryClass.classHeader.kind != KotlinClassHeader.Kind.CLASS) return null
-            val (nameResolver, classProto) = kotlinJvmBinaryClass.readClassDataFrom() ?: return null
-
-            val symbol = FirClassSymbol(classId)
-            deserializeClassToSymbol(
-                classId, classProto, symbol, nameResolver, session,
-                JvmBinaryAnnotationDeserializer(session),
-                parentContext, this::findAndDeserializeClass
-            )
-            symbol.fir.declarations.filterIsInstance<FirEnumEntryImpl>().forEach {
-                classesCache[it.symbol.classId] = it.symbol
-            }
-            classesCache[classId] = symbol
-            val annotations = mutableListOf<FirAnnotationCall>()
-            kotlinJvmBinaryClass.loadClassAnnotations(object : KotlinJvmBinaryClass.AnnotationVisitor {
-                override fun visitAnnotation(classId: ClassId, source: SourceElement): KotlinJvmBinaryClass.AnnotationArgumentVisitor? {
-                    return loadAnnotationIfNotSpecial(classId, annotations)
-                }
 
-                override fun visitEnd() {
+                    }, null)
+                    (symbol.fir as FirAbstractAnnotatedElement).annotations += annotations
+                } finally {
+                    loadedSymbols.forEach { classesBeingLoaded.remove(it.classId) }
                 }
+                loadedSymbols.associateByTo(classesCache) { it.classId }
+            }
 
-
-            }, null)
-            (symbol.fir as FirAbstractAnnotatedElement).annotations += annotations
+            return classesCache[classId]
         }
-
-        return classesCache[classId]
-//        }
     }
 
     private fun loadFunctionsByName(part: PackagePartsCacheData, name: Name): List<FirCallableSymbol<*>> {
@@ -379,8 +388,10 @@ class KotlinDeserializedJvmSymbolsProvider(
     }
 
     override fun getTopLevelCallableSymbols(packageFqName: FqName, name: Name): List<FirCallableSymbol<*>> {
-        return getPackageParts(packageFqName).flatMap { part ->
-            loadFunctionsByName(part, name) + loadPropertiesByName(part, name)
+        return synchronized(session.symbolComputationLock) {
+            getPackageParts(packageFqName).flatMap { part ->
+                loadFunctionsByName(part, name) + loadPropertiesByName(part, name)
+            }
         }
     }
 
@@ -390,7 +401,7 @@ class KotlinDeserializedJvmSymbolsProvider(
         }
 
     private fun getPackageParts(packageFqName: FqName): Collection<PackagePartsCacheData> {
-        return packagePartsCache.getOrPut(packageFqName) {
+        return packagePartsCache.lookupCacheOrCalculate(packageFqName) {
             computePackagePartsInfos(packageFqName)
         }
     }
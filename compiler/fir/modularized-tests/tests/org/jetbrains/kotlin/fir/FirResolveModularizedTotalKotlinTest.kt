@@ -41,6 +41,8 @@ private const val FIR_LOGS_PATH = "tmp/fir-logs"
 
 private const val PASSES = 1
 
+private const val RESOLVE_THREADS = 1
+
 class FirResolveModularizedTotalKotlinTest : AbstractModularizedTest() {
 
     private lateinit var bench: FirResolveBench
@@ -69,7 +71,7 @@ class FirResolveModularizedTotalKotlinTest : AbstractModularizedTest() {
 
         println("Raw FIR up, files: ${firFiles.size}")
 
-        bench.processFiles(firFiles, totalTransformer.transformers)
+        bench.processFiles(firFiles, totalTransformer, RESOLVE_THREADS)
 
         dumpFir(moduleData, firFiles)
         dumpFirHtml(moduleData, firFiles)
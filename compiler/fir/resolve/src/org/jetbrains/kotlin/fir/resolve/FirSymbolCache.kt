@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir.resolve
+
+import org.jetbrains.kotlin.fir.FirSession
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Cache of symbols (or other values, possibly `null`) computed on demand by a symbol provider, which may be used from several threads.
+ *
+ * Cached values are read without locking. Values are computed under [FirSession.symbolComputationLock], so each value is computed once.
+ * A value becomes visible to other threads only when its post-computation is finished, but it's visible to the computing thread
+ * right after it's created, so that recursive lookups made by the post-computation get the same value.
+ */
+class FirSymbolCache<K : Any, V>(session: FirSession) {
+    private val lock = session.symbolComputationLock
+
+    @PublishedApi
+    internal val values = ConcurrentHashMap<K, Any>()
+
+    // Only accessed under the lock
+    private val valuesInPostCompute = HashMap<K, Any>()
+
+    val computedValues: Collection<V>
+        get() = values.values.map(::unbox)
+
+    inline fun lookupCacheOrCalculate(key: K, crossinline calculate: (K) -> V): V {
+        values[key]?.let { return unbox(it) }
+        return calculateUnderLock(key, { calculate(it) to Unit }) { _, _ -> }
+    }
+
+    inline fun <T> lookupCacheOrCalculateWithPostCompute(
+        key: K, crossinline calculate: (K) -> Pair<V, T>, crossinline postCompute: (V, T) -> Unit
+    ): V {
+        values[key]?.let { return unbox(it) }
+        return calculateUnderLock(key, { calculate(it) }) { value, data -> postCompute(value, data) }
+    }
+
+    @PublishedApi
+    internal fun <T> calculateUnderLock(key: K, calculate: (K) -> Pair<V, T>, postCompute: (V, T) -> Unit): V {
+        synchronized(lock) {
+            (values[key] ?: valuesInPostCompute[key])?.let { return unbox(it) }
+
+            val (value, data) = calculate(key)
+            valuesInPostCompute[key] = value ?: NULL_VALUE
+            try {
+                postCompute(value, data)
+                values[key] = value ?: NULL_VALUE
+            } finally {
+                valuesInPostCompute.remove(key)
+            }
+            return value
+        }
+    }
+
+    @PublishedApi
+    @Suppress("UNCHECKED_CAST")
+    internal fun unbox(value: Any): V = (if (value === NULL_VALUE) null else value) as V
+
+    private companion object {
+        val NULL_VALUE = Any()
+    }
+}
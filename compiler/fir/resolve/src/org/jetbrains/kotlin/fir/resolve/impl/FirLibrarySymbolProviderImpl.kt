@@ -76,7 +76,7 @@ class FirLibrarySymbolProviderImpl(val session: FirSession) : FirSymbolProvider(
             ).memberDeserializer
         }
 
-        val lookup = mutableMapOf<ClassId, FirClassSymbol>()
+        val lookup = FirSymbolCache<ClassId, FirClassSymbol>(session)
 
         fun getClassLikeSymbolByFqName(classId: ClassId): FirClassSymbol? =
             findAndDeserializeClass(classId)
@@ -95,7 +95,7 @@ class FirLibrarySymbolProviderImpl(val session: FirSession) : FirSymbolProvider(
                     return null
                 }
             }
-            return lookup.getOrPut(classId, { FirClassSymbol(classId) }) { symbol ->
+            return lookup.lookupCacheOrCalculateWithPostCompute(classId, { FirClassSymbol(classId) to Unit }) { symbol, _ ->
                 if (shouldBeEnumEntry) {
                     FirEnumEntryImpl(session, null, symbol, classId.shortClassName).apply {
                         resolvePhase = FirResolvePhase.DECLARATIONS
@@ -114,8 +114,10 @@ class FirLibrarySymbolProviderImpl(val session: FirSession) : FirSymbolProvider(
         }
 
         fun getTopLevelCallableSymbols(name: Name): List<FirCallableSymbol<*>> {
-            return packageProto.`package`.functionList.filter { nameResolver.getName(it.name) == name }.map {
-                memberDeserializer.loadFunction(it).symbol
+            return synchronized(session.symbolComputationLock) {
+                packageProto.`package`.functionList.filter { nameResolver.getName(it.name) == name }.map {
+                    memberDeserializer.loadFunction(it).symbol
+                }
             }
         }
 
@@ -156,7 +158,7 @@ class FirLibrarySymbolProviderImpl(val session: FirSession) : FirSymbolProvider(
 
     private val allPackageFragments = loadBuiltIns().groupBy { it.fqName }
 
-    private val fictitiousFunctionSymbols = mutableMapOf<Int, FirClassSymbol>()
+    private val fictitiousFunctionSymbols = FirSymbolCache<Int, FirClassSymbol>(session)
 
     override fun getClassLikeSymbolByFqName(classId: ClassId): FirClassSymbol? {
         return allPackageFragments[classId.packageFqName]?.firstNotNullResult {
@@ -166,7 +168,7 @@ class FirLibrarySymbolProviderImpl(val session: FirSession) : FirSymbolProvider(
             val kind = FunctionClassDescriptor.Kind.byClassNamePrefix(packageFqName, className) ?: return@with null
             val prefix = kind.classNamePrefix
             val arity = className.substring(prefix.length).toIntOrNull() ?: return null
-            fictitiousFunctionSymbols.getOrPut(arity) {
+            fictitiousFunctionSymbols.lookupCacheOrCalculate(arity) {
                 FirClassSymbol(this).apply {
                     FirClassImpl(
                         session,
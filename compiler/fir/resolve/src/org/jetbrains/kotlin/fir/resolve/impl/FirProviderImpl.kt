@@ -25,6 +25,7 @@ import org.jetbrains.kotlin.fir.visitors.FirVisitorVoid
 import org.jetbrains.kotlin.name.ClassId
 import org.jetbrains.kotlin.name.FqName
 import org.jetbrains.kotlin.name.Name
+import java.util.concurrent.ConcurrentHashMap
 
 class FirProviderImpl(val session: FirSession) : FirProvider() {
     override fun getFirCallableContainerFile(symbol: ConeCallableSymbol): FirFile? {
@@ -98,12 +99,13 @@ class FirProviderImpl(val session: FirSession) : FirProvider() {
 
     private val state = State()
 
+    // Files may be resolved in parallel, so the maps are concurrent
     private class State {
-        val fileMap = mutableMapOf<FqName, List<FirFile>>()
-        val classifierMap = mutableMapOf<ClassId, FirClassLikeDeclaration<*>>()
-        val classifierContainerFileMap = mutableMapOf<ClassId, FirFile>()
-        val callableMap = mutableMapOf<CallableId, List<FirCallableSymbol<*>>>()
-        val callableContainerMap = mutableMapOf<ConeCallableSymbol, FirFile>()
+        val fileMap = ConcurrentHashMap<FqName, List<FirFile>>()
+        val classifierMap = ConcurrentHashMap<ClassId, FirClassLikeDeclaration<*>>()
+        val classifierContainerFileMap = ConcurrentHashMap<ClassId, FirFile>()
+        val callableMap = ConcurrentHashMap<CallableId, List<FirCallableSymbol<*>>>()
+        val callableContainerMap = ConcurrentHashMap<ConeCallableSymbol, FirFile>()
 
         fun setFrom(other: State) {
             fileMap.clear()
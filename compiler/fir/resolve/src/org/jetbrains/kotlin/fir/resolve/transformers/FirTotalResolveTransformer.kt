@@ -8,19 +8,47 @@ package org.jetbrains.kotlin.fir.resolve.transformers
 import org.jetbrains.kotlin.fir.declarations.FirFile
 import org.jetbrains.kotlin.fir.declarations.FirResolvePhase
 import org.jetbrains.kotlin.fir.visitors.FirTransformer
+import org.jetbrains.kotlin.utils.mapInParallel
+import org.jetbrains.kotlin.utils.withThreadPool
+import java.util.concurrent.ExecutorService
 
 // TODO: rework, see rr/FIR/semoro-dev FirStagesTransformerFactory
 class FirTotalResolveTransformer {
 
-    val transformers: List<FirTransformer<Nothing?>> =
+    val phases: List<FirResolvePhase> =
         FirResolvePhase.values()
             .drop(1) // to remove RAW_FIR phase
-            .map { it.createTransformerByPhase() }
 
-    fun processFiles(files: List<FirFile>) {
-        for (transformer in transformers) {
-            for (firFile in files) {
-                firFile.transform<FirFile, Nothing?>(transformer, null)
+    val transformers: List<FirTransformer<Nothing?>> = phases.map { it.createTransformerByPhase() }
+
+    fun processFiles(files: List<FirFile>, threadCount: Int = 1) {
+        if (threadCount <= 1) {
+            for (transformer in transformers) {
+                for (firFile in files) {
+                    firFile.transform<FirFile, Nothing?>(transformer, null)
+                }
+            }
+            return
+        }
+
+        withThreadPool(threadCount) { pool ->
+            for ((phase, transformer) in phases.zip(transformers)) {
+                if (phase.isParallelizable) {
+                    transformInParallel(files, phase, pool)
+                } else {
+                    for (firFile in files) {
+                        firFile.transform<FirFile, Nothing?>(transformer, null)
+                    }
+                }
+            }
+        }
+    }
+
+    companion object {
+        fun transformInParallel(files: List<FirFile>, phase: FirResolvePhase, pool: ExecutorService) {
+            // Transformers keep the state of the current file, so each file is transformed by its own transformer
+            files.mapInParallel(pool) { firFile ->
+                firFile.transform<FirFile, Nothing?>(phase.createTransformerByPhase(), null)
             }
         }
     }
@@ -20,4 +20,8 @@ fun FirResolvePhase.createTransformerByPhase(): FirTransformer<Nothing?> {
         IMPLICIT_TYPES_BODY_RESOLVE -> FirImplicitTypeBodyResolveTransformerAdapter()
         BODY_RESOLVE -> FirBodyResolveTransformerAdapter()
     }
-}
\ No newline at end of file
+}
+
+// Phases which only modify the transformed file, when previous phases are finished for all files
+val FirResolvePhase.isParallelizable: Boolean
+    get() = this == IMPORTS || this == BODY_RESOLVE
@@ -16,10 +16,12 @@ import org.jetbrains.kotlin.types.AbstractTypeCheckerContext
 import org.jetbrains.kotlin.types.model.CaptureStatus
 import org.jetbrains.kotlin.types.model.SimpleTypeMarker
 import org.jetbrains.kotlin.types.model.TypeConstructorMarker
+import java.util.concurrent.ConcurrentHashMap
 
 class FirCorrespondingSupertypesCache(private val session: FirSession) : FirSessionComponent {
     private val context = ConeTypeCheckerContext(false, session)
-    private val cache = HashMap<ConeClassLikeSymbol, Map<ConeClassLikeSymbol, List<ConeClassLikeType>>?>(1000, 0.5f)
+
+    private val cache = ConcurrentHashMap<ConeClassLikeSymbol, Map<ConeClassLikeSymbol, List<ConeClassLikeType>>>(1000, 0.5f)
 
     fun getCorrespondingSupertypes(
         type: ConeKotlinType,
@@ -30,11 +32,10 @@ class FirCorrespondingSupertypesCache(private val session: FirSession) : FirSess
         val symbol = type.lookupTag.toSymbol(session) as? ConeClassLikeSymbol ?: return null
         if (symbol == supertypeConstructor) return listOf(captureType(type))
 
-        if (symbol !in cache) {
-            cache[symbol] = computeSupertypesMap(type, symbol)
-        }
+        val supertypesMap = cache.getOrPut(symbol) { computeSupertypesMap(type, symbol) ?: NO_SUPERTYPES_MAP }
+        if (supertypesMap === NO_SUPERTYPES_MAP) return null
 
-        val resultTypes = cache[symbol]?.getOrDefault(supertypeConstructor, emptyList()) ?: return null
+        val resultTypes = supertypesMap.getOrDefault(supertypeConstructor, emptyList())
         if (type.typeArguments.isEmpty()) return resultTypes
 
         val capturedType = captureType(type)
@@ -65,7 +66,8 @@ class FirCorrespondingSupertypesCache(private val session: FirSession) : FirSess
             isNullable = false
         )
 
-        if (context.anySupertype(
+        // The context keeps the state of the supertypes traversal, so a new one is used to allow computations on several threads
+        if (ConeTypeCheckerContext(false, session).anySupertype(
                 defaultType,
                 { it !is ConeClassLikeType || it.lookupTag.toSymbol(session) !is ConeClassLikeSymbol }
             ) { supertype -> computeSupertypePolicyAndPutInMap(supertype, subtypeSymbol, resultingMap) }
@@ -97,4 +99,9 @@ class FirCorrespondingSupertypesCache(private val session: FirSession) : FirSess
             }
         }
     }
+
+    private companion object {
+        // Cached for classes whose supertypes can't be computed, since the cache can't contain nulls
+        val NO_SUPERTYPES_MAP: Map<ConeClassLikeSymbol, List<ConeClassLikeType>> = HashMap()
+    }
 }
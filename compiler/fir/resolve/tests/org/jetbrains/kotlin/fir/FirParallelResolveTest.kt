@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir
+
+import com.intellij.psi.search.GlobalSearchScope
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.fir.builder.RawFirBuilder
+import org.jetbrains.kotlin.fir.resolve.FirProvider
+import org.jetbrains.kotlin.fir.resolve.impl.FirProviderImpl
+import org.jetbrains.kotlin.fir.resolve.transformers.FirTotalResolveTransformer
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.TestJdkKind
+import org.jetbrains.kotlin.test.util.assertSameResultOnThreads
+
+class FirParallelResolveTest : AbstractFirResolveWithSessionTestCase() {
+    override fun createEnvironment(): KotlinCoreEnvironment {
+        return createEnvironmentWithJdk(ConfigurationKind.ALL, TestJdkKind.FULL_JDK)
+    }
+
+    fun testParallelResolveIsSameAsSequential() {
+        val ktFiles = createFiles()
+        assertSameResultOnThreads { threadCount -> resolve(ktFiles, threadCount) }
+    }
+
+    private fun resolve(ktFiles: List<KtFile>, threadCount: Int): List<String> {
+        val scope = GlobalSearchScope.filesScope(project, ktFiles.mapNotNull { it.virtualFile })
+        val session = createSession(environment, scope)
+        val builder = RawFirBuilder(session, stubMode = false)
+
+        val firFiles = ktFiles.map {
+            val firFile = builder.buildFirFile(it)
+            (session.service<FirProvider>() as FirProviderImpl).recordFile(firFile)
+            firFile
+        }
+        FirTotalResolveTransformer().processFiles(firFiles, threadCount)
+
+        return firFiles.map { firFile -> StringBuilder().also { firFile.accept(FirRenderer(it), null) }.toString() }
+    }
+
+    private fun createFiles(): List<KtFile> =
+        listOf(
+            KotlinTestUtils.createFile(
+                "base.kt",
+                """
+                    package base
+
+                    enum class Color { RED, GREEN, BLUE }
+
+                    open class Base<T>(val value: T) {
+                        open fun describe(): String = value.toString()
+                    }
+
+                    typealias Names = List<String>
+
+                    fun Color.next(): Color = Color.values()[(ordinal + 1) % Color.values().size]
+                """.trimIndent(),
+                project
+            )
+        ) + (0 until 16).map { i ->
+            KotlinTestUtils.createFile(
+                "file$i.kt",
+                """
+                    package p${i % 3}
+
+                    import base.*
+                    import java.util.ArrayList
+
+                    class C$i(x: Int) : Base<Int>(x) {
+                        override fun describe(): String = super.describe() + $i
+
+                        fun names(): Names = ArrayList<String>().apply { add(describe()) }
+
+                        fun color(): Color = when (value % 3) {
+                            0 -> Color.RED
+                            1 -> Color.GREEN
+                            else -> Color.BLUE.next()
+                        }
+                    }
+
+                    fun topLevel$i(list: List<C$i>): Int = list.map { it.value }.filter { it > $i }.sum()
+
+                    val property$i: String get() = C$i($i).describe()
+                """.trimIndent(),
+                project
+            )
+        }
+}
@@ -16,6 +16,10 @@ abstract class FirSession(val sessionProvider: FirSessionProvider?) {
 
     val jsr305State: Jsr305State? get() = null
 
+    // Symbols are computed on demand by providers of different sessions which depend on each other,
+    // so a single lock is used for all sessions of a provider to avoid deadlocks when files are resolved in parallel
+    val symbolComputationLock: Any get() = sessionProvider ?: this
+
 
     val components: MutableMap<KClass<*>, Any> = mutableMapOf()
 
@@ -47,6 +51,7 @@ inline fun <reified T : Any> FirSession.service(): T =
 internal object ComponentTypeRegistry {
     private val idPerType = mutableMapOf<KClass<out FirSessionComponent>, Int>()
 
+    @Synchronized
     fun <T : FirSessionComponent> id(kClass: KClass<T>): Int {
         return idPerType.getOrPut(kClass) { idPerType.size }
     }
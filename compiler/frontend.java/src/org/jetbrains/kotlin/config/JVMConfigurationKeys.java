@@ -96,6 +96,33 @@ public class JVMConfigurationKeys {
     public static final CompilerConfigurationKey<Boolean> IR =
             CompilerConfigurationKey.create("IR");
 
+    public static final CompilerConfigurationKey<Integer> PARALLEL_BACKEND_THREADS =
+            CompilerConfigurationKey.create("number of threads for parallel bytecode generation in the old backend [experimental]");
+
+    public static final CompilerConfigurationKey<Integer> INLINE_CACHE_SIZE =
+            CompilerConfigurationKey.create("size of the inline function bodies cache shared in the process, in megabytes");
+
+    public static final CompilerConfigurationKey<Integer> METADATA_CACHE_SIZE =
+            CompilerConfigurationKey.create("size of the parsed metadata cache of compiled Kotlin classes shared in the process, in megabytes");
+
+    public static final CompilerConfigurationKey<Integer> PARALLEL_METHOD_OPTIMIZATION_THREADS =
+            CompilerConfigurationKey.create("number of threads for parallel optimization of generated methods [experimental]");
+
+    public static final CompilerConfigurationKey<Integer> PARALLEL_FIR_RESOLVE_THREADS =
+            CompilerConfigurationKey.create("number of threads for parallel resolution of files in FIR [experimental]");
+
+    public static final CompilerConfigurationKey<Integer> PARALLEL_PARSING_THREADS =
+            CompilerConfigurationKey.create("number of threads for parsing source files before analysis [experimental]");
+
+    public static final CompilerConfigurationKey<Boolean> COMPACT_BINDING_CONTEXT =
+            CompilerConfigurationKey.create("store the most frequently recorded analysis results in separate tables [experimental]");
+
+    public static final CompilerConfigurationKey<Boolean> RELEASE_ANALYSIS_DATA =
+            CompilerConfigurationKey.create("drop analysis results of the files whose classes are written to the output directory [experimental]");
+
+    public static final CompilerConfigurationKey<File> CLASSPATH_PACKAGE_TABLES_DIRECTORY =
+            CompilerConfigurationKey.create("directory where package tables of classpath jars are kept between compilations");
+
     public static final CompilerConfigurationKey<Boolean> USE_FAST_CLASS_FILES_READING =
             CompilerConfigurationKey.create("use fast class files reading implementation [experimental]");
 
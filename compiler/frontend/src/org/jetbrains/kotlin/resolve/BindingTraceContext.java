@@ -29,18 +29,28 @@ import org.jetbrains.kotlin.types.expressions.KotlinTypeInfo;
 import org.jetbrains.kotlin.types.expressions.typeInfoFactory.TypeInfoFactoryKt;
 import org.jetbrains.kotlin.util.slicedMap.*;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
 
 public class BindingTraceContext implements BindingTrace {
     // These flags are used for debugging of "Rewrite at slice..." exceptions
     /* package */ final static boolean TRACK_REWRITES = false;
     /* package */ final static boolean TRACK_WITH_STACK_TRACES = true;
 
+    // The slices recorded for almost every expression, call and reference in a module
+    private static final List<WritableSlice<?, ?>> COLUMN_SLICES = Arrays.asList(
+            BindingContext.EXPRESSION_TYPE_INFO, BindingContext.RESOLVED_CALL, BindingContext.REFERENCE_TARGET
+    );
+
     private final MutableSlicedMap map;
     @Nullable private final MutableDiagnosticsWithSuppression mutableDiagnostics;
     @NotNull private final BindingTraceFilter filter;
 
-    private final BindingContext bindingContext = new BindingContext() {
+    private final BindingContext bindingContext = new TraceBindingContext();
+
+    private class TraceBindingContext implements BindingContext {
 
         @NotNull
         @Override
@@ -76,7 +86,12 @@ public class BindingTraceContext implements BindingTrace {
         public void addOwnDataTo(@NotNull BindingTrace trace, boolean commitDiagnostics) {
             BindingContextUtils.addOwnDataTo(trace, null, commitDiagnostics, map, mutableDiagnostics);
         }
-    };
+
+        @NotNull
+        private BindingTraceContext getTrace() {
+            return BindingTraceContext.this;
+        }
+    }
 
     public BindingTraceContext() {
         this(false);
@@ -87,8 +102,22 @@ public class BindingTraceContext implements BindingTrace {
     }
 
     public BindingTraceContext(BindingTraceFilter filter, boolean allowSliceRewrite) {
+        this(filter, allowSliceRewrite, false);
+    }
+
+    /**
+     * @param compactStorage whether the values of {@link #COLUMN_SLICES} should be kept in separate tables, see {@link ColumnarSlicedMap}
+     */
+    public BindingTraceContext(BindingTraceFilter filter, boolean allowSliceRewrite, boolean compactStorage) {
+        this(createMap(allowSliceRewrite, compactStorage), filter);
+    }
+
+    @NotNull
+    private static MutableSlicedMap createMap(boolean allowSliceRewrite, boolean compactStorage) {
         //noinspection ConstantConditions
-        this(TRACK_REWRITES && !allowSliceRewrite ? new TrackingSlicedMap(TRACK_WITH_STACK_TRACES) : new SlicedMapImpl(allowSliceRewrite), filter);
+        if (TRACK_REWRITES && !allowSliceRewrite) return new TrackingSlicedMap(TRACK_WITH_STACK_TRACES);
+        if (compactStorage) return new ColumnarSlicedMap(allowSliceRewrite, COLUMN_SLICES);
+        return new SlicedMapImpl(allowSliceRewrite);
     }
 
 
@@ -119,6 +148,24 @@ public class BindingTraceContext implements BindingTrace {
         }
     }
 
+    /**
+     * Drops the values recorded for the keys matching {@code predicate}, e.g. for the elements of the files which are already
+     * generated. The diagnostics are kept. Does nothing if the storage doesn't support removal.
+     */
+    public void removeEntries(@NotNull Predicate<Object> predicate) {
+        if (map instanceof SlicedMapImpl) {
+            ((SlicedMapImpl) map).removeKeys(predicate);
+        }
+    }
+
+    /**
+     * Returns the trace {@code context} belongs to, if it was obtained from {@link BindingTraceContext#getBindingContext()}.
+     */
+    @Nullable
+    public static BindingTraceContext getTrace(@NotNull BindingContext context) {
+        return context instanceof TraceBindingContext ? ((TraceBindingContext) context).getTrace() : null;
+    }
+
     @Override
     public boolean wantsDiagnostics() {
         return mutableDiagnostics != null;
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.util.slicedMap;
+
+import com.google.common.collect.ImmutableMap;
+import com.intellij.openapi.util.Key;
+import com.intellij.util.keyFMap.KeyFMap;
+import kotlin.jvm.functions.Function3;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the values of a few frequently recorded slices in separate tables, one per slice, and the rest as {@link SlicedMapImpl} does.
+ *
+ * A column holds nothing but keys and values, while {@link SlicedMapImpl} allocates a {@link KeyFMap} per key
+ * and copies it each time a value is recorded. For the slices which have a value for almost every expression
+ * of a module this noticeably reduces the retained heap and the allocation rate.
+ */
+public class ColumnarSlicedMap extends SlicedMapImpl {
+    private final boolean alwaysAllowRewrite;
+    private final WritableSlice<?, ?>[] columnSlices;
+    private final Key<?>[] columnKeys;
+    private final Map<Object, Object>[] columns;
+
+    @SuppressWarnings("unchecked")
+    public ColumnarSlicedMap(boolean alwaysAllowRewrite, @NotNull List<? extends WritableSlice<?, ?>> columnSlices) {
+        super(alwaysAllowRewrite);
+        this.alwaysAllowRewrite = alwaysAllowRewrite;
+        this.columnSlices = columnSlices.toArray(new WritableSlice<?, ?>[0]);
+        this.columnKeys = new Key<?>[this.columnSlices.length];
+        for (int i = 0; i < this.columnSlices.length; i++) {
+            assert !this.columnSlices[i].isCollective() : "Keys of collective slices are not supported in columns: " + this.columnSlices[i];
+            columnKeys[i] = this.columnSlices[i].getKey();
+        }
+        this.columns = new Map[this.columnSlices.length];
+    }
+
+    private int columnIndex(@NotNull Key<?> key) {
+        for (int i = 0; i < columnKeys.length; i++) {
+            if (columnKeys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public <K, V> void put(WritableSlice<K, V> slice, K key, V value) {
+        int index = columnIndex(slice.getKey());
+        if (index < 0) {
+            super.put(slice, key, value);
+            return;
+        }
+
+        if (!slice.check(key, value)) {
+            return;
+        }
+
+        Map<Object, Object> column = columns[index];
+        if (column == null) {
+            column = columns[index] = new OpenAddressLinearProbingHashTable<>();
+        }
+
+        RewritePolicy rewritePolicy = slice.getRewritePolicy();
+        if (!alwaysAllowRewrite && rewritePolicy.rewriteProcessingNeeded(key)) {
+            //noinspection unchecked
+            V oldValue = (V) column.get(key);
+            if (oldValue != null) {
+                //noinspection unchecked
+                if (!rewritePolicy.processRewrite(slice, key, oldValue, value)) {
+                    return;
+                }
+            }
+        }
+
+        column.put(key, value);
+        slice.afterPut(this, key, value);
+    }
+
+    @Override
+    public <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+        int index = columnIndex(slice.getKey());
+        if (index < 0) {
+            return super.get(slice, key);
+        }
+
+        Map<Object, Object> column = columns[index];
+        //noinspection unchecked
+        V value = column == null ? null : (V) column.get(key);
+
+        return slice.computeValue(this, key, value, value == null);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill(columns, null);
+    }
+
+    @Override
+    public void removeKeys(@NotNull Predicate<Object> predicate) {
+        super.removeKeys(predicate);
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] != null) {
+                columns[i] = removeKeys(columns[i], predicate);
+            }
+        }
+    }
+
+    @Override
+    public void forEach(@NotNull Function3<WritableSlice, Object, Object, Void> f) {
+        super.forEach(f);
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == null) continue;
+
+            WritableSlice<?, ?> slice = columnSlices[i];
+            columns[i].forEach((key, value) -> f.invoke(slice, key, value));
+        }
+    }
+
+    @NotNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> ImmutableMap<K, V> getSliceContents(@NotNull ReadOnlySlice<K, V> slice) {
+        int index = columnIndex(slice.getKey());
+        if (index < 0) {
+            return super.getSliceContents(slice);
+        }
+
+        Map<Object, Object> column = columns[index];
+        if (column == null) return ImmutableMap.of();
+
+        ImmutableMap.Builder<K, V> builder = ImmutableMap.builder();
+        column.forEach((key, value) -> builder.put((K) key, (V) value));
+        return builder.build();
+    }
+}
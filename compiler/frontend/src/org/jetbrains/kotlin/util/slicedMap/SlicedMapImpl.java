@@ -28,6 +28,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.Predicate;
 
 public class SlicedMapImpl implements MutableSlicedMap {
 
@@ -86,6 +87,31 @@ public class SlicedMapImpl implements MutableSlicedMap {
         collectiveSliceKeys = null;
     }
 
+    /**
+     * Removes the values of all slices recorded for the keys matching {@code predicate}, e.g. for the elements of the files
+     * whose analysis results are not needed anymore.
+     */
+    public void removeKeys(@NotNull Predicate<Object> predicate) {
+        if (map != null) {
+            map = removeKeys(map, predicate);
+        }
+        if (collectiveSliceKeys != null) {
+            collectiveSliceKeys.values().removeIf(predicate);
+        }
+    }
+
+    // The hash table doesn't support removal, so the remaining entries are copied to a new one
+    @NotNull
+    protected static <V> Map<Object, V> removeKeys(@NotNull Map<Object, V> map, @NotNull Predicate<Object> predicate) {
+        Map<Object, V> result = new OpenAddressLinearProbingHashTable<>();
+        map.forEach((key, value) -> {
+            if (!predicate.test(key)) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
     @Override
     public <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
         KeyFMap holder = map != null ? map.get(key) : null;
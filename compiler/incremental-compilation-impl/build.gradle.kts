@@ -16,6 +16,7 @@ dependencies {
     compile(project(":kotlin-build-common"))
     compile(project(":daemon-common"))
     compileOnly(intellijCoreDep()) { includeJars("intellij-core") }
+    compileOnly(intellijDep()) { includeJars("guava", rootProject = rootProject) }
 
     testCompile(commonDep("junit:junit"))
     testCompile(project(":kotlin-test:kotlin-test-junit"))
@@ -23,7 +24,7 @@ dependencies {
     testCompile(projectTests(":kotlin-build-common"))
     testCompile(projectTests(":compiler:tests-common"))
     testCompile(intellijCoreDep()) { includeJars("intellij-core") }
-    testCompile(intellijDep()) { includeJars("log4j", "jdom") }
+    testCompile(intellijDep()) { includeJars("log4j", "jdom", "guava", rootProject = rootProject) }
 }
 
 sourceSets {
@@ -24,7 +24,8 @@ private val PATH_CONVERTER = FileToCanonicalPathConverter
 
 abstract class IncrementalCachesManager<PlatformCache : AbstractIncrementalCache<*>>(
     cachesRootDir: File,
-    protected val reporter: ICReporter
+    protected val reporter: ICReporter,
+    useMappedLookupStorage: Boolean = LookupStorage.isMappedStorageEnabled
 ) {
     private val caches = arrayListOf<BasicMapsOwner>()
     protected fun <T : BasicMapsOwner> T.registerCache() {
@@ -35,7 +36,7 @@ abstract class IncrementalCachesManager<PlatformCache : AbstractIncrementalCache
     private val lookupCacheDir = File(cachesRootDir, "lookups").apply { mkdirs() }
 
     val inputsCache: InputsCache = InputsCache(inputSnapshotsCacheDir, reporter).apply { registerCache() }
-    val lookupCache: LookupStorage = LookupStorage(lookupCacheDir, PATH_CONVERTER).apply { registerCache() }
+    val lookupCache: LookupStorage = LookupStorage(lookupCacheDir, PATH_CONVERTER, useMappedLookupStorage).apply { registerCache() }
     abstract val platformCache: PlatformCache
 
     fun close(flush: Boolean = false): Boolean {
@@ -66,8 +67,9 @@ abstract class IncrementalCachesManager<PlatformCache : AbstractIncrementalCache
 class IncrementalJvmCachesManager(
     cacheDirectory: File,
     outputDir: File,
-    reporter: ICReporter
-) : IncrementalCachesManager<IncrementalJvmCache>(cacheDirectory, reporter) {
+    reporter: ICReporter,
+    useMappedLookupStorage: Boolean = LookupStorage.isMappedStorageEnabled
+) : IncrementalCachesManager<IncrementalJvmCache>(cacheDirectory, reporter, useMappedLookupStorage) {
 
     private val jvmCacheDir = File(cacheDirectory, "jvm").apply { mkdirs() }
     override val platformCache = IncrementalJvmCache(jvmCacheDir, outputDir, PATH_CONVERTER).apply { registerCache() }
@@ -75,8 +77,9 @@ class IncrementalJvmCachesManager(
 
 class IncrementalJsCachesManager(
     cachesRootDir: File,
-    reporter: ICReporter
-) : IncrementalCachesManager<IncrementalJsCache>(cachesRootDir, reporter) {
+    reporter: ICReporter,
+    useMappedLookupStorage: Boolean = LookupStorage.isMappedStorageEnabled
+) : IncrementalCachesManager<IncrementalJsCache>(cachesRootDir, reporter, useMappedLookupStorage) {
 
     private val jsCacheFile = File(cachesRootDir, "js").apply { mkdirs() }
     override val platformCache = IncrementalJsCache(jsCacheFile, PATH_CONVERTER).apply { registerCache() }
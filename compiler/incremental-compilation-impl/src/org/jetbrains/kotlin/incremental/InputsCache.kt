@@ -29,7 +29,8 @@ class InputsCache(
         private val reporter: ICReporter
 ) : BasicMapsOwner(workingDir) {
     companion object {
-        private val SOURCE_SNAPSHOTS = "source-snapshot"
+        // Snapshots are stored in another file since they have timestamps and MurmurHash3 hashes instead of MD5
+        private val SOURCE_SNAPSHOTS = "source-snapshot-v2"
         private val SOURCE_TO_OUTPUT_FILES = "source-to-output"
     }
 
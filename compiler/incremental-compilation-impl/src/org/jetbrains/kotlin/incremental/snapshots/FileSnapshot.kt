@@ -22,7 +22,9 @@ import java.util.*
 class FileSnapshot(
         val file: File,
         val length: Long,
-        val hash: ByteArray
+        val hash: ByteArray,
+        // Not compared, since touching a file doesn't change it; UNKNOWN_LAST_MODIFIED when the timestamp can't be trusted
+        val lastModified: Long = UNKNOWN_LAST_MODIFIED
 ) {
     init {
         assert(!file.isDirectory)
@@ -51,4 +53,8 @@ class FileSnapshot(
     override fun toString(): String {
         return "FileSnapshot(file=$file, length=$length, hash=${Arrays.toString(hash)})"
     }
+
+    companion object {
+        const val UNKNOWN_LAST_MODIFIED = 0L
+    }
 }
@@ -25,16 +25,18 @@ object FileSnapshotExternalizer : DataExternalizer<FileSnapshot> {
     override fun save(out: DataOutput, value: FileSnapshot) {
         out.writeUTF(value.file.canonicalPath)
         out.writeLong(value.length)
-        out.writeInt(value.hash.size)
+        out.writeLong(value.lastModified)
+        out.writeByte(value.hash.size)
         out.write(value.hash)
     }
 
     override fun read(input: DataInput): FileSnapshot {
         val file = File(input.readUTF())
         val length = input.readLong()
-        val hashSize = input.readInt()
+        val lastModified = input.readLong()
+        val hashSize = input.readUnsignedByte()
         val hash = ByteArray(hashSize)
         input.readFully(hash)
-        return FileSnapshot(file, length, hash)
+        return FileSnapshot(file, length, hash, lastModified)
     }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import org.jetbrains.kotlin.incremental.storage.BasicStringMap
 import org.jetbrains.kotlin.incremental.storage.PathStringDescriptor
 import java.io.File
 import java.util.*
+import java.util.stream.Collectors
 
 class FileSnapshotMap(storageFile: File) : BasicStringMap<FileSnapshot>(storageFile, PathStringDescriptor, FileSnapshotExternalizer) {
     override fun dumpValue(value: FileSnapshot): String =
@@ -39,13 +40,21 @@ class FileSnapshotMap(storageFile: File) : BasicStringMap<FileSnapshot>(storageF
             }
         }
 
-        for (path in newPaths) {
-            val file = File(path)
-            val oldSnapshot = storage[path]
-            val newSnapshot = snapshotProvider[file]
+        // Hashing is the most expensive part when few files are changed, so snapshots are taken in parallel.
+        // The storage itself is not thread-safe and is only accessed from this thread
+        val oldSnapshots = newPaths.map { path -> path to storage[path] }
+        val newSnapshots = oldSnapshots.parallelStream()
+            .map { (path, oldSnapshot) -> snapshotProvider[File(path), oldSnapshot] }
+            .collect(Collectors.toList())
+
+        for ((index, pathAndSnapshot) in oldSnapshots.withIndex()) {
+            val (path, oldSnapshot) = pathAndSnapshot
+            val newSnapshot = newSnapshots[index]
 
             if (oldSnapshot == null || oldSnapshot != newSnapshot) {
-                newOrModified.add(file)
+                newOrModified.add(File(path))
+                storage[path] = newSnapshot
+            } else if (oldSnapshot.lastModified != newSnapshot.lastModified) {
                 storage[path] = newSnapshot
             }
         }
@@ -20,12 +20,37 @@ import java.io.File
 
 interface FileSnapshotProvider {
     operator fun get(file: File): FileSnapshot
+
+    /**
+     * Returns [previous] snapshot if the file wasn't modified since it was taken according to the file system,
+     * otherwise takes a new snapshot.
+     */
+    operator fun get(file: File, previous: FileSnapshot?): FileSnapshot =
+        get(file)
 }
 
 class SimpleFileSnapshotProviderImpl : FileSnapshotProvider {
-    override fun get(file: File): FileSnapshot {
+    override fun get(file: File): FileSnapshot =
+        get(file, null)
+
+    override fun get(file: File, previous: FileSnapshot?): FileSnapshot {
+        // The timestamp is read before the content, so that a modification made while the file is hashed isn't missed next time
+        val lastModified = file.lastModified()
         val length = file.length()
-        val hash = file.md5
-        return FileSnapshot(file, length, hash)
+        if (previous != null && previous.lastModified != FileSnapshot.UNKNOWN_LAST_MODIFIED &&
+            previous.lastModified == lastModified && previous.length == length && previous.file == file
+        ) return previous
+
+        val hash = file.contentHash
+        // A file may be modified again in the same timestamp granularity interval (up to 2 seconds on some file systems),
+        // so recent timestamps are not trusted
+        val trustedLastModified =
+            if (System.currentTimeMillis() - lastModified > TIMESTAMP_GRANULARITY_MS) lastModified
+            else FileSnapshot.UNKNOWN_LAST_MODIFIED
+        return FileSnapshot(file, length, hash, trustedLastModified)
+    }
+
+    private companion object {
+        const val TIMESTAMP_GRANULARITY_MS = 2000L
     }
 }
\ No newline at end of file
@@ -16,21 +16,10 @@
 
 package org.jetbrains.kotlin.incremental.snapshots
 
+import com.google.common.hash.Hashing
+import com.google.common.io.Files
 import java.io.File
-import java.security.MessageDigest
 
-internal val File.md5: ByteArray
-    get() {
-        val messageDigest = MessageDigest.getInstance("MD5")
-        val buffer = ByteArray(4048)
-        inputStream().use { input ->
-            while (true) {
-                val len = input.read(buffer)
-                if (len < 0) {
-                    break
-                }
-                messageDigest.update(buffer, 0, len)
-            }
-        }
-        return messageDigest.digest()
-    }
+// MurmurHash3 is much faster than cryptographic hashes and is enough to detect changes of files
+internal val File.contentHash: ByteArray
+    get() = Files.asByteSource(this).hash(Hashing.murmur3_128()).asBytes()
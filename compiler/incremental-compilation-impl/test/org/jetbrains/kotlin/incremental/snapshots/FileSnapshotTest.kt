@@ -7,6 +7,7 @@ package org.jetbrains.kotlin.incremental.snapshots
 
 import org.jetbrains.kotlin.TestWithWorkingDir
 import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertSame
 import org.junit.Test
 import java.io.*
 
@@ -72,6 +73,30 @@ class FileSnapshotTest : TestWithWorkingDir() {
         assertNotEquals(oldSnapshot, newSnapshot)
     }
 
+    @Test
+    fun testUnmodifiedTimestampAndSize() {
+        val file = File(workingDir, "1.txt").apply {
+            writeText("file")
+            setLastModified(System.currentTimeMillis() - 10000)
+        }
+        val oldSnapshot = fileSnapshotProvider[file]
+        file.writeText("main")
+        file.setLastModified(oldSnapshot.lastModified)
+        val newSnapshot = fileSnapshotProvider[file, oldSnapshot]
+        assertSame(oldSnapshot, newSnapshot)
+    }
+
+    @Test
+    fun testRecentTimestampIsNotTrusted() {
+        val file = File(workingDir, "1.txt").apply { writeText("file") }
+        val lastModified = file.lastModified()
+        val oldSnapshot = fileSnapshotProvider[file]
+        file.writeText("main")
+        file.setLastModified(lastModified)
+        val newSnapshot = fileSnapshotProvider[file, oldSnapshot]
+        assertNotEquals(oldSnapshot, newSnapshot)
+    }
+
     private fun saveAndReadBack(snapshot: FileSnapshot): FileSnapshot {
         val byteOut = ByteArrayOutputStream()
         DataOutputStream(byteOut).use { FileSnapshotExternalizer.save(it, snapshot) }
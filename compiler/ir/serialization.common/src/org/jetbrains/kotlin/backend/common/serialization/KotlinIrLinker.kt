@@ -72,9 +72,9 @@ abstract class KotlinIrLinker(
 
         private var moduleLoops = mutableMapOf<Int, IrLoopBase>()
 
-        private val symbolProtosCache = mutableMapOf<Int, ProtoSymbolData>()
-        private val typeProtosCache = mutableMapOf<Int, ProtoType>()
-        private val stringsCache = mutableMapOf<Int, String>()
+        private val symbolProtosCache = IndexedTable<ProtoSymbolData>()
+        private val typeProtosCache = IndexedTable<ProtoType>()
+        private val stringsCache = IndexedTable<String>()
 
         // This is a heavy initializer
         val module = deserializeIrModuleHeader(moduleProto)
@@ -492,6 +492,22 @@ abstract class KotlinIrLinker(
         }
 }
 
+// The klib tables are indexed by consecutive ints starting from zero, so an array is enough to cache their entries.
+// The table size is not stored in the module header, so the array grows on demand.
+private class IndexedTable<T : Any> {
+    private var entries = arrayOfNulls<Any>(INITIAL_TABLE_SIZE)
+
+    @Suppress("UNCHECKED_CAST")
+    inline fun getOrPut(index: Int, compute: () -> T): T {
+        if (index >= entries.size) {
+            entries = entries.copyOf(maxOf(entries.size * 2, index + 1))
+        }
+        return entries[index] as T? ?: compute().also { entries[index] = it }
+    }
+}
+
+private const val INITIAL_TABLE_SIZE = 1024
+
 enum class DeserializationStrategy {
     ONLY_REFERENCED,
     ALL,
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.ir.backend.js
+
+import org.jetbrains.kotlin.ir.backend.js.lower.serialization.metadata.JsKlibMetadataParts
+import org.jetbrains.kotlin.library.KotlinLibrary
+import java.io.File
+import java.lang.ref.SoftReference
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Keeps parsed metadata of packed libraries between compilations in the same process (e.g. the compile daemon),
+ * so that stdlib and other large dependencies are not parsed again by every module that depends on them.
+ *
+ * Protos are immutable and don't depend on the compiler configuration, so they are shared as is. Descriptors are still
+ * created per compilation, since they are bound to the storage manager and built-ins of a particular one.
+ */
+internal object KlibMetadataCache {
+    // files modified that recently may be rewritten again within the file system timestamp resolution
+    private const val TIMESTAMP_GRANULARITY_MS = 2000L
+
+    private class Entry(val length: Long, val lastModified: Long, parts: JsKlibMetadataParts) {
+        val parts = SoftReference(parts)
+    }
+
+    private val entries = ConcurrentHashMap<String, Entry>()
+
+    fun getOrLoad(library: KotlinLibrary, load: (KotlinLibrary) -> JsKlibMetadataParts): JsKlibMetadataParts {
+        val file = File(library.libraryFile.absolutePath)
+        // Unpacked libraries are usually outputs of the current build, and a directory timestamp doesn't reflect its content
+        if (!file.isFile) return load(library)
+
+        val length = file.length()
+        val lastModified = file.lastModified()
+
+        val entry = entries[file.path]
+        if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+            entry.parts.get()?.let { return it }
+        }
+
+        val parts = load(library)
+        if (System.currentTimeMillis() - lastModified >= TIMESTAMP_GRANULARITY_MS) {
+            entries[file.path] = Entry(length, lastModified, parts)
+        } else {
+            entries.remove(file.path)
+        }
+        return parts
+    }
+}
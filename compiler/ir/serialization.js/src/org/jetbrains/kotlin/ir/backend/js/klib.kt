@@ -157,7 +157,9 @@ private fun GeneratorContext.generateModuleFragment(files: List<KtFile>, deseria
 private fun loadKlibMetadataParts(
     moduleId: KotlinLibrary
 ): JsKlibMetadataParts {
-    return JsKlibMetadataSerializationUtil.readModuleAsProto(moduleId.moduleHeaderData)
+    return KlibMetadataCache.getOrLoad(moduleId) {
+        JsKlibMetadataSerializationUtil.readModuleAsProto(it.moduleHeaderData)
+    }
 }
 
 val ModuleDescriptor.kotlinLibrary get() = this.getCapability(JS_KLIBRARY_CAPABILITY)!!
@@ -248,7 +250,7 @@ private class ModulesStructure(
     private val descriptors = mutableMapOf<KotlinLibrary, ModuleDescriptorImpl>()
 
     fun getModuleDescriptor(current: KotlinLibrary): ModuleDescriptorImpl = descriptors.getOrPut(current) {
-        val parts = loadKlibMetadataParts(current)
+        val parts = deserializedModuleParts.getValue(current)
         val isBuiltIns = parts.importedModules.isEmpty()
         loadKlibMetadata(
             parts,
@@ -8,16 +8,24 @@ import com.intellij.openapi.fileEditor.FileDocumentManager
 import com.intellij.psi.PsiElement
 import org.jetbrains.kotlin.fir.builder.RawFirBuilder
 import org.jetbrains.kotlin.fir.declarations.FirFile
+import org.jetbrains.kotlin.fir.declarations.FirResolvePhase
 import org.jetbrains.kotlin.fir.expressions.FirFunctionCall
 import org.jetbrains.kotlin.fir.expressions.FirQualifiedAccessExpression
 import org.jetbrains.kotlin.fir.resolve.FirProvider
 import org.jetbrains.kotlin.fir.resolve.impl.FirProviderImpl
+import org.jetbrains.kotlin.fir.resolve.transformers.FirTotalResolveTransformer
+import org.jetbrains.kotlin.fir.resolve.transformers.createTransformerByPhase
+import org.jetbrains.kotlin.fir.resolve.transformers.isParallelizable
 import org.jetbrains.kotlin.fir.types.*
 import org.jetbrains.kotlin.fir.visitors.FirTransformer
 import org.jetbrains.kotlin.fir.visitors.FirVisitorVoid
 import org.jetbrains.kotlin.psi.KtFile
 import org.jetbrains.kotlin.psi.psiUtil.startOffset
+import org.jetbrains.kotlin.utils.getOrRethrow
+import org.jetbrains.kotlin.utils.shutdownAndAwaitTermination
 import java.io.PrintStream
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
 import kotlin.math.max
 import kotlin.reflect.KClass
 import kotlin.system.measureNanoTime
@@ -37,6 +45,7 @@ class FirResolveBench(val withProgress: Boolean) {
 
     val timePerTransformer = mutableMapOf<KClass<*>, Long>()
     val counterPerTransformer = mutableMapOf<KClass<*>, Long>()
+    val wallTimePerTransformer = mutableMapOf<KClass<*>, Long>()
     var resolvedTypes = 0
     var errorTypes = 0
     var unresolvedTypes = 0
@@ -59,32 +68,52 @@ class FirResolveBench(val withProgress: Boolean) {
     fun processFiles(
         firFiles: List<FirFile>,
         transformers: List<FirTransformer<Nothing?>>
+    ) {
+        processStages(firFiles, transformers.map { it to null }, threadCount = 1)
+    }
+
+    fun processFiles(
+        firFiles: List<FirFile>,
+        totalTransformer: FirTotalResolveTransformer,
+        threadCount: Int
+    ) {
+        val stages = totalTransformer.transformers.zip(totalTransformer.phases) { transformer, phase ->
+            transformer to phase.takeIf { it.isParallelizable }
+        }
+        processStages(firFiles, stages, threadCount)
+    }
+
+    // Files are transformed in parallel at stages with a phase, each file by its own transformer
+    private fun processStages(
+        firFiles: List<FirFile>,
+        stages: List<Pair<FirTransformer<Nothing?>, FirResolvePhase?>>,
+        threadCount: Int
     ) {
         fileCount += firFiles.size
+        val pool = if (threadCount > 1) ForkJoinPool(threadCount) else null
         try {
-            for ((stage, transformer) in transformers.withIndex()) {
+            for ((stage, stageWithPhase) in stages.withIndex()) {
+                val (transformer, parallelPhase) = stageWithPhase
                 println("Starting stage #$stage. $transformer")
-                val firFileSequence = if (withProgress) firFiles.progress("   ~ ") else firFiles.asSequence()
-                for (firFile in firFileSequence) {
-                    var fail = false
-                    val time = measureNanoTime {
-                        try {
-                            transformer.transformFile(firFile, null)
-                        } catch (e: Throwable) {
-                            val ktFile = firFile.psi as KtFile
-                            println("Fail in file: ${ktFile.virtualFilePath}")
-                            fail = true
-                            fails += FailureInfo(transformer::class, e, ktFile.virtualFilePath)
-                            //println(ktFile.text)
-                            //throw e
+                val wallTime = measureNanoTime {
+                    if (pool != null && parallelPhase != null) {
+                        val tasks = firFiles.map { firFile ->
+                            firFile to pool.submit(Callable { transformFile(parallelPhase.createTransformerByPhase(), firFile) })
+                        }
+                        val taskSequence = if (withProgress) tasks.progress("   ~ ") else tasks.asSequence()
+                        for ((firFile, task) in taskSequence) {
+                            val (time, failure) = task.getOrRethrow()
+                            countFile(transformer, firFile, time, failure)
+                        }
+                    } else {
+                        val firFileSequence = if (withProgress) firFiles.progress("   ~ ") else firFiles.asSequence()
+                        for (firFile in firFileSequence) {
+                            val (time, failure) = transformFile(transformer, firFile)
+                            countFile(transformer, firFile, time, failure)
                         }
                     }
-                    if (!fail) {
-                        timePerTransformer.merge(transformer::class, time) { a, b -> a + b }
-                        counterPerTransformer.merge(transformer::class, 1) { a, b -> a + b }
-                    }
-                    //totalLength += StringBuilder().apply { FirRenderer(this).visitFile(firFile) }.length
                 }
+                wallTimePerTransformer.merge(transformer::class, wallTime) { a, b -> a + b }
                 checkFirProvidersConsistency(firFiles)
             }
 
@@ -94,7 +123,7 @@ class FirResolveBench(val withProgress: Boolean) {
                 println("ERROR!")
             }
         } finally {
-
+            pool?.shutdownAndAwaitTermination()
 
             val fileDocumentManager = FileDocumentManager.getInstance()
 
@@ -180,6 +209,32 @@ class FirResolveBench(val withProgress: Boolean) {
 
     }
 
+    private fun transformFile(transformer: FirTransformer<Nothing?>, firFile: FirFile): Pair<Long, Throwable?> {
+        var failure: Throwable? = null
+        val time = measureNanoTime {
+            try {
+                transformer.transformFile(firFile, null)
+            } catch (e: Throwable) {
+                failure = e
+            }
+        }
+        return time to failure
+    }
+
+    private fun countFile(transformer: FirTransformer<Nothing?>, firFile: FirFile, time: Long, failure: Throwable?) {
+        if (failure != null) {
+            val ktFile = firFile.psi as KtFile
+            println("Fail in file: ${ktFile.virtualFilePath}")
+            fails += FailureInfo(transformer::class, failure, ktFile.virtualFilePath)
+            //println(ktFile.text)
+            //throw e
+        } else {
+            timePerTransformer.merge(transformer::class, time) { a, b -> a + b }
+            counterPerTransformer.merge(transformer::class, 1) { a, b -> a + b }
+        }
+        //totalLength += StringBuilder().apply { FirRenderer(this).visitFile(firFile) }.length
+    }
+
     fun throwFailure() {
         if (fails.any()) {
             val (transformerClass, failure, file) = fails.first()
@@ -216,14 +271,16 @@ class FirResolveBench(val withProgress: Boolean) {
 
         timePerTransformer.forEach { (transformer, time) ->
             val counter = counterPerTransformer[transformer]!!
-            stream.println("${transformer.simpleName}, TIME: ${time * 1e-6} ms, TIME PER FILE: ${(time / counter) * 1e-6} ms, FILES: OK/E/T $counter/${fileCount - counter}/$fileCount")
+            val wallTime = wallTimePerTransformer[transformer]?.let { ", WALL TIME: ${it * 1e-6} ms" } ?: ""
+            stream.println("${transformer.simpleName}, TIME: ${time * 1e-6} ms$wallTime, TIME PER FILE: ${(time / counter) * 1e-6} ms, FILES: OK/E/T $counter/${fileCount - counter}/$fileCount")
             totalTime += time
             totalFiles += counter
         }
 
         if (counterPerTransformer.keys.size > 0) {
             totalFiles /= counterPerTransformer.keys.size
-            stream.println("Total, TIME: ${totalTime * 1e-6} ms, TIME PER FILE: ${(totalTime / totalFiles) * 1e-6} ms")
+            val totalWallTime = if (wallTimePerTransformer.isNotEmpty()) ", WALL TIME: ${wallTimePerTransformer.values.sum() * 1e-6} ms" else ""
+            stream.println("Total, TIME: ${totalTime * 1e-6} ms$totalWallTime, TIME PER FILE: ${(totalTime / totalFiles) * 1e-6} ms")
         }
     }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.test.util
+
+import junit.framework.TestCase
+import java.io.File
+
+/**
+ * Runs [run] on one thread and on [threadCount] threads, and checks that both runs give equal results.
+ * Returns the result of the sequential run.
+ */
+fun <T> assertSameResultOnThreads(threadCount: Int = 4, run: (threadCount: Int) -> T): T {
+    val sequential = run(1)
+    val parallel = run(threadCount)
+    TestCase.assertEquals(sequential, parallel)
+    return sequential
+}
+
+/**
+ * Checks that [actualDir] contains the same files with the same contents as [expectedDir]. Files not matching [filter] are ignored.
+ */
+fun assertSameFiles(expectedDir: File, actualDir: File, filter: (File) -> Boolean = { true }) {
+    fun File.readFiles(): Map<String, ByteArray> =
+        walkTopDown().filter { it.isFile && filter(it) }.associate { it.relativeTo(this).invariantSeparatorsPath to it.readBytes() }
+
+    val expected = expectedDir.readFiles()
+    val actual = actualDir.readFiles()
+    TestCase.assertEquals(expected.keys, actual.keys)
+    for ((path, bytes) in actual) {
+        TestCase.assertTrue("$path differs", bytes.contentEquals(expected.getValue(path)))
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli
+
+import com.intellij.lang.ASTNode
+import com.intellij.psi.impl.source.tree.LazyParseableElement
+import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.cli.jvm.compiler.parseSourceFilesInParallel
+import org.jetbrains.kotlin.test.CompilerTestUtil
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import org.jetbrains.kotlin.test.TestJdkKind
+import java.io.File
+
+class ParallelParsingTest : TestCaseWithTmpdir() {
+    fun testParallelParsingGivesSameClasses() {
+        val sources = createSources { i -> "fun topLevel$i(list: List<C$i>): Int = list.map { it.value }.filter { it > $i }.sum()" }
+
+        val sequential = compile(sources, "out1", parsingThreads = null)
+        val parallel = compile(sources, "out2", parsingThreads = 4)
+
+        assertEquals(ExitCode.OK, sequential.exitCode)
+        assertEquals(sequential.output, parallel.output)
+        assertTrue(sequential.classes.isNotEmpty())
+        assertEquals(sequential.classes.keys, parallel.classes.keys)
+        for ((path, bytes) in parallel.classes) {
+            assertTrue("$path differs", bytes.contentEquals(sequential.classes.getValue(path)))
+        }
+    }
+
+    fun testParallelParsingReportsSameErrors() {
+        val sources = createSources { i -> if (i % 4 == 1) "fun broken$i( = $i" else "fun ok$i() = $i" }
+
+        val sequential = compile(sources, "out1", parsingThreads = null)
+        val parallel = compile(sources, "out2", parsingThreads = 4)
+
+        assertEquals(ExitCode.COMPILATION_ERROR, sequential.exitCode)
+        assertEquals(sequential.exitCode, parallel.exitCode)
+        assertEquals(sequential.output, parallel.output)
+    }
+
+    fun testTreesAreParsedOnPool() {
+        val configuration = KotlinTestUtils.newConfiguration(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK)
+        val environment = KotlinCoreEnvironment.createForTests(testRootDisposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES)
+        val files = createSources { i -> "fun topLevel$i(list: List<C$i>): Int { return list.map { it.value }.sum() }" }.map { file ->
+            KotlinTestUtils.createFile(file.name, file.readText(), environment.project)
+        }
+        for (file in files) {
+            assertNull("${file.name} is parsed before the pool", file.treeElement)
+        }
+
+        parseSourceFilesInParallel(configuration, files, threadCount = 4)
+
+        for (file in files) {
+            val lazyElements = mutableListOf<LazyParseableElement>()
+            collectLazyElements(file.treeElement ?: throw AssertionError("${file.name} has no tree"), lazyElements)
+            // The file, the function body and the lambda
+            assertTrue("${file.name}: ${lazyElements.size} lazy elements", lazyElements.size >= 3)
+        }
+    }
+
+    // Checks that each lazy element is parsed before accessing its children, since the access would parse it
+    private fun collectLazyElements(node: ASTNode, result: MutableList<LazyParseableElement>) {
+        if (node is LazyParseableElement) {
+            assertTrue("${node.elementType} at ${node.startOffset} is not parsed", node.isParsed)
+            result.add(node)
+        }
+        for (child in node.getChildren(null)) {
+            collectLazyElements(child, result)
+        }
+    }
+
+    private class Result(val exitCode: ExitCode, val output: String, val classes: Map<String, ByteArray>)
+
+    private fun compile(sources: List<File>, outputDirName: String, parsingThreads: Int?): Result {
+        val outputDir = File(tmpdir, outputDirName)
+        val args = listOf("-d", outputDir.path) + listOfNotNull(parsingThreads?.let { "-Xparsing-threads=$it" }) + sources.map { it.path }
+        val (output, exitCode) = CompilerTestUtil.executeCompiler(K2JVMCompiler(), args)
+
+        val classes = outputDir.walkTopDown().filter { it.isFile }.associate { it.relativeTo(outputDir).path to it.readBytes() }
+        return Result(exitCode, output, classes)
+    }
+
+    private fun createSources(extraDeclaration: (Int) -> String): List<File> =
+        (0 until 24).map { i ->
+            File(tmpdir, "src/file$i.kt").apply {
+                parentFile.mkdirs()
+                writeText(
+                    """
+                        package p${i % 3}
+
+                        enum class Color$i { RED, GREEN }
+
+                        class C$i(val value: Int) {
+                            fun color(): Color$i = when (value % 2) {
+                                0 -> Color$i.RED
+                                else -> Color$i.GREEN
+                            }
+
+                            inline fun <reified T> isInstance(x: Any): Boolean = x is T
+                        }
+
+                        ${extraDeclaration(i)}
+                    """.trimIndent()
+                )
+            }
+        }
+}
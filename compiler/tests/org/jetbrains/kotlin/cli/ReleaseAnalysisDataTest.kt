@@ -0,0 +1,100 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli
+
+import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.test.CompilerTestUtil
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import java.io.File
+
+class ReleaseAnalysisDataTest : TestCaseWithTmpdir() {
+    fun testReleasedAnalysisDataDoesNotChangeClasses() {
+        val sources = createSources()
+
+        val (expectedOutput, expectedExitCode) = compile(sources, "out1", releaseAnalysisData = false)
+        val (actualOutput, actualExitCode) = compile(sources, "out2", releaseAnalysisData = true)
+
+        assertEquals(ExitCode.OK, expectedExitCode)
+        assertEquals(expectedExitCode, actualExitCode)
+        assertEquals(expectedOutput, actualOutput)
+
+        val expected = readClasses(File(tmpdir, "out1"))
+        val actual = readClasses(File(tmpdir, "out2"))
+        for (name in listOf("p0/Utils.class", "p0/Utils__Part0Kt.class", "p1/Kind.class", "p2/User4\$WhenMappings.class")) {
+            assertTrue("$name is not generated", name in expected)
+        }
+        assertEquals(expected.keys, actual.keys)
+        for ((path, bytes) in actual) {
+            assertTrue("$path differs", bytes.contentEquals(expected.getValue(path)))
+        }
+    }
+
+    private fun compile(sources: List<File>, outputDirName: String, releaseAnalysisData: Boolean): Pair<String, ExitCode> {
+        val args = listOf("-d", File(tmpdir, outputDirName).path) +
+                listOfNotNull("-Xrelease-analysis-data".takeIf { releaseAnalysisData }) +
+                sources.map { it.path }
+        return CompilerTestUtil.executeCompiler(K2JVMCompiler(), args)
+    }
+
+    private fun readClasses(dir: File): Map<String, ByteArray> =
+        dir.walkTopDown().filter { it.isFile }.associate { it.relativeTo(dir).invariantSeparatorsPath to it.readBytes() }
+
+    private fun createSources(): List<File> {
+        val files = mutableMapOf<String, String>()
+
+        // Parts of a multifile class, with an inline function used from other files
+        for (i in 0 until 3) {
+            files["p0/part$i.kt"] = """
+                @file:JvmMultifileClass
+                @file:JvmName("Utils")
+                package p0
+
+                inline fun <T> measure$i(block: () -> T): T = block()
+
+                fun plain$i(x: Int): Int = x * $i
+            """
+        }
+
+        files["p1/kind.kt"] = """
+            package p1
+
+            enum class Kind { SMALL, MEDIUM, LARGE }
+
+            inline fun Kind.describe(prefix: String = "kind"): String = prefix + ":" + name + ordinal
+        """
+
+        for (i in 0 until 12) {
+            files["p2/user$i.kt"] = """
+                package p2
+
+                import p0.*
+                import p1.*
+
+                class User$i(val kind: Kind) {
+                    fun weight(): Int = when (kind) {
+                        Kind.SMALL -> plain0($i)
+                        Kind.MEDIUM -> measure1 { plain1($i) }
+                        Kind.LARGE -> measure2 { listOf(1, 2, $i).map { it * $i }.sum() }
+                    }
+
+                    fun name(): String = kind.describe()
+
+                    val callbacks: List<() -> String> = listOf({ "first$i" }, { name() + $i })
+                }
+
+                fun user$i(): Int = User$i(Kind.values()[$i % 3]).let { it.weight() + it.callbacks.size }
+            """
+        }
+
+        return files.map { (path, text) ->
+            File(tmpdir, "src/$path").apply {
+                parentFile.mkdirs()
+                writeText(text.trimIndent())
+            }
+        }
+    }
+}
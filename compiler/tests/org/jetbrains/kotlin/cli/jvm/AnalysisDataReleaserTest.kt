@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm
+
+import org.jetbrains.kotlin.cli.jvm.compiler.AnalysisDataReleaser
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.psi.Call
+import org.jetbrains.kotlin.psi.KtDeclaration
+import org.jetbrains.kotlin.psi.KtExpression
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.resolve.lazy.JvmResolveUtil
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.KotlinTestWithEnvironment
+import java.io.File
+
+class AnalysisDataReleaserTest : KotlinTestWithEnvironment() {
+    override fun createEnvironment(): KotlinCoreEnvironment = createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY)
+
+    fun testExpressionsOfGeneratedFilesAreReleased() {
+        val released = KotlinTestUtils.createFile("released.kt", "class A { fun f(x: Int) = x.plus(1) }", project)
+        val kept = KotlinTestUtils.createFile("kept.kt", "fun g() = A().f(2)", project)
+        val inline = KotlinTestUtils.createFile("inline.kt", "inline fun h(y: Int) = y.plus(g())", project)
+        val files = listOf(released, kept, inline)
+        val context = JvmResolveUtil.analyzeAndCheckForErrors(files, environment).bindingContext
+
+        val expressionsBefore = files.associate { it to context.expressionKeys(it) }
+        val callsBefore = files.associate { it to context.callKeys(it) }
+        for (file in files) {
+            assertTrue("${file.name} has no expressions", expressionsBefore.getValue(file).isNotEmpty())
+            assertTrue("${file.name} has no calls", callsBefore.getValue(file).isNotEmpty())
+        }
+        val functionsBefore = context.getSliceContents(BindingContext.FUNCTION).keys.toSet()
+        val classesBefore = context.getSliceContents(BindingContext.CLASS).keys.toSet()
+
+        // With three files each batch is a single file, so the files are released right away
+        val releaser = AnalysisDataReleaser.create(context, files)!!
+        releaser.filesGenerated(files.map { File(it.virtualFile.path) } - File(kept.virtualFile.path))
+
+        assertEquals(emptySet<KtExpression>(), context.expressionKeys(released))
+        assertEquals(emptySet<Call>(), context.callKeys(released))
+        // Not generated yet
+        assertEquals(expressionsBefore.getValue(kept), context.expressionKeys(kept))
+        assertEquals(callsBefore.getValue(kept), context.callKeys(kept))
+        // Never released, the inline body is generated again at the call sites
+        assertEquals(expressionsBefore.getValue(inline), context.expressionKeys(inline))
+        assertEquals(callsBefore.getValue(inline), context.callKeys(inline))
+
+        // The declarations of all files are kept
+        assertEquals(functionsBefore, context.getSliceContents(BindingContext.FUNCTION).keys.toSet())
+        assertEquals(classesBefore, context.getSliceContents(BindingContext.CLASS).keys.toSet())
+        assertTrue(released.declarations.single() in classesBefore)
+    }
+
+    private fun BindingContext.expressionKeys(file: KtFile): Set<KtExpression> =
+        getSliceContents(BindingContext.EXPRESSION_TYPE_INFO).keys.filterTo(hashSetOf()) { expression ->
+            expression !is KtDeclaration && expression.containingFile == file
+        }
+
+    private fun BindingContext.callKeys(file: KtFile): Set<Call> =
+        getSliceContents(BindingContext.RESOLVED_CALL).keys.filterTo(hashSetOf()) { it.callElement.containingFile == file }
+}
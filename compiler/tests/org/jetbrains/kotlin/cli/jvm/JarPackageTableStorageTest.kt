@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.cli.jvm.index.JarPackageTableStorage
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class JarPackageTableStorageTest : TestCase() {
+    fun testPackagesOfJar() {
+        val tmpDir = KotlinTestUtils.tmpDirForTest(this)
+        val jar = createJar(File(tmpDir, "lib.jar"), "META-INF/MANIFEST.MF", "a/A.class", "a/b/c/C.class", "é/E.class", "d/")
+
+        val table = JarPackageTableStorage.getInstance(File(tmpDir, "tables")).getPackageTable(jar)!!
+        for (packagePath in listOf("", "META-INF", "a", "a/b", "a/b/c", "é", "d")) {
+            assertTrue(packagePath, table.containsPackage(packagePath))
+        }
+        for (packagePath in listOf("b", "a/c", "a/b/c/d", "a/A.class", "A", "e", "z")) {
+            assertFalse(packagePath, table.containsPackage(packagePath))
+        }
+    }
+
+    fun testTableIsReusedAndRebuiltAfterJarChanges() {
+        val tmpDir = KotlinTestUtils.tmpDirForTest(this)
+        val tablesDir = File(tmpDir, "tables")
+        val jar = createJar(File(tmpDir, "lib.jar"), "a/A.class")
+
+        assertTrue(JarPackageTableStorage.getInstance(tablesDir).getPackageTable(jar)!!.containsPackage("a"))
+        val tableFile = tablesDir.listFiles()!!.single()
+
+        createJar(jar, "a/A.class", "b/B.class")
+        jar.setLastModified(jar.lastModified() + 2000)
+        val table = JarPackageTableStorage.getInstance(tablesDir).getPackageTable(jar)!!
+        assertTrue(table.containsPackage("b"))
+        assertEquals(listOf(tableFile), tablesDir.listFiles()!!.toList())
+    }
+
+    private fun createJar(file: File, vararg entries: String): File {
+        ZipOutputStream(file.outputStream()).use { zip ->
+            for (entry in entries) {
+                zip.putNextEntry(ZipEntry(entry))
+                zip.closeEntry()
+            }
+        }
+        return file
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.codegen.inline.ClassFileKey
+import org.jetbrains.kotlin.codegen.inline.InlineCacheStorage
+import org.jetbrains.kotlin.codegen.inline.MethodNodeKey
+import org.jetbrains.org.objectweb.asm.commons.Method
+
+class InlineCacheStorageTest : TestCase() {
+    fun testLeastRecentlyUsedEntriesAreEvicted() {
+        val storage = InlineCacheStorage(maxSizeInBytes = 100)
+        storage.putClassBytes(key("a"), ByteArray(40))
+        storage.putClassBytes(key("b"), ByteArray(40))
+        assertNotNull(storage.getClassBytes(key("a")))
+
+        storage.putClassBytes(key("c"), ByteArray(40))
+        assertNotNull(storage.getClassBytes(key("a")))
+        assertNull(storage.getClassBytes(key("b")))
+        assertNotNull(storage.getClassBytes(key("c")))
+        assertEquals(1L, storage.statistics.evictions.get())
+    }
+
+    fun testEntryLargerThanCacheIsNotStored() {
+        val storage = InlineCacheStorage(maxSizeInBytes = 100)
+        storage.putClassBytes(key("a"), ByteArray(40))
+        storage.putClassBytes(key("b"), ByteArray(101))
+        assertNotNull(storage.getClassBytes(key("a")))
+        assertNull(storage.getClassBytes(key("b")))
+        assertEquals(0L, storage.statistics.evictions.get())
+    }
+
+    fun testClassFilesWithDifferentContentsAreDifferentEntries() {
+        val storage = InlineCacheStorage()
+        storage.putClassBytes(ClassFileKey("lib.jar!/A.class", 1), byteArrayOf(1))
+        assertNull(storage.getClassBytes(ClassFileKey("lib.jar!/A.class", 2)))
+    }
+
+    fun testMethodNodeMissesAreCounted() {
+        val storage = InlineCacheStorage()
+        assertNull(storage.getMethodNode(MethodNodeKey(key("a"), Method("foo", "()V"))))
+        assertEquals(0L, storage.statistics.hits.get())
+        assertEquals(1L, storage.statistics.misses.get())
+    }
+
+    fun testSharedStorageIsRecreatedForAnotherSize() {
+        val storage = InlineCacheStorage.getShared(1024)
+        assertSame(storage, InlineCacheStorage.getShared(1024))
+        assertNotSame(storage, InlineCacheStorage.getShared(2048))
+    }
+
+    private fun key(name: String) = ClassFileKey("lib.jar!/$name.class", 0)
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.codegen.optimization.MethodOptimizationQueue
+import org.jetbrains.kotlin.config.JVMConfigurationKeys
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.util.assertSameResultOnThreads
+import java.util.concurrent.Executors
+
+class ParallelCodegenTest : CodegenTestCase() {
+    fun testOutputIsSameAsInSequentialMode() {
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.NO_KOTLIN_REFLECT)
+
+        val files = createFiles()
+        assertSameResultOnThreads { threads -> generate(files, threads = threads).toList() }
+    }
+
+    fun testParallelMethodOptimizationDoesNotChangeCode() {
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.NO_KOTLIN_REFLECT)
+
+        // Constant pools may be ordered differently, see MethodOptimizationQueue, so the classes are compared as text
+
+        val files = createFiles()
+        assertSameResultOnThreads { threads -> generate(files, optimizationThreads = threads).toList() }
+    }
+
+    fun testMethodFinishedAfterClassIsEmitted() {
+        val executor = Executors.newSingleThreadExecutor()
+        try {
+            val queue = MethodOptimizationQueue(executor)
+            val emitted = ArrayList<String>()
+            queue.submit({}, { emitted.add("a") })
+            queue.submit({}, { emitted.add("b") })
+            queue.emitAll()
+            assertFalse(queue.hasPendingMethods)
+
+            queue.submit({}, { emitted.add("c") })
+            assertFalse(queue.hasPendingMethods)
+            assertEquals(listOf("a", "b", "c"), emitted)
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    private fun createFiles(): List<KtFile> =
+        listOf(
+            KotlinTestUtils.createFile(
+                "inline.kt",
+                """
+                    package lib
+
+                    enum class Color { RED, GREEN, BLUE }
+
+                    inline fun <T> withObject(crossinline f: () -> T): () -> T =
+                        object : () -> T {
+                            override fun invoke() = f()
+                        }
+
+                    inline fun colorName(c: Color): String = when (c) {
+                        Color.RED -> "red"
+                        Color.GREEN -> "green"
+                        Color.BLUE -> "blue"
+                    }
+                """.trimIndent(),
+                myEnvironment.project
+            )
+        ) + (0 until 16).map { i ->
+            KotlinTestUtils.createFile(
+                "file$i.kt",
+                """
+                    package p${i % 3}
+
+                    import lib.*
+
+                    class C$i(val x: Int) {
+                        fun f() = withObject { x + $i }() + listOf(1, 2, 3).map { it * x }.sum()
+
+                        companion object {
+                            fun name(c: Color) = colorName(c) + $i
+                        }
+                    }
+
+                    fun topLevel$i() = C$i($i).f() + { "lambda$i" }().length
+
+                    suspend fun suspending$i(x: Int?): Int {
+                        val y: Any = x ?: 0
+                        return if (y is Int) y + $i else $i
+                    }
+                """.trimIndent(),
+                myEnvironment.project
+            )
+        }
+
+    private fun generate(files: List<KtFile>, threads: Int = 1, optimizationThreads: Int = 1): Map<String, String> {
+        val configuration = myEnvironment.configuration.copy()
+        configuration.put(JVMConfigurationKeys.PARALLEL_BACKEND_THREADS, threads)
+        configuration.put(JVMConfigurationKeys.PARALLEL_METHOD_OPTIMIZATION_THREADS, optimizationThreads)
+        val state = GenerationUtils.compileFiles(files, configuration, ClassBuilderFactories.TEST, myEnvironment::createPackagePartProvider)
+        try {
+            assertEquals(threads > 1, state.isParallelCodegen)
+            return state.factory.createTextForEachFile()
+        } finally {
+            state.destroy()
+        }
+    }
+}
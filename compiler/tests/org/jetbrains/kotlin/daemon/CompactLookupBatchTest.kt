@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.daemon.common.CompactLookupBatch
+import org.jetbrains.kotlin.daemon.common.CompilerCallbackServicesFacade
+import org.jetbrains.kotlin.incremental.components.LookupInfo
+import org.jetbrains.kotlin.incremental.components.Position
+import org.jetbrains.kotlin.incremental.components.ScopeKind
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.ObjectInputStream
+import java.io.ObjectOutputStream
+import java.lang.reflect.Proxy
+import java.rmi.ServerException
+import java.rmi.UnmarshalException
+
+class CompactLookupBatchTest : TestCase() {
+    private val lookups = listOf(
+        LookupInfo("/src/a.kt", Position(1, 5), "foo", ScopeKind.PACKAGE, "bar"),
+        LookupInfo("/src/a.kt", Position(2, 1), "foo.Bar", ScopeKind.CLASSIFIER, "baz"),
+        LookupInfo("/src/b.kt", Position(10, 20), "foo", ScopeKind.PACKAGE, "foo"),
+        LookupInfo("/src/b.kt", Position(11, 3), "", ScopeKind.PACKAGE, "Bar")
+    )
+
+    fun testRoundTripWithPositions() {
+        val builder = CompactLookupBatch.Builder(maxSize = 10, recordPositions = true)
+        lookups.forEach { builder.add(it) }
+
+        assertEquals(lookups, serializeAndReadBack(builder.build()).toList())
+    }
+
+    fun testRoundTripWithoutPositions() {
+        val builder = CompactLookupBatch.Builder(maxSize = 10, recordPositions = false)
+        lookups.forEach { builder.add(it.copy(position = Position.NO_POSITION)) }
+
+        assertEquals(lookups.map { it.copy(position = Position.NO_POSITION) }, serializeAndReadBack(builder.build()).toList())
+    }
+
+    fun testRepeatedLookupsWithoutPositionsAreAddedOnce() {
+        val builder = CompactLookupBatch.Builder(maxSize = 10, recordPositions = false)
+        repeat(3) {
+            lookups.forEach { builder.add(it.copy(position = Position.NO_POSITION)) }
+        }
+
+        val batch = builder.build()
+        assertEquals(lookups.size, batch.size)
+        assertEquals(lookups.map { it.copy(position = Position.NO_POSITION) }, batch.toList())
+    }
+
+    fun testRepeatedLookupsWithPositionsAreKept() {
+        val builder = CompactLookupBatch.Builder(maxSize = 10, recordPositions = true)
+        builder.add(lookups[0])
+        builder.add(lookups[0])
+
+        assertEquals(listOf(lookups[0], lookups[0]), builder.build().toList())
+    }
+
+    fun testBuilderIsFull() {
+        val builder = CompactLookupBatch.Builder(maxSize = 2, recordPositions = true)
+        assertTrue(builder.isEmpty)
+        builder.add(lookups[0])
+        assertFalse(builder.isFull)
+        builder.add(lookups[1])
+        assertTrue(builder.isFull)
+    }
+
+    fun testClientFlushesFullBatches() {
+        val batches = ArrayList<CompactLookupBatch>()
+        val eventManager = EventManagerImpl()
+        val client = RemoteLookupTrackerClient(createFacade(requiresPosition = true, batches = batches), eventManager, batchSize = 3)
+
+        lookups.forEach { client.record(it.filePath, it.position, it.scopeFqName, it.scopeKind, it.name) }
+        assertEquals(1, batches.size)
+        assertEquals(lookups.take(3), batches.single().toList())
+
+        eventManager.fireCompilationFinished()
+        assertEquals(2, batches.size)
+        assertEquals(lookups.drop(3), batches[1].toList())
+
+        eventManager.fireCompilationFinished()
+        assertEquals(2, batches.size)
+    }
+
+    fun testClientDropsRepeatedLookupsWithinBatch() {
+        val batches = ArrayList<CompactLookupBatch>()
+        val eventManager = EventManagerImpl()
+        val client = RemoteLookupTrackerClient(createFacade(requiresPosition = false, batches = batches), eventManager, batchSize = 3)
+
+        repeat(2) {
+            client.record("/src/a.kt", Position(1, 1), "foo", ScopeKind.PACKAGE, "bar")
+            client.record("/src/a.kt", Position(2, 2), "foo", ScopeKind.PACKAGE, "baz")
+        }
+        assertTrue(batches.isEmpty())
+
+        eventManager.fireCompilationFinished()
+        assertEquals(
+            listOf(
+                LookupInfo("/src/a.kt", Position.NO_POSITION, "foo", ScopeKind.CLASSIFIER, "bar"),
+                LookupInfo("/src/a.kt", Position.NO_POSITION, "foo", ScopeKind.CLASSIFIER, "baz")
+            ),
+            batches.single().toList()
+        )
+    }
+
+    fun testClientFallsBackToSingleLookupsForOldFacade() {
+        val recorded = ArrayList<Collection<LookupInfo>>()
+        var batchCalls = 0
+        val facade = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(CompilerCallbackServicesFacade::class.java)) { _, method, args ->
+            when (method.name) {
+                "lookupTracker_isDoNothing" -> false
+                "lookupTracker_requiresPosition" -> true
+                "lookupTracker_record" -> {
+                    @Suppress("UNCHECKED_CAST")
+                    recorded.add(args[0] as Collection<LookupInfo>)
+                    null
+                }
+                "lookupTracker_recordBatch" -> {
+                    // This is what an RMI client built before the method was added reports
+                    batchCalls++
+                    throw ServerException(
+                        "RemoteException occurred in server thread",
+                        UnmarshalException("unrecognized method hash: method not supported by remote object")
+                    )
+                }
+                else -> throw UnsupportedOperationException(method.name)
+            }
+        } as CompilerCallbackServicesFacade
+        val eventManager = EventManagerImpl()
+        val client = RemoteLookupTrackerClient(facade, eventManager, batchSize = 2)
+
+        lookups.forEach { client.record(it.filePath, it.position, it.scopeFqName, it.scopeKind, it.name) }
+        eventManager.fireCompilationFinished()
+
+        assertEquals(1, batchCalls)
+        assertEquals(listOf(lookups.take(2), lookups.drop(2)), recorded.map { it.toList() })
+    }
+
+    private fun CompactLookupBatch.Builder.add(lookup: LookupInfo) {
+        add(lookup.filePath, lookup.position, lookup.scopeFqName, lookup.scopeKind, lookup.name)
+    }
+
+    private fun CompactLookupBatch.toList(): List<LookupInfo> {
+        val result = ArrayList<LookupInfo>()
+        forEach { filePath, position, scopeFqName, scopeKind, name ->
+            result.add(LookupInfo(filePath, position, scopeFqName, scopeKind, name))
+        }
+        return result
+    }
+
+    private fun serializeAndReadBack(batch: CompactLookupBatch): CompactLookupBatch {
+        val bytes = ByteArrayOutputStream().also { ObjectOutputStream(it).use { it.writeObject(batch) } }.toByteArray()
+        return ObjectInputStream(ByteArrayInputStream(bytes)).use { it.readObject() as CompactLookupBatch }
+    }
+
+    private fun createFacade(requiresPosition: Boolean, batches: MutableList<CompactLookupBatch>): CompilerCallbackServicesFacade =
+        Proxy.newProxyInstance(javaClass.classLoader, arrayOf(CompilerCallbackServicesFacade::class.java)) { _, method, args ->
+            when (method.name) {
+                "lookupTracker_isDoNothing" -> false
+                "lookupTracker_requiresPosition" -> requiresPosition
+                "lookupTracker_recordBatch" -> {
+                    batches.add(args[0] as CompactLookupBatch)
+                    null
+                }
+                else -> throw UnsupportedOperationException(method.name)
+            }
+        } as CompilerCallbackServicesFacade
+}
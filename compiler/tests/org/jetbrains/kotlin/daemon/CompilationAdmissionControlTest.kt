@@ -0,0 +1,75 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.daemon.common.COMPILE_DAEMON_PARALLEL_COMPILATIONS_UNLIMITED
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+
+class CompilationAdmissionControlTest : TestCase() {
+    fun testUnlimitedAdmitsImmediately() {
+        val control = CompilationAdmissionControl(COMPILE_DAEMON_PARALLEL_COMPILATIONS_UNLIMITED)
+        repeat(10) { control.admit() }
+        assertEquals(10, control.runningCompilations)
+    }
+
+    fun testCompilationWaitsUntilReleased() {
+        val control = CompilationAdmissionControl(2)
+        control.admit()
+        control.admit()
+
+        val admitted = CountDownLatch(1)
+        val waiting = thread {
+            control.admit()
+            admitted.countDown()
+        }
+
+        assertFalse("compilation over the limit should wait", admitted.await(200, TimeUnit.MILLISECONDS))
+        assertEquals(2, control.runningCompilations)
+
+        control.release()
+        assertTrue("compilation should be admitted after release", admitted.await(10, TimeUnit.SECONDS))
+        waiting.join()
+        assertEquals(2, control.runningCompilations)
+    }
+
+    fun testWaitTimeIsMeasured() {
+        val control = CompilationAdmissionControl(1)
+        control.admit()
+
+        var waitTime = 0L
+        val waiting = thread { waitTime = control.admit().waitTime }
+        Thread.sleep(100)
+        control.release()
+        waiting.join()
+
+        assertTrue("wait time $waitTime ns is too short", waitTime >= TimeUnit.MILLISECONDS.toNanos(50))
+    }
+
+    fun testLimitIsKeptUnderContention() {
+        val limit = 3
+        val control = CompilationAdmissionControl(limit)
+        var maxRunning = 0
+        val lock = Object()
+
+        val threads = (1..16).map {
+            thread {
+                repeat(20) {
+                    control.admit()
+                    synchronized(lock) { maxRunning = maxOf(maxRunning, control.runningCompilations) }
+                    Thread.yield()
+                    control.release()
+                }
+            }
+        }
+        threads.forEach { it.join() }
+
+        assertEquals(0, control.runningCompilations)
+        assertTrue("$maxRunning compilations were running at once", maxRunning in 1..limit)
+    }
+}
@@ -158,6 +158,30 @@ class CompilerDaemonTest : KotlinIntegrationTestBase() {
         }
     }
 
+    fun testCompilationsWithProjectEnvironmentPool() {
+        withFlagFile(getTestName(true), ".alive") { flagFile ->
+            val daemonOptions = makeTestDaemonOptions(getTestName(true)).apply { projectEnvironmentPoolSize = 2 }
+            val daemonJVMOptions = makeTestDaemonJvmOptions()
+
+            try {
+                val results = (1..4).map { i ->
+                    val jar = testTempDir.absolutePath + File.separator + "hello.$i.jar"
+                    val res = compileOnDaemon(
+                        flagFile, compilerId, daemonJVMOptions, daemonOptions,
+                        "-include-runtime", File(getHelloAppBaseDir(), "hello.kt").absolutePath, "-d", jar
+                    )
+                    assertEquals("compilation $i failed:\n${res.out}", 0, res.resultCode)
+                    runJava(getHelloAppBaseDir(), "hello.run", "-cp", jar, "Hello.HelloKt")
+                    AbstractCliTest.removePerfOutput(res.out)
+                }
+                assertEquals("build results differ", 1, results.distinct().size)
+            }
+            finally {
+                KotlinCompilerClient.shutdownCompileService(compilerId, daemonOptions)
+            }
+        }
+    }
+
     fun testDaemonJvmOptionsParsing() {
         val backupJvmOptions = System.getProperty(COMPILE_DAEMON_JVM_OPTIONS_PROPERTY)
         try {
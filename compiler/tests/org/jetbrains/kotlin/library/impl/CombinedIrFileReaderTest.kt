@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.library.impl
+
+import junit.framework.TestCase
+
+class CombinedIrFileReaderTest : TestCase() {
+    fun testLookupsForDifferentDeclarationCounts() {
+        // Counts around the powers of two at which the hash table grows
+        for (count in listOf(1, 2, 3, 4, 5, 7, 8, 9, 63, 64, 65, 1000, 4096, 4097)) {
+            val declarations = (0 until count).map { i -> declarationId(i) to "declaration $i".toByteArray() }
+            val reader = write(declarations)
+
+            for ((id, bytes) in declarations) {
+                assertEquals("$count declarations, $id", String(bytes), String(reader.declarationBytes(id)))
+            }
+            assertMissing(reader, DeclarationId(declarationId(count).id, false))
+        }
+    }
+
+    fun testMissingIds() {
+        assertMissing(write(emptyList()), DeclarationId(0, false))
+
+        val reader = write(listOf(DeclarationId(1, false) to byteArrayOf(1), DeclarationId(2, true) to byteArrayOf(2)))
+        assertMissing(reader, DeclarationId(1, true))
+        assertMissing(reader, DeclarationId(2, false))
+        assertMissing(reader, DeclarationId(3, false))
+        assertMissing(reader, DeclarationId(1L + (1L shl 32), false))
+    }
+
+    fun testRepeatedIdRefersToLastRecord() {
+        val id = DeclarationId(42, false)
+        val writer = CombinedIrFileWriter(6)
+        writer.addDeclaration(id, "first".toByteArray())
+        writer.skipDeclaration()
+        writer.addDeclaration(DeclarationId(42, true), "local".toByteArray())
+        writer.addDeclaration(id, "second".toByteArray())
+        writer.skipDeclaration()
+        writer.addDeclaration(id, "last".toByteArray())
+        val reader = CombinedIrFileReader(writer.finishWriting())
+
+        assertEquals("last", String(reader.declarationBytes(id)))
+        assertEquals("local", String(reader.declarationBytes(DeclarationId(42, true))))
+    }
+
+    // Ids differing in the high and low halves, local and not
+    private fun declarationId(index: Int): DeclarationId =
+        DeclarationId((index.toLong() shl 33) xor (index * 7919L), index % 3 == 0)
+
+    private fun write(declarations: List<Pair<DeclarationId, ByteArray>>): CombinedIrFileReader {
+        val writer = CombinedIrFileWriter(declarations.size)
+        for ((id, bytes) in declarations) {
+            writer.addDeclaration(id, bytes)
+        }
+        return CombinedIrFileReader(writer.finishWriting())
+    }
+
+    private fun assertMissing(reader: CombinedIrFileReader, id: DeclarationId) {
+        val isMissing = try {
+            reader.declarationBytes(id)
+            false
+        } catch (e: Error) {
+            true
+        }
+        assertTrue("$id should be missing", isMissing)
+    }
+}
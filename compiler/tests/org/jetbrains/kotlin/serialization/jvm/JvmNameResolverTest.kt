@@ -167,4 +167,15 @@ class JvmNameResolverTest : KtUsefulTestCase() {
 
         (0..4).forEach { assertEquals("kotlin", n.getString(it)) }
     }
+
+    fun testDecodedStringIsReused() {
+        val n = create {
+            string("Ljava/util/Map\$Entry;", operation = DESC_TO_CLASS_ID)
+        }
+
+        val string = n.getString(0)
+        assertEquals("java/util/Map.Entry", string)
+        assertSame(string, n.getString(0))
+        assertSame(string, n.getQualifiedClassName(0))
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.serialization.jvm
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.load.kotlin.SharedJvmMetadataCache
+import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmProtoBufUtil
+
+class SharedJvmMetadataCacheTest : TestCase() {
+    private val metadata = Pair::class.java.getAnnotation(Metadata::class.java)
+
+    fun testEqualMetadataIsParsedOnce() {
+        val cache = SharedJvmMetadataCache(maxSizeInBytes = 1024L * 1024L)
+        val parsed = cache.getOrParseClass(metadata.data1, metadata.data2) {
+            JvmProtoBufUtil.readClassDataFrom(metadata.data1, metadata.data2)
+        }
+        val reused = cache.getOrParseClass(metadata.data1.copyOf(), metadata.data2.copyOf()) {
+            throw AssertionError("Metadata should not be parsed again")
+        }
+
+        assertSame(parsed, reused)
+        assertEquals(1L, cache.statistics.hits.get())
+        assertEquals(1L, cache.statistics.misses.get())
+    }
+
+    fun testClassAndPackageEntriesAreDifferent() {
+        val cache = SharedJvmMetadataCache(maxSizeInBytes = 1024L * 1024L)
+        cache.getOrParseClass(metadata.data1, metadata.data2) { JvmProtoBufUtil.readClassDataFrom(metadata.data1, metadata.data2) }
+
+        var parsed = false
+        try {
+            cache.getOrParsePackage(metadata.data1, metadata.data2) {
+                parsed = true
+                throw IllegalStateException()
+            }
+        } catch (e: IllegalStateException) {
+        }
+        assertTrue(parsed)
+    }
+
+    fun testEntryLargerThanCacheIsNotStored() {
+        val cache = SharedJvmMetadataCache(maxSizeInBytes = 16)
+        repeat(2) {
+            cache.getOrParseClass(metadata.data1, metadata.data2) { JvmProtoBufUtil.readClassDataFrom(metadata.data1, metadata.data2) }
+        }
+        assertEquals(0L, cache.statistics.hits.get())
+        assertEquals(2L, cache.statistics.misses.get())
+    }
+
+    fun testSharedCacheIsRecreatedForAnotherSize() {
+        val cache = SharedJvmMetadataCache.getShared(1024)
+        assertSame(cache, SharedJvmMetadataCache.getShared(1024))
+        assertNotSame(cache, SharedJvmMetadataCache.getShared(2048))
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.storage;
+
+import kotlin.jvm.functions.Function0;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentStorageManagerTest extends StorageManagerTest {
+    private static final int THREADS = 8;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        m = LockBasedStorageManager.createConcurrent("ConcurrentStorageManagerTest", LockBasedStorageManager.ExceptionHandlingStrategy.THROW);
+    }
+
+    public void testLazyValueIsComputedOnceOnManyThreads() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        NotNullLazyValue<String> value = m.createLazyValue(() -> {
+            counter.incrementAndGet();
+            sleep();
+            return "ok";
+        });
+
+        for (Future<String> result : invokeOnManyThreads(value)) {
+            assertEquals("ok", result.get());
+        }
+        assertEquals(1, counter.get());
+    }
+
+    public void testFunctionIsComputedOnceOnManyThreads() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        MemoizedFunctionToNotNull<String, String> f = m.createMemoizedFunction(s -> {
+            counter.incrementAndGet();
+            sleep();
+            return s + "!";
+        });
+
+        for (Future<String> result : invokeOnManyThreads(() -> f.invoke("ok"))) {
+            assertEquals("ok!", result.get());
+        }
+        assertEquals(1, counter.get());
+    }
+
+    public void testIndependentValuesAreComputedInParallel() throws Exception {
+        // Would time out if the storage manager held a single lock during computations
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        MemoizedFunctionToNotNull<String, String> f = m.createMemoizedFunction(s -> {
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+            }
+            catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return s;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> f.invoke("first"));
+            Future<String> second = executor.submit(() -> f.invoke("second"));
+            assertEquals("first", first.get());
+            assertEquals("second", second.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testRecursionAcrossThreads() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        class C {
+            NotNullLazyValue<String> a = m.createLazyValue(() -> {
+                await(barrier);
+                return C.this.b.invoke();
+            });
+            NotNullLazyValue<String> b = m.createLazyValue(() -> {
+                await(barrier);
+                return C.this.a.invoke();
+            });
+        }
+
+        C c = new C();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> c.a.invoke());
+            Future<String> second = executor.submit(() -> c.b.invoke());
+
+            for (Future<String> result : new Future[] {first, second}) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                    fail("Recursion should have been detected");
+                }
+                catch (ExecutionException e) {
+                    assertTrue("Wrong exception class: " + e.getCause(), e.getCause() instanceof IllegalStateException);
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> List<Future<T>> invokeOnManyThreads(Function0<T> computation) {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(computation::invoke));
+            }
+            return results;
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        }
+        catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
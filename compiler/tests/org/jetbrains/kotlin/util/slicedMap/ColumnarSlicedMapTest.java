@@ -0,0 +1,184 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.util.slicedMap;
+
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+public class ColumnarSlicedMapTest extends TestCase {
+    private static final RewritePolicy KEEP_OLD_VALUE = new RewritePolicy() {
+        @Override
+        public <K> boolean rewriteProcessingNeeded(K key) {
+            return true;
+        }
+
+        @Override
+        public <K, V> boolean processRewrite(WritableSlice<K, V> slice, K key, V oldValue, V newValue) {
+            return false;
+        }
+    };
+
+    private static final RewritePolicy REWRITE = new RewritePolicy() {
+        @Override
+        public <K> boolean rewriteProcessingNeeded(K key) {
+            return true;
+        }
+
+        @Override
+        public <K, V> boolean processRewrite(WritableSlice<K, V> slice, K key, V oldValue, V newValue) {
+            return true;
+        }
+    };
+
+    public void testRewritePolicies() {
+        WritableSlice<String, Integer> keepOld = slice("KEEP_OLD", KEEP_OLD_VALUE);
+        WritableSlice<String, Integer> rewrite = slice("REWRITE", REWRITE);
+        WritableSlice<String, Integer> doNothing = slice("DO_NOTHING", RewritePolicy.DO_NOTHING);
+
+        for (MutableSlicedMap map : createMaps(false, keepOld, rewrite, doNothing)) {
+            for (WritableSlice<String, Integer> slice : Arrays.asList(keepOld, rewrite, doNothing)) {
+                assertNull(map.get(slice, "a"));
+                map.put(slice, "a", 1);
+                map.put(slice, "a", 2);
+                map.put(slice, "b", 3);
+            }
+
+            assertEquals(Integer.valueOf(1), map.get(keepOld, "a"));
+            assertEquals(Integer.valueOf(2), map.get(rewrite, "a"));
+            assertEquals(Integer.valueOf(2), map.get(doNothing, "a"));
+            assertEquals(Integer.valueOf(3), map.get(keepOld, "b"));
+        }
+
+        for (MutableSlicedMap map : createMaps(true, keepOld)) {
+            map.put(keepOld, "a", 1);
+            map.put(keepOld, "a", 2);
+            assertEquals(Integer.valueOf(2), map.get(keepOld, "a"));
+        }
+    }
+
+    public void testComputeValue() {
+        WritableSlice<String, Integer> first = slice("FIRST", REWRITE);
+        @SuppressWarnings("unchecked")
+        WritableSlice<String, Integer> withFurtherLookup =
+                Slices.<String, Integer>sliceBuilder().setFurtherLookupSlices(first).setDebugName("WITH_FURTHER_LOOKUP").build();
+        WritableSlice<String, Boolean> set = Slices.createSimpleSetSlice();
+
+        for (MutableSlicedMap map : createMaps(false, withFurtherLookup, set)) {
+            map.put(first, "a", 1);
+            map.put(withFurtherLookup, "b", 2);
+
+            assertEquals(Integer.valueOf(1), map.get(withFurtherLookup, "a"));
+            assertEquals(Integer.valueOf(2), map.get(withFurtherLookup, "b"));
+            assertNull(map.get(withFurtherLookup, "c"));
+
+            // Set slices don't record the default value and return it for absent keys
+            map.put(set, "a", false);
+            map.put(set, "b", true);
+            assertEquals(Boolean.FALSE, map.get(set, "a"));
+            assertEquals(Boolean.TRUE, map.get(set, "b"));
+            assertEquals(Boolean.FALSE, map.get(set, "c"));
+            assertEquals(Collections.singletonMap("b", true), map.getSliceContents(set));
+        }
+    }
+
+    public void testAfterPut() {
+        WritableSlice<String, Integer> copies = slice("COPIES", REWRITE);
+        BasicWritableSlice<String, Integer> original = new BasicWritableSlice<String, Integer>(REWRITE) {
+            @Override
+            public void afterPut(MutableSlicedMap map, String key, Integer value) {
+                map.put(copies, key, value * 10);
+            }
+        };
+        original.setDebugName("ORIGINAL");
+
+        for (MutableSlicedMap map : createMaps(false, original)) {
+            map.put(original, "a", 1);
+            map.put(original, "a", 2);
+
+            assertEquals(Integer.valueOf(2), map.get(original, "a"));
+            assertEquals(Integer.valueOf(20), map.get(copies, "a"));
+        }
+    }
+
+    public void testForEachAndSliceContentsAreSameAsInSlicedMapImpl() {
+        WritableSlice<Object, Integer> column = slice("COLUMN", REWRITE);
+        WritableSlice<Object, Integer> other = slice("OTHER", REWRITE);
+        WritableSlice<Object, Integer> empty = slice("EMPTY", REWRITE);
+
+        List<MutableSlicedMap> maps = createMaps(false, column, empty);
+        for (MutableSlicedMap map : maps) {
+            for (int i = 0; i < 100; i++) {
+                map.put(column, "key" + i, i);
+                if (i % 3 == 0) {
+                    map.put(other, "key" + i, -i);
+                }
+            }
+        }
+
+        SlicedMapImpl expected = (SlicedMapImpl) maps.get(0);
+        ColumnarSlicedMap actual = (ColumnarSlicedMap) maps.get(1);
+        assertEquals(collectEntries(expected), collectEntries(actual));
+        for (WritableSlice<Object, Integer> slice : Arrays.asList(column, other, empty)) {
+            assertEquals(expected.getSliceContents(slice), actual.getSliceContents(slice));
+        }
+        assertEquals(134, collectEntries(actual).size());
+    }
+
+    public void testRemoveKeys() {
+        WritableSlice<Object, Integer> column = slice("COLUMN", REWRITE);
+        WritableSlice<Object, Integer> other = slice("OTHER", REWRITE);
+        WritableSlice<Object, Integer> collective = Slices.createCollectiveSlice();
+
+        for (MutableSlicedMap map : createMaps(false, column)) {
+            for (int i = 0; i < 10; i++) {
+                map.put(column, i, i);
+                map.put(other, i, -i);
+                map.put(collective, i, i * i);
+            }
+
+            ((SlicedMapImpl) map).removeKeys(key -> (Integer) key % 2 == 0);
+
+            for (int i = 0; i < 10; i++) {
+                boolean removed = i % 2 == 0;
+                assertEquals(removed ? null : Integer.valueOf(i), map.get(column, i));
+                assertEquals(removed ? null : Integer.valueOf(-i), map.get(other, i));
+                assertEquals(removed ? null : Integer.valueOf(i * i), map.get(collective, i));
+            }
+            assertEquals(Arrays.asList(1, 3, 5, 7, 9), new ArrayList<>(map.getKeys(collective)));
+            assertEquals(15, collectEntries(map).size());
+
+            // The map stays usable after removal
+            map.put(column, 0, 100);
+            map.put(collective, 0, 100);
+            assertEquals(Integer.valueOf(100), map.get(column, 0));
+            assertEquals(Arrays.asList(1, 3, 5, 7, 9, 0), new ArrayList<>(map.getKeys(collective)));
+        }
+    }
+
+    @NotNull
+    private static List<MutableSlicedMap> createMaps(boolean alwaysAllowRewrite, @NotNull WritableSlice<?, ?>... columnSlices) {
+        return Arrays.asList(new SlicedMapImpl(alwaysAllowRewrite), new ColumnarSlicedMap(alwaysAllowRewrite, Arrays.asList(columnSlices)));
+    }
+
+    @NotNull
+    private static <K, V> WritableSlice<K, V> slice(@NotNull String debugName, @NotNull RewritePolicy rewritePolicy) {
+        BasicWritableSlice<K, V> slice = new BasicWritableSlice<>(rewritePolicy);
+        slice.setDebugName(debugName);
+        return slice;
+    }
+
+    @NotNull
+    private static Set<List<Object>> collectEntries(@NotNull MutableSlicedMap map) {
+        Set<List<Object>> result = new HashSet<>();
+        map.forEach((slice, key, value) -> {
+            result.add(Arrays.asList(slice, key, value));
+            return null;
+        });
+        return result;
+    }
+}
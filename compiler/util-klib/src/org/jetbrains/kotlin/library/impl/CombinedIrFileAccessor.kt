@@ -24,28 +24,71 @@ data class DeclarationId(val id: Long, val isLocal: Boolean)
 
 class CombinedIrFileReader(file: File) {
     private val buffer = file.map(FileChannel.MapMode.READ_ONLY)
-    private val declarationToOffsetSize = mutableMapOf<DeclarationId, Pair<Int, Int>>()
+
+    // The index is kept in flat arrays with an open addressing hash table over them,
+    // as a map entry per declaration is quite heavy for large libraries.
+    private val ids: LongArray
+    private val isLocal: BooleanArray
+    private val offsets: IntArray
+    private val sizes: IntArray
+    private val slots: IntArray
+    private val slotShift: Int
 
     init {
         val declarationsCount = buffer.int
+        ids = LongArray(declarationsCount)
+        isLocal = BooleanArray(declarationsCount)
+        offsets = IntArray(declarationsCount)
+        sizes = IntArray(declarationsCount)
+        slots = IntArray(Integer.highestOneBit(maxOf(declarationsCount, 1) * 2) * 2)
+        slotShift = Integer.SIZE - Integer.numberOfTrailingZeros(slots.size)
+
         for (i in 0 until declarationsCount) {
-            val id = buffer.long
-            val isLocal = buffer.int != 0
-            val offset = buffer.int
-            val size = buffer.int
-            declarationToOffsetSize[DeclarationId(id, isLocal)] = offset to size
+            ids[i] = buffer.long
+            isLocal[i] = buffer.int != 0
+            offsets[i] = buffer.int
+            sizes[i] = buffer.int
+
+            // Zero marks an empty slot. A repeated id (e.g. of skipped declarations) refers to its last record.
+            var slot = slotOf(ids[i])
+            while (slots[slot] != 0 && !isSameDeclaration(slots[slot] - 1, ids[i], isLocal[i])) {
+                slot = (slot + 1) and (slots.size - 1)
+            }
+            slots[slot] = i + 1
+        }
+    }
+
+    // Fibonacci hashing: the high bits of the product depend on all bits of the hash.
+    private fun slotOf(id: Long): Int {
+        val hash = id xor (id ushr 32)
+        return (hash.toInt() * HASH_MULTIPLIER) ushr slotShift
+    }
+
+    private fun isSameDeclaration(index: Int, id: Long, isLocal: Boolean): Boolean =
+        ids[index] == id && this.isLocal[index] == isLocal
+
+    private fun indexOf(id: DeclarationId): Int {
+        var slot = slotOf(id.id)
+        while (true) {
+            val index = slots[slot] - 1
+            if (index < 0) return -1
+            if (isSameDeclaration(index, id.id, id.isLocal)) return index
+            slot = (slot + 1) and (slots.size - 1)
         }
     }
 
     fun declarationBytes(id: DeclarationId): ByteArray {
-        val offsetSize = declarationToOffsetSize[id] ?: throw Error("No declaration with $id here")
-        val result = ByteArray(offsetSize.second)
-        buffer.position(offsetSize.first)
-        buffer.get(result, 0, offsetSize.second)
+        val index = indexOf(id)
+        if (index < 0) throw Error("No declaration with $id here")
+        val result = ByteArray(sizes[index])
+        buffer.position(offsets[index])
+        buffer.get(result, 0, sizes[index])
         return result
     }
 }
 
+private const val HASH_MULTIPLIER = -0x61c88647 // 0x9E3779B9, the golden ratio
+
 private const val SINGLE_INDEX_RECORD_SIZE = 20  // sizeof(Long) + 3 * sizeof(Int).
 private const val INDEX_HEADER_SIZE = 4  // sizeof(Int).
 
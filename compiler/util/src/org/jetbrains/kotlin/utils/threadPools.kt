@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.utils
+
+import java.util.concurrent.*
+
+/**
+ * Runs [block] with a new pool of [threadCount] threads.
+ * The pool is shut down when [block] completes, and all its threads are finished by then.
+ */
+inline fun <R> withThreadPool(threadCount: Int, block: (ForkJoinPool) -> R): R {
+    val pool = ForkJoinPool(threadCount)
+    try {
+        return block(pool)
+    } finally {
+        pool.shutdownAndAwaitTermination()
+    }
+}
+
+fun ExecutorService.shutdownAndAwaitTermination() {
+    shutdownNow()
+    awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)
+}
+
+/**
+ * Waits for the task and returns its result. If the task failed, its exception is rethrown as is.
+ */
+fun <T> Future<T>.getOrRethrow(): T =
+    try {
+        get()
+    } catch (e: ExecutionException) {
+        throw e.cause ?: e
+    }
+
+/**
+ * Applies [transform] to the elements on the [pool], or on the current thread if there is no pool.
+ * The results are returned in the order of the elements.
+ */
+fun <T, R> Collection<T>.mapInParallel(pool: ExecutorService?, transform: (T) -> R): List<R> {
+    if (pool == null) return map(transform)
+
+    val tasks = map { pool.submit(Callable { transform(it) }) }
+    return tasks.map { it.getOrRethrow() }
+}
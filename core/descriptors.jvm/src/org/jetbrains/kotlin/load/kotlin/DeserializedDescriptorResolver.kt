@@ -38,6 +38,9 @@ class DeserializedDescriptorResolver {
         this.components = components.components
     }
 
+    var metadataCache: JvmMetadataCache = JvmMetadataCache.None
+        @Inject set
+
     private val skipMetadataVersionCheck: Boolean
         get() = components.configuration.skipMetadataVersionCheck
 
@@ -50,7 +53,7 @@ class DeserializedDescriptorResolver {
         val data = readData(kotlinClass, KOTLIN_CLASS) ?: return null
         val strings = kotlinClass.classHeader.strings ?: return null
         val (nameResolver, classProto) = parseProto(kotlinClass) {
-            JvmProtoBufUtil.readClassDataFrom(data, strings)
+            metadataCache.getOrParseClass(data, strings) { JvmProtoBufUtil.readClassDataFrom(data, strings) }
         } ?: return null
         val source = KotlinJvmBinarySourceElement(kotlinClass, kotlinClass.incompatibility, kotlinClass.isPreReleaseInvisible)
         return ClassData(nameResolver, classProto, kotlinClass.classHeader.metadataVersion, source)
@@ -60,7 +63,7 @@ class DeserializedDescriptorResolver {
         val data = readData(kotlinClass, KOTLIN_FILE_FACADE_OR_MULTIFILE_CLASS_PART) ?: return null
         val strings = kotlinClass.classHeader.strings ?: return null
         val (nameResolver, packageProto) = parseProto(kotlinClass) {
-            JvmProtoBufUtil.readPackageDataFrom(data, strings)
+            metadataCache.getOrParsePackage(data, strings) { JvmProtoBufUtil.readPackageDataFrom(data, strings) }
         } ?: return null
         val source = JvmPackagePartSource(
             kotlinClass, packageProto, nameResolver, kotlinClass.incompatibility, kotlinClass.isPreReleaseInvisible
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.load.kotlin
+
+import org.jetbrains.kotlin.container.DefaultImplementation
+import org.jetbrains.kotlin.metadata.ProtoBuf
+import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmNameResolver
+import java.util.*
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Keeps the name resolvers and protos parsed from the metadata of compiled Kotlin classes, see [DeserializedDescriptorResolver].
+ */
+@DefaultImplementation(impl = JvmMetadataCache.None::class)
+interface JvmMetadataCache {
+    fun getOrParseClass(
+        data: Array<String>, strings: Array<String>, parse: () -> Pair<JvmNameResolver, ProtoBuf.Class>
+    ): Pair<JvmNameResolver, ProtoBuf.Class>
+
+    fun getOrParsePackage(
+        data: Array<String>, strings: Array<String>, parse: () -> Pair<JvmNameResolver, ProtoBuf.Package>
+    ): Pair<JvmNameResolver, ProtoBuf.Package>
+
+    object None : JvmMetadataCache {
+        override fun getOrParseClass(
+            data: Array<String>, strings: Array<String>, parse: () -> Pair<JvmNameResolver, ProtoBuf.Class>
+        ) = parse()
+
+        override fun getOrParsePackage(
+            data: Array<String>, strings: Array<String>, parse: () -> Pair<JvmNameResolver, ProtoBuf.Package>
+        ) = parse()
+    }
+}
+
+class JvmMetadataCacheStatistics {
+    val hits = AtomicLong()
+    val misses = AtomicLong()
+    val evictions = AtomicLong()
+
+    override fun toString() = "hits: ${hits.get()}, misses: ${misses.get()}, evictions: ${evictions.get()}"
+}
+
+/**
+ * Least recently used parsed metadata, limited by its estimated size in memory. Parsed protos are immutable, so the cache may be shared
+ * by all compilations in the process (e.g. in the compile daemon), and classes of the standard library and other libraries on their
+ * classpaths are parsed once.
+ *
+ * Entries are keyed by the metadata strings themselves rather than by the class file, so they are reused for the same class found
+ * in different jars, and can never be stale.
+ */
+class SharedJvmMetadataCache(val maxSizeInBytes: Long) : JvmMetadataCache {
+    private class Key(val isClass: Boolean, val data: Array<String>, val strings: Array<String>) {
+        private val hashCode = (Arrays.hashCode(data) * 31 + Arrays.hashCode(strings)) * 31 + isClass.hashCode()
+
+        val sizeInChars: Long
+            get() = data.sumBy { it.length }.toLong() + strings.sumBy { it.length }
+
+        override fun equals(other: Any?): Boolean =
+            other is Key && other.isClass == isClass && Arrays.equals(other.data, data) && Arrays.equals(other.strings, strings)
+
+        override fun hashCode(): Int = hashCode
+    }
+
+    private class Entry(val value: Any, val sizeInBytes: Long)
+
+    val statistics = JvmMetadataCacheStatistics()
+
+    private val entries = LinkedHashMap<Key, Entry>(16, 0.75f, /* accessOrder = */ true)
+    private var sizeInBytes = 0L
+
+    override fun getOrParseClass(
+        data: Array<String>, strings: Array<String>, parse: () -> Pair<JvmNameResolver, ProtoBuf.Class>
+    ): Pair<JvmNameResolver, ProtoBuf.Class> = getOrParse(Key(true, data, strings), parse)
+
+    override fun getOrParsePackage(
+        data: Array<String>, strings: Array<String>, parse: () -> Pair<JvmNameResolver, ProtoBuf.Package>
+    ): Pair<JvmNameResolver, ProtoBuf.Package> = getOrParse(Key(false, data, strings), parse)
+
+    private fun <T : Any> getOrParse(key: Key, parse: () -> T): T {
+        @Suppress("UNCHECKED_CAST")
+        get(key)?.let { return it as T }
+
+        // Parsed outside of the lock, so a class requested by several threads at once may be parsed more than once
+        return parse().also { put(key, it, key.sizeInChars * PARSED_SIZE_PER_CHAR) }
+    }
+
+    @Synchronized
+    private fun get(key: Key): Any? {
+        val value = entries[key]?.value
+        (if (value != null) statistics.hits else statistics.misses).incrementAndGet()
+        return value
+    }
+
+    @Synchronized
+    private fun put(key: Key, value: Any, size: Long) {
+        if (size > maxSizeInBytes) return
+
+        entries.put(key, Entry(value, size))?.let { sizeInBytes -= it.sizeInBytes }
+        sizeInBytes += size
+
+        val iterator = entries.values.iterator()
+        while (sizeInBytes > maxSizeInBytes) {
+            sizeInBytes -= iterator.next().sizeInBytes
+            iterator.remove()
+            statistics.evictions.incrementAndGet()
+        }
+    }
+
+    companion object {
+        // Roughly what the parsed protos, the name resolver and the key take per char of the encoded metadata
+        private const val PARSED_SIZE_PER_CHAR = 8
+
+        private var shared: SharedJvmMetadataCache? = null
+
+        /**
+         * Returns the cache shared by all compilations in this process, which is recreated if another size is requested.
+         */
+        @JvmStatic
+        @Synchronized
+        fun getShared(maxSizeInBytes: Long): SharedJvmMetadataCache =
+            shared?.takeIf { it.maxSizeInBytes == maxSizeInBytes }
+                ?: SharedJvmMetadataCache(maxSizeInBytes).also { shared = it }
+    }
+}
@@ -28,7 +28,14 @@ class JvmNameResolver(
         this.trimToSize()
     }
 
-    override fun getString(index: Int): String {
+    // The same names and class ids are requested many times during deserialization, so each string is only decoded once.
+    // Concurrent lookups may decode the same string twice, which is harmless
+    private val decodedStrings = arrayOfNulls<String>(records.size)
+
+    override fun getString(index: Int): String =
+        decodedStrings[index] ?: decodeString(index).also { decodedStrings[index] = it }
+
+    private fun decodeString(index: Int): String {
         val record = records[index]
 
         var string = when {
@@ -16,21 +16,29 @@
 
 package kotlin.reflect.jvm.internal
 
+import java.lang.ref.ReferenceQueue
 import java.lang.ref.WeakReference
-import kotlin.reflect.jvm.internal.pcollections.HashPMap
+import java.util.concurrent.ConcurrentHashMap
 
-// TODO: collect nulls periodically
-// Key of the map is Class.getName(), each value is either a WeakReference<KClassImpl<*>> or an Array<WeakReference<KClassImpl<*>>>.
+// Key of the map is Class.getName(), each value is either a KClassReference or an Array<KClassReference>.
 // Arrays are needed because the same class can be loaded by different class loaders, which results in different Class instances.
-// This variable is not volatile intentionally: we don't care if there's a data race on it and some KClass instances will be lost.
-// We do care however about general performance on read access to it, thus no synchronization is done here whatsoever
-private var K_CLASS_CACHE = HashPMap.empty<String, Any>()
+// Reads are lock-free; a value is only ever replaced atomically with the one it was computed from, so no KClass instances are lost.
+// java.lang.ClassValue is not used because it's not available on JDK 6 and Android
+private val K_CLASS_CACHE = ConcurrentHashMap<String, Any>()
+
+// References to KClassImpl instances collected by GC, which are removed from the cache whenever a new KClass is created
+private val COLLECTED_K_CLASSES = ReferenceQueue<KClassImpl<*>>()
+
+private class KClassReference(kClass: KClassImpl<*>, val name: String) : WeakReference<KClassImpl<*>>(kClass, COLLECTED_K_CLASSES)
 
 // This function is invoked on each reflection access to Java classes, properties, etc. Performance is critical here.
 internal fun <T : Any> getOrCreateKotlinClass(jClass: Class<T>): KClassImpl<T> {
     val name = jClass.name
-    val cached = K_CLASS_CACHE[name]
-    if (cached is WeakReference<*>) {
+    return findCachedKotlinClass(K_CLASS_CACHE[name], jClass) ?: createKotlinClass(name, jClass)
+}
+
+private fun <T : Any> findCachedKotlinClass(cached: Any?, jClass: Class<T>): KClassImpl<T>? {
+    if (cached is KClassReference) {
         @Suppress("UNCHECKED_CAST")
         val kClass = cached.get() as KClassImpl<T>?
         if (kClass?.jClass == jClass) {
@@ -38,32 +46,74 @@ internal fun <T : Any> getOrCreateKotlinClass(jClass: Class<T>): KClassImpl<T> {
         }
     } else if (cached != null) {
         // If the cached value is not a weak reference, it's an array of weak references
-        @Suppress("UNCHECKED_CAST")
-        (cached as Array<WeakReference<KClassImpl<T>>>)
-        for (ref in cached) {
-            val kClass = ref.get()
+        for (ref in cached as Array<*>) {
+            @Suppress("UNCHECKED_CAST")
+            val kClass = (ref as KClassReference).get() as KClassImpl<T>?
             if (kClass?.jClass == jClass) {
                 return kClass
             }
         }
-
-        // This is the most unlikely case: we found a cached array of references of length at least 2 (can't be 1 because
-        // the single element would be cached instead), and none of those classes is the one we're looking for
-        val size = cached.size
-        val newArray = arrayOfNulls<WeakReference<KClassImpl<*>>>(size + 1)
-        // Don't use Arrays.copyOf because it works reflectively
-        System.arraycopy(cached, 0, newArray, 0, size)
-        val newKClass = KClassImpl(jClass)
-        newArray[size] = WeakReference(newKClass)
-        K_CLASS_CACHE = K_CLASS_CACHE.plus(name, newArray)
-        return newKClass
     }
+    return null
+}
+
+private fun <T : Any> createKotlinClass(name: String, jClass: Class<T>): KClassImpl<T> {
+    removeCollectedKotlinClasses()
 
     val newKClass = KClassImpl(jClass)
-    K_CLASS_CACHE = K_CLASS_CACHE.plus(name, WeakReference(newKClass))
-    return newKClass
+    val newRef = KClassReference(newKClass, name)
+    while (true) {
+        val cached = K_CLASS_CACHE[name]
+        // Another thread may have created the same KClass by now
+        findCachedKotlinClass(cached, jClass)?.let { return it }
+
+        if (cached == null) {
+            if (K_CLASS_CACHE.putIfAbsent(name, newRef) == null) return newKClass
+        } else {
+            // This is the most unlikely case: the same class name is cached for another class loader
+            if (K_CLASS_CACHE.replace(name, cached, withoutCollectedReferences(cached, newRef)!!)) return newKClass
+        }
+    }
+}
+
+private fun removeCollectedKotlinClasses() {
+    while (true) {
+        val ref = COLLECTED_K_CLASSES.poll() as KClassReference? ?: return
+        while (true) {
+            val cached = K_CLASS_CACHE[ref.name] ?: break
+            val remaining = withoutCollectedReferences(cached, null)
+            if (remaining === cached) break
+            val removed =
+                if (remaining == null) K_CLASS_CACHE.remove(ref.name, cached)
+                else K_CLASS_CACHE.replace(ref.name, cached, remaining)
+            if (removed) break
+        }
+    }
+}
+
+// Returns the cached value with all collected references removed and newRef added, or the same value if nothing has changed
+private fun withoutCollectedReferences(cached: Any, newRef: KClassReference?): Any? {
+    val refs = if (cached is KClassReference) arrayOf<Any?>(cached) else cached as Array<*>
+    var liveCount = if (newRef != null) 1 else 0
+    for (ref in refs) {
+        if ((ref as KClassReference).get() != null) liveCount++
+    }
+    if (newRef == null && liveCount == refs.size) return cached
+
+    val result = arrayOfNulls<KClassReference>(liveCount)
+    var index = 0
+    for (ref in refs) {
+        if ((ref as KClassReference).get() != null) result[index++] = ref
+    }
+    if (newRef != null) result[index] = newRef
+
+    return when (liveCount) {
+        0 -> null
+        1 -> result[0]
+        else -> result
+    }
 }
 
 internal fun clearKClassCache() {
-    K_CLASS_CACHE = HashPMap.empty()
+    K_CLASS_CACHE.clear()
 }
@@ -16,17 +16,24 @@
 
 package kotlin.reflect.jvm.internal
 
+import java.lang.ref.ReferenceQueue
 import java.lang.ref.WeakReference
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ConcurrentMap
 import kotlin.reflect.jvm.internal.components.RuntimeModuleData
 import kotlin.reflect.jvm.internal.structure.safeClassLoader
 
-// TODO: collect nulls periodically
 private val moduleByClassLoader: ConcurrentMap<WeakClassLoaderBox, WeakReference<RuntimeModuleData>> = ConcurrentHashMap()
 
+// References to class loaders collected by GC, whose boxes are removed from the map whenever a new module is created
+private val collectedClassLoaders = ReferenceQueue<ClassLoader>()
+
 private class WeakClassLoaderBox(classLoader: ClassLoader) {
-    val ref: WeakReference<ClassLoader> = WeakReference(classLoader)
+    val ref: WeakReference<ClassLoader> = ClassLoaderReference(classLoader)
+
+    inner class ClassLoaderReference(classLoader: ClassLoader) : WeakReference<ClassLoader>(classLoader, collectedClassLoaders) {
+        val box: WeakClassLoaderBox get() = this@WeakClassLoaderBox
+    }
 
     // Identity hash code is saved because otherwise once the weak reference is GC'd we cannot compute it anymore
     val identityHashCode: Int = System.identityHashCode(classLoader)
@@ -35,7 +42,7 @@ private class WeakClassLoaderBox(classLoader: ClassLoader) {
     var temporaryStrongRef: ClassLoader? = classLoader
 
     override fun equals(other: Any?) =
-        other is WeakClassLoaderBox && ref.get() === other.ref.get()
+        this === other || other is WeakClassLoaderBox && ref.get().let { it != null && it === other.ref.get() }
 
     override fun hashCode() =
         identityHashCode
@@ -55,6 +62,8 @@ internal fun Class<*>.getOrCreateModule(): RuntimeModuleData {
         moduleByClassLoader.remove(key, cached)
     }
 
+    removeCollectedClassLoaders()
+
     val module = RuntimeModuleData.create(classLoader)
     try {
         while (true) {
@@ -69,6 +78,13 @@ internal fun Class<*>.getOrCreateModule(): RuntimeModuleData {
     }
 }
 
+private fun removeCollectedClassLoaders() {
+    while (true) {
+        val ref = collectedClassLoaders.poll() as WeakClassLoaderBox.ClassLoaderReference? ?: return
+        moduleByClassLoader.remove(ref.box)
+    }
+}
+
 internal fun clearModuleByClassLoaderCache() {
     moduleByClassLoader.clear()
 }
@@ -29,6 +29,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -68,18 +70,50 @@ public class LockBasedStorageManager implements StorageManager {
         return new LockBasedStorageManager(debugText, exceptionHandlingStrategy, new ReentrantLock());
     }
 
+    /**
+     * Creates a storage manager which doesn't hold a global lock while lazy values and memoized functions are computed.
+     *
+     * Each lazy value or memoized function entry is computed at most once: a thread which needs a value being computed
+     * on another thread waits only for that computation. Recursion is detected per thread, and a cycle of threads waiting
+     * for each other is reported as a recursion too, since it is exactly what a recursive call is in the single-threaded case.
+     *
+     * {@link #compute(Function0)} is still guarded by a single lock, and thread-safety of {@code postCompute} actions
+     * is not provided by this storage manager: they are executed before the value is visible to other threads, but not exclusively.
+     */
+    @NotNull
+    public static LockBasedStorageManager createConcurrent(
+            @NotNull String debugText,
+            @NotNull ExceptionHandlingStrategy exceptionHandlingStrategy
+    ) {
+        return new LockBasedStorageManager(debugText, exceptionHandlingStrategy, new ReentrantLock(), true);
+    }
+
     protected final Lock lock;
     private final ExceptionHandlingStrategy exceptionHandlingStrategy;
     private final String debugText;
 
+    // Threads waiting for a computation in a concurrent storage manager, used to detect cross-thread recursion
+    @Nullable
+    private final ConcurrentMap<Thread, ComputingMarker> waitingThreads;
+
     private LockBasedStorageManager(
             @NotNull String debugText,
             @NotNull ExceptionHandlingStrategy exceptionHandlingStrategy,
             @NotNull Lock lock
+    ) {
+        this(debugText, exceptionHandlingStrategy, lock, false);
+    }
+
+    private LockBasedStorageManager(
+            @NotNull String debugText,
+            @NotNull ExceptionHandlingStrategy exceptionHandlingStrategy,
+            @NotNull Lock lock,
+            boolean concurrent
     ) {
         this.lock = lock;
         this.exceptionHandlingStrategy = exceptionHandlingStrategy;
         this.debugText = debugText;
+        this.waitingThreads = concurrent ? new ConcurrentHashMap<Thread, ComputingMarker>() : null;
     }
 
     public LockBasedStorageManager(String debugText) {
@@ -94,7 +128,11 @@ public class LockBasedStorageManager implements StorageManager {
     public LockBasedStorageManager replaceExceptionHandling(
             @NotNull String debugText, @NotNull ExceptionHandlingStrategy exceptionHandlingStrategy
     ) {
-        return new LockBasedStorageManager(debugText, exceptionHandlingStrategy, lock);
+        return new LockBasedStorageManager(debugText, exceptionHandlingStrategy, lock, isConcurrent());
+    }
+
+    public boolean isConcurrent() {
+        return waitingThreads != null;
     }
 
     @NotNull
@@ -242,6 +280,47 @@ public class LockBasedStorageManager implements StorageManager {
         return new ConcurrentHashMap<K, Object>(3, 1, 2);
     }
 
+    /**
+     * Waits until the computation marked with {@code marker} is finished by another thread.
+     *
+     * @return {@code false} if waiting would never end, because the owner of {@code marker} (transitively) waits
+     * for a computation started by the current thread
+     */
+    private boolean awaitComputation(@NotNull ComputingMarker marker) {
+        assert waitingThreads != null : "Computations are awaited only in a concurrent storage manager";
+
+        Thread currentThread = Thread.currentThread();
+        waitingThreads.put(currentThread, marker);
+        try {
+            if (isWaitingFor(marker, currentThread) && !marker.isDone()) return false;
+
+            marker.await();
+            return true;
+        }
+        catch (InterruptedException e) {
+            currentThread.interrupt();
+            throw ExceptionUtilsKt.rethrow(e);
+        }
+        finally {
+            waitingThreads.remove(currentThread);
+        }
+    }
+
+    private boolean isWaitingFor(@NotNull ComputingMarker marker, @NotNull Thread thread) {
+        assert waitingThreads != null;
+
+        ComputingMarker next = marker;
+        // A longer chain would contain a cycle which doesn't involve the given thread
+        for (int i = 0; i <= waitingThreads.size(); i++) {
+            if (next.owner == thread) return true;
+
+            next = waitingThreads.get(next.owner);
+            if (next == null) return false;
+        }
+
+        return false;
+    }
+
     @NotNull
     protected <T> RecursionDetectedResult<T> recursionDetectedDefault() {
         throw sanitizeStackTrace(new IllegalStateException("Recursive call in a lazy value under " + this));
@@ -288,6 +367,43 @@ public class LockBasedStorageManager implements StorageManager {
         RECURSION_WAS_DETECTED
     }
 
+    /**
+     * Replaces {@link NotValue#COMPUTING} in a concurrent storage manager: other threads wait for the computation to finish,
+     * while the owner thread treats any further request of the value as a recursive call.
+     */
+    private static class ComputingMarker {
+        private final Thread owner = Thread.currentThread();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile boolean recursionDetected = false;
+
+        // The value is available for the owner thread before it's published, e.g. to recursive calls from postCompute()
+        private boolean hasValue = false;
+        private Object value = null;
+
+        public void setValue(Object value) {
+            this.value = value;
+            this.hasValue = true;
+        }
+
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        public void await() throws InterruptedException {
+            done.await();
+        }
+
+        public void finish() {
+            done.countDown();
+        }
+
+        @Override
+        public String toString() {
+            return "COMPUTING in " + owner.getName();
+        }
+    }
+
     /**
      * Important thread-safety note!
      *
@@ -301,6 +417,10 @@ public class LockBasedStorageManager implements StorageManager {
      * thread-safety of produced lazy values still not guaranteed.
      */
     private static class LockBasedLazyValue<T> implements NullableLazyValue<T> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<LockBasedLazyValue, Object> VALUE_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(LockBasedLazyValue.class, Object.class, "value");
+
         private final LockBasedStorageManager storageManager;
         private final Function0<? extends T> computable;
 
@@ -314,16 +434,20 @@ public class LockBasedStorageManager implements StorageManager {
 
         @Override
         public boolean isComputed() {
-            return value != NotValue.NOT_COMPUTED && value != NotValue.COMPUTING;
+            Object _value = value;
+            return _value != NotValue.NOT_COMPUTED && _value != NotValue.COMPUTING && !(_value instanceof ComputingMarker);
         }
 
         @Override
         public boolean isComputing() {
-            return value == NotValue.COMPUTING;
+            Object _value = value;
+            return _value == NotValue.COMPUTING || _value instanceof ComputingMarker;
         }
 
         @Override
         public T invoke() {
+            if (storageManager.isConcurrent()) return invokeConcurrently();
+
             Object _value = value;
             if (!(_value instanceof NotValue)) return WrappedValues.unescapeThrowable(_value);
 
@@ -373,6 +497,76 @@ public class LockBasedStorageManager implements StorageManager {
             }
         }
 
+        private T invokeConcurrently() {
+            while (true) {
+                Object _value = value;
+
+                if (_value instanceof ComputingMarker) {
+                    ComputingMarker marker = (ComputingMarker) _value;
+                    if (marker.owner == Thread.currentThread()) {
+                        //noinspection unchecked
+                        if (marker.hasValue) return (T) marker.value;
+                    }
+                    else if (storageManager.awaitComputation(marker)) {
+                        continue;
+                    }
+
+                    boolean firstTime = !marker.recursionDetected;
+                    marker.recursionDetected = true;
+                    RecursionDetectedResult<T> result = recursionDetected(firstTime);
+                    if (!result.isFallThrough()) {
+                        return result.getValue();
+                    }
+
+                    // The value is published by the outermost computation
+                    return computable.invoke();
+                }
+
+                if (!(_value instanceof NotValue)) return WrappedValues.unescapeThrowable(_value);
+
+                if (_value == NotValue.RECURSION_WAS_DETECTED) {
+                    RecursionDetectedResult<T> result = recursionDetected(/*firstTime = */ false);
+                    if (!result.isFallThrough()) {
+                        return result.getValue();
+                    }
+                }
+
+                ComputingMarker marker = new ComputingMarker();
+                if (!VALUE_UPDATER.compareAndSet(this, _value, marker)) continue;
+
+                try {
+                    T typedValue = computable.invoke();
+                    marker.setValue(typedValue);
+                    postCompute(typedValue);
+                    value = typedValue;
+                    return typedValue;
+                }
+                catch (Throwable throwable) {
+                    if (ExceptionUtilsKt.isProcessCanceledException(throwable)) {
+                        value = NotValue.NOT_COMPUTED;
+                        //noinspection ConstantConditions
+                        throw (RuntimeException)throwable;
+                    }
+
+                    if (marker.hasValue) {
+                        // Exception in postCompute, the value itself is computed
+                        value = marker.value;
+                    }
+                    else if (marker.recursionDetected) {
+                        // Not a genuine result, but something thrown through recursionDetected()
+                        value = NotValue.RECURSION_WAS_DETECTED;
+                    }
+                    else {
+                        value = WrappedValues.escapeThrowable(throwable);
+                    }
+                    throw storageManager.exceptionHandlingStrategy.handleException(throwable);
+                }
+                finally {
+                    marker.finish();
+                }
+            }
+        }
+
         /**
          * @param firstTime {@code true} when recursion has been just detected, {@code false} otherwise
          * @return a value to be returned on a recursive call or subsequent calls
@@ -429,6 +623,8 @@ public class LockBasedStorageManager implements StorageManager {
         @Override
         @Nullable
         public V invoke(K input) {
+            if (storageManager.isConcurrent()) return invokeConcurrently(input);
+
             Object value = cache.get(input);
             if (value != null && value != NotValue.COMPUTING) return WrappedValues.unescapeExceptionOrNull(value);
 
@@ -480,6 +676,58 @@ public class LockBasedStorageManager implements StorageManager {
             }
         }
 
+        @Nullable
+        private V invokeConcurrently(K input) {
+            while (true) {
+                Object value = cache.get(input);
+
+                if (value instanceof ComputingMarker) {
+                    ComputingMarker marker = (ComputingMarker) value;
+                    if (marker.owner == Thread.currentThread() || !storageManager.awaitComputation(marker)) {
+                        throw recursionDetected(input);
+                    }
+                    continue;
+                }
+
+                if (value != null) return WrappedValues.unescapeExceptionOrNull(value);
+
+                ComputingMarker marker = new ComputingMarker();
+                if (cache.putIfAbsent(input, marker) != null) continue;
+
+                AssertionError error = null;
+                try {
+                    V typedValue = compute.invoke(input);
+
+                    // See the comment on the race condition in invoke()
+                    if (!cache.replace(input, marker, WrappedValues.escapeNull(typedValue))) {
+                        error = raceCondition(input, cache.get(input));
+                        throw error;
+                    }
+
+                    return typedValue;
+                }
+                catch (Throwable throwable) {
+                    if (ExceptionUtilsKt.isProcessCanceledException(throwable)) {
+                        cache.remove(input, marker);
+                        //noinspection ConstantConditions
+                        throw (RuntimeException)throwable;
+                    }
+                    if (throwable == error) {
+                        throw storageManager.exceptionHandlingStrategy.handleException(throwable);
+                    }
+
+                    if (!cache.replace(input, marker, WrappedValues.escapeThrowable(throwable))) {
+                        throw raceCondition(input, cache.get(input));
+                    }
+
+                    throw storageManager.exceptionHandlingStrategy.handleException(throwable);
+                }
+                finally {
+                    marker.finish();
+                }
+            }
+        }
+
         @NotNull
         private AssertionError recursionDetected(K input) {
             return sanitizeStackTrace(
@@ -498,7 +746,7 @@ public class LockBasedStorageManager implements StorageManager {
         @Override
         public boolean isComputed(K key) {
             Object value = cache.get(key);
-            return value != null && value != NotValue.COMPUTING;
+            return value != null && value != NotValue.COMPUTING && !(value instanceof ComputingMarker);
         }
 
         protected LockBasedStorageManager getStorageManager() {
@@ -4,6 +4,9 @@
 
 package org.jetbrains.kotlin.js.util;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Arrays;
 
 public class TextOutputImpl implements TextOutput {
@@ -13,6 +16,8 @@ public class TextOutputImpl implements TextOutput {
     private char[][] indents = new char[][] {new char[0]};
     private boolean justNewlined;
     private final StringBuilder out;
+    private final Writer writer;
+    private static final int FLUSH_THRESHOLD = 1 << 16;
     private int position = 0;
     private int line = 0;
     private int column = 0;
@@ -26,15 +31,48 @@ public class TextOutputImpl implements TextOutput {
     }
 
     public TextOutputImpl(boolean compact) {
+        this(null, compact);
+    }
+
+    /**
+     * Creates an output that passes the text to the writer in chunks of whole lines instead of accumulating it,
+     * so that memory doesn't grow with the size of the generated code. Call {@link #flush()} when done.
+     */
+    public TextOutputImpl(Writer writer, boolean compact) {
         this.compact = compact;
+        this.writer = writer;
         out = new StringBuilder();
     }
 
+    /**
+     * Returns the generated text, or only its part that has not been passed to the writer yet, if there is one.
+     */
     @Override
     public String toString() {
         return out.toString();
     }
 
+    public void flush() {
+        if (writer == null) return;
+        writeBuffer();
+        try {
+            writer.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeBuffer() {
+        try {
+            writer.append(out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.setLength(0);
+    }
+
     @Override
     public int getPosition() {
         return position;
@@ -76,6 +114,9 @@ public class TextOutputImpl implements TextOutput {
         line++;
         column = 0;
         justNewlined = true;
+        if (writer != null && out.length() >= FLUSH_THRESHOLD) {
+            writeBuffer();
+        }
     }
 
     @Override
@@ -23,20 +23,22 @@ import org.jetbrains.kotlin.js.backend.ast.JsBlock
 import org.jetbrains.kotlin.js.backend.ast.JsGlobalBlock
 import org.jetbrains.kotlin.js.backend.ast.JsNode
 import org.jetbrains.kotlin.js.backend.ast.JsProgram
+import org.jetbrains.kotlin.js.backend.ast.JsScope
+import org.jetbrains.kotlin.js.backend.ast.JsStatement
 import org.jetbrains.kotlin.js.dce.Context.Node
 import org.jetbrains.kotlin.js.facade.SourceMapBuilderConsumer
 import org.jetbrains.kotlin.js.inline.util.collectDefinedNames
 import org.jetbrains.kotlin.js.inline.util.fixForwardNameReferences
-import org.jetbrains.kotlin.js.parser.parse
-import org.jetbrains.kotlin.js.parser.sourcemaps.SourceMapError
-import org.jetbrains.kotlin.js.parser.sourcemaps.SourceMapLocationRemapper
-import org.jetbrains.kotlin.js.parser.sourcemaps.SourceMapParser
-import org.jetbrains.kotlin.js.parser.sourcemaps.SourceMapSuccess
+import org.jetbrains.kotlin.js.parser.parseWithDeferredScope
+import org.jetbrains.kotlin.js.parser.sourcemaps.*
 import org.jetbrains.kotlin.js.sourceMap.SourceFilePathResolver
 import org.jetbrains.kotlin.js.sourceMap.SourceMap3Builder
 import org.jetbrains.kotlin.js.util.TextOutputImpl
+import org.jetbrains.kotlin.utils.mapInParallel
+import org.jetbrains.kotlin.utils.withThreadPool
 import java.io.File
 import java.io.InputStreamReader
+import java.util.concurrent.ExecutorService
 
 class DeadCodeElimination(private val logConsumer: (DCELogLevel, String) -> Unit) {
     val moduleMapping = mutableMapOf<JsBlock, String>()
@@ -75,21 +77,39 @@ class DeadCodeElimination(private val logConsumer: (DCELogLevel, String) -> Unit
         fun run(
                 inputFiles: Collection<InputFile>,
                 rootReachableNames: Set<String>,
+                threadCount: Int = 1,
+                logConsumer: (DCELogLevel, String) -> Unit
+        ): DeadCodeEliminationResult {
+            return if (threadCount > 1) {
+                withThreadPool(threadCount) { pool -> run(inputFiles, rootReachableNames, pool, logConsumer) }
+            }
+            else {
+                run(inputFiles, rootReachableNames, null, logConsumer)
+            }
+        }
+
+        private fun run(
+                inputFiles: Collection<InputFile>,
+                rootReachableNames: Set<String>,
+                pool: ExecutorService?,
                 logConsumer: (DCELogLevel, String) -> Unit
         ): DeadCodeEliminationResult {
             val program = JsProgram()
             val dce = DeadCodeElimination(logConsumer)
 
+            // Names are declared in the shared program scope, so only parsing itself is done in parallel
+            val parsedFiles = inputFiles.mapInParallel(pool, ::parseFile)
+
             var hasErrors = false
-            val blocks = inputFiles.map { file ->
+            val blocks = inputFiles.zip(parsedFiles).map { (file, parsedFile) ->
+                parsedFile.messages.forEach { (level, message) -> logConsumer(level, message) }
+
                 val block = JsGlobalBlock()
-                val code = file.resource.reader().let { InputStreamReader(it, "UTF-8") }.use { it.readText() }
-                val statements = parse(code, Reporter(file.resource.name, logConsumer), program.scope, file.resource.name) ?: run {
+                val statements = parsedFile.declareNames?.invoke(program.scope) ?: run {
                     hasErrors = true
                     return@map block
                 }
-                val sourceMapParse = file.sourceMapResource
-                        ?.let { SourceMapParser.parse(InputStreamReader(it.reader(), "UTF-8").readText()) }
+                val sourceMapParse = parsedFile.sourceMapParse
                 when (sourceMapParse) {
                     is SourceMapError -> {
                         logConsumer(
@@ -115,31 +135,58 @@ class DeadCodeElimination(private val logConsumer: (DCELogLevel, String) -> Unit
             dce.reachableNames += rootReachableNames
             dce.apply(program.globalBlock)
 
-            for ((file, block) in inputFiles.zip(blocks)) {
-                val sourceMapFile = File(file.outputPath + ".map")
-                val textOutput = TextOutputImpl()
-                val sourceMapBuilder = SourceMap3Builder(File(file.outputPath), textOutput, "")
+            inputFiles.zip(blocks).mapInParallel(pool) { (file, block) -> writeOutput(file, block) }
+
+            return DeadCodeEliminationResult(dce.reachableNodes, DeadCodeEliminationStatus.OK)
+        }
+
+        private class ParsedFile(
+                val declareNames: ((JsScope) -> List<JsStatement>)?,
+                val sourceMapParse: SourceMapParseResult?,
+                val messages: List<Pair<DCELogLevel, String>>
+        )
+
+        private fun parseFile(file: InputFile): ParsedFile {
+            val messages = mutableListOf<Pair<DCELogLevel, String>>()
+            val code = file.resource.reader().let { InputStreamReader(it, "UTF-8") }.use { it.readText() }
+            val declareNames = parseWithDeferredScope(code, Reporter(file.resource.name) { level, message ->
+                messages += level to message
+            }, file.resource.name)
+            val sourceMapParse = if (declareNames != null) {
+                file.sourceMapResource?.let { sourceMap ->
+                    SourceMapParser.parse(InputStreamReader(sourceMap.reader(), "UTF-8").use { it.readText() })
+                }
+            }
+            else {
+                null
+            }
+            return ParsedFile(declareNames, sourceMapParse, messages)
+        }
+
+        private fun writeOutput(file: InputFile, block: JsBlock) {
+            val outputFile = File(file.outputPath)
+            val sourceMapFile = File(file.outputPath + ".map")
+            outputFile.parentFile.mkdirs()
+
+            // Both the code and the source map are written to the files as they are generated, not to keep them in memory as a whole
+            val sourceMapBuilder = outputFile.bufferedWriter().use { writer ->
+                val textOutput = TextOutputImpl(writer, false)
+                val sourceMapBuilder = SourceMap3Builder(outputFile, textOutput, "")
 
                 val inputFile = File(file.resource.name)
                 val sourceBaseDir = if (inputFile.exists()) inputFile.parentFile else File(".")
 
-                val sourcePathResolver = SourceFilePathResolver(emptyList(), File(file.outputPath).parentFile)
+                val sourcePathResolver = SourceFilePathResolver(emptyList(), outputFile.parentFile)
                 val consumer = SourceMapBuilderConsumer(sourceBaseDir, sourceMapBuilder, sourcePathResolver, true, true)
                 block.accept(JsToStringGenerationVisitor(textOutput, consumer))
-                val sourceMapContent = sourceMapBuilder.build()
                 sourceMapBuilder.addLink()
-
-                with(File(file.outputPath)) {
-                    parentFile.mkdirs()
-                    writeText(textOutput.toString())
-                }
-
-                if (file.sourceMapResource != null) {
-                    sourceMapFile.writeText(sourceMapContent)
-                }
+                textOutput.flush()
+                sourceMapBuilder
             }
 
-            return DeadCodeEliminationResult(dce.reachableNodes, DeadCodeEliminationStatus.OK)
+            if (file.sourceMapResource != null) {
+                sourceMapFile.bufferedWriter().use { sourceMapBuilder.build(it) }
+            }
         }
 
         private class Reporter(private val fileName: String, private val logConsumer: (DCELogLevel, String) -> Unit) : ErrorReporter {
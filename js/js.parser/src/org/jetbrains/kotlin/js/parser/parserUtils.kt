@@ -30,6 +30,19 @@ fun parse(code: String, reporter: ErrorReporter, scope: JsScope, fileName: Strin
     }
 }
 
+/**
+ * Parses top-level [code] like [parse], but doesn't declare anything in a scope yet: the returned function does it.
+ * Unlike the second step, the first one doesn't touch shared state and may be performed for several files in parallel.
+ */
+fun parseWithDeferredScope(code: String, reporter: ErrorReporter, fileName: String): ((JsScope) -> List<JsStatement>)? {
+    val node = parse(code, CodePosition(0, 0), 0, reporter, false, Parser::parse) ?: return null
+    return { scope ->
+        node.toJsAst(scope, fileName) {
+            mapStatements(it)
+        }
+    }
+}
+
 fun parseExpressionOrStatement(
         code: String,
         reporter: ErrorReporter, scope: JsScope,
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.test
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.js.dce.*
+import org.jetbrains.kotlin.test.util.assertSameResultOnThreads
+import java.io.File
+
+class DceParallelTest : TestCase() {
+    private lateinit var workingDir: File
+
+    override fun setUp() {
+        super.setUp()
+        workingDir = createTempDir("dce")
+    }
+
+    override fun tearDown() {
+        workingDir.deleteRecursively()
+        super.tearDown()
+    }
+
+    fun testParallelOutputIsSameAsSequential() {
+        val inputs = (0 until 12).map { i ->
+            val file = File(workingDir, "in/m$i.js")
+            file.parentFile.mkdirs()
+            file.writeText(
+                """
+                    var m$i = function (_) {
+                      'use strict';
+                      function used$i() {
+                        return ${if (i > 0) "m${i - 1}.used${i - 1}() + " else ""}$i;
+                      }
+                      function unused$i() {
+                        return -$i;
+                      }
+                      _.used$i = used$i;
+                      _.unused$i = unused$i;
+                      return _;
+                    }(typeof m$i === 'undefined' ? {} : m$i);
+                """.trimIndent()
+            )
+            // Every third source map is invalid, to check the order of reported warnings
+            File(file.path + ".map").writeText(
+                if (i % 3 == 2) """{"version": 2}"""
+                else """{"version": 3, "file": "m$i.js", "sources": ["m$i.kt"], "names": [], "mappings": "AAAA;AACA;AACA;AACA;AACA"}"""
+            )
+            file
+        }
+
+        val sequential = assertSameResultOnThreads { threadCount -> runDce(inputs, threadCount, rootReachableNames = setOf("m11.used11")) }
+
+        assertEquals(DeadCodeEliminationStatus.OK, sequential.status)
+        assertTrue(sequential.messages.count { it.first == DCELogLevel.WARN } >= 4)
+    }
+
+    fun testParseErrorsAreReportedInInputOrder() {
+        val inputs = (0 until 8).map { i ->
+            File(workingDir, "in/e$i.js").apply {
+                parentFile.mkdirs()
+                writeText(if (i % 2 == 0) "var e$i = function () { return $i; };" else "var e$i = function ( { return;")
+            }
+        }
+
+        val sequential = assertSameResultOnThreads { threadCount -> runDce(inputs, threadCount, rootReachableNames = emptySet()) }
+
+        assertEquals(DeadCodeEliminationStatus.FAILED, sequential.status)
+        assertTrue(sequential.messages.isNotEmpty())
+    }
+
+    private data class Result(
+        val status: DeadCodeEliminationStatus,
+        val reachableNodes: Set<String>,
+        val messages: List<Pair<DCELogLevel, String>>,
+        val outputs: Map<String, String>
+    )
+
+    private fun runDce(inputs: List<File>, threadCount: Int, rootReachableNames: Set<String>): Result {
+        val outputDir = File(workingDir, "out$threadCount")
+        val inputFiles = inputs.map { file ->
+            val sourceMap = File(file.path + ".map")
+            InputFile(
+                InputResource.file(file.path),
+                if (sourceMap.exists()) InputResource.file(sourceMap.path) else null,
+                File(outputDir, file.name).path
+            )
+        }
+
+        val messages = mutableListOf<Pair<DCELogLevel, String>>()
+        val result = DeadCodeElimination.run(inputFiles, rootReachableNames, threadCount) { level, message -> messages += level to message }
+
+        val outputs = outputDir.walkTopDown().filter { it.isFile }.associate { it.relativeTo(outputDir).path to it.readText() }
+        return Result(result.status, result.reachableNodes.map { it.toString() }.toSet(), messages, outputs)
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.test
+
+import org.jetbrains.kotlin.js.parser.sourcemaps.*
+import org.jetbrains.kotlin.js.sourceMap.SourceMap3Builder
+import org.jetbrains.kotlin.js.util.TextOutputImpl
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.File
+import java.io.Reader
+import java.io.StringReader
+import java.io.StringWriter
+import java.util.function.Supplier
+
+class SourceMap3BuilderTest {
+    private val sources = listOf(
+        "src/a.kt" to "fun a() = \"a\"\n",
+        "src/\"quoted\" b.kt" to "val s = \"tab\\t\tquote\\\" \u0001 é  \"\r\n",
+        "src/missing.kt" to null
+    )
+
+    @Test
+    fun streamedSourceMapIsSameAsJsonObject() {
+        val builder = createBuilder()
+
+        val streamed = StringWriter().also { builder.build(it) }.toString()
+        assertEquals(streamed, builder.build())
+
+        // The JSON tree the source map was built from before it was streamed
+        val mappings = (parseJson(streamed) as JsonObject).properties["mappings"]!!
+        val expected = JsonObject(
+            "version" to JsonNumber(3.0),
+            "file" to JsonString("out.js"),
+            "sources" to JsonArray(sources.mapTo(mutableListOf<JsonNode>()) { (path, _) -> JsonString("prefix/$path") }),
+            "sourcesContent" to JsonArray(sources.mapTo(mutableListOf<JsonNode>()) { (_, content) -> content?.let(::JsonString) ?: JsonNull }),
+            "names" to JsonArray(),
+            "mappings" to mappings
+        )
+        assertEquals(expected.toString(), streamed)
+        assertEquals(expected, parseJson(streamed))
+    }
+
+    @Test
+    fun emptySourceMapIsSameAsJsonObject() {
+        val builder = SourceMap3Builder(File("out.js"), TextOutputImpl(), "")
+
+        val expected = JsonObject(
+            "version" to JsonNumber(3.0),
+            "file" to JsonString("out.js"),
+            "sources" to JsonArray(),
+            "sourcesContent" to JsonArray(),
+            "names" to JsonArray(),
+            "mappings" to JsonString("")
+        )
+        assertEquals(expected.toString(), StringWriter().also { builder.build(it) }.toString())
+    }
+
+    private fun createBuilder(): SourceMap3Builder {
+        val output = TextOutputImpl()
+        val builder = SourceMap3Builder(File("out.js"), output, "prefix/")
+        for (line in 0 until 3) {
+            for ((index, source) in sources.withIndex()) {
+                val (path, content) = source
+                output.print("x$index = ")
+                builder.addMapping(path, null, Supplier<Reader?> { content?.let(::StringReader) }, line, index)
+                output.print("$line;")
+            }
+            builder.addEmptyMapping()
+            output.newline()
+            builder.newLine()
+        }
+        return builder
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.test
+
+import org.jetbrains.kotlin.js.util.TextOutputImpl
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.StringWriter
+
+class TextOutputImplTest {
+    @Test
+    fun writerOutputIsSameAsInMemory() {
+        checkSameOutput(compact = false)
+        checkSameOutput(compact = true)
+    }
+
+    private fun checkSameOutput(compact: Boolean) {
+        val inMemory = TextOutputImpl(compact)
+        val writer = StringWriter()
+        val streamed = TextOutputImpl(writer, compact)
+        var flushed = false
+
+        // Well over the 64K after which the text is passed to the writer
+        for (i in 0 until 20000) {
+            for (output in listOf(inMemory, streamed)) {
+                output.print("var x$i = ")
+                output.indentIn()
+                output.print(i)
+                output.print(';')
+                output.printOpt(' ')
+                output.print(i / 7.0)
+                output.print(charArrayOf('/', '*', '*', '/'))
+                if (i % 5 == 0) {
+                    output.newline()
+                    output.print("{}")
+                }
+                output.indentOut()
+                output.newline()
+            }
+
+            assertEquals(inMemory.position, streamed.position)
+            assertEquals(inMemory.line, streamed.line)
+            assertEquals(inMemory.column, streamed.column)
+            if (i % 1000 == 0) {
+                assertEquals(inMemory.toString(), writer.toString() + streamed.toString())
+            }
+            flushed = flushed || writer.buffer.isNotEmpty()
+        }
+        assertTrue("nothing was passed to the writer before flush", flushed)
+
+        streamed.flush()
+        assertEquals(inMemory.toString(), writer.toString())
+        assertEquals("", streamed.toString())
+        assertEquals(inMemory.position, writer.buffer.length)
+    }
+}
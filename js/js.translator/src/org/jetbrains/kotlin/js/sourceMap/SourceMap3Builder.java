@@ -24,8 +24,7 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.js.parser.sourcemaps.*;
 import org.jetbrains.kotlin.js.util.TextOutput;
 
-import java.io.File;
-import java.io.Reader;
+import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
@@ -70,32 +69,56 @@ public class SourceMap3Builder implements SourceMapBuilder {
 
     @Override
     public String build() {
-        @SuppressWarnings("unchecked")
-        JsonObject json = new JsonObject();
-        json.getProperties().put("version", new JsonNumber(3));
-        json.getProperties().put("file", new JsonString(generatedFile.getName()));
-        appendSources(json);
-        appendSourcesContent(json);
-        json.getProperties().put("names", new JsonArray());
-        json.getProperties().put("mappings", new JsonString(out.toString()));
-        return json.toString();
+        StringWriter writer = new StringWriter();
+        build(writer);
+        return writer.toString();
     }
 
-    private void appendSources(JsonObject json) {
-        JsonArray array = new JsonArray();
-        for (String source : orderedSources) {
-            array.getElements().add(new JsonString(pathPrefix + source));
+    /**
+     * Writes the same content as {@link #build()} does, but doesn't keep the whole source map in memory, only a single source content at a time.
+     */
+    public void build(@NotNull Writer writer) {
+        try {
+            writer.append("{");
+            writeKey(writer, "version", true);
+            new JsonNumber(3).write(writer);
+            writeKey(writer, "file", false);
+            new JsonString(generatedFile.getName()).write(writer);
+
+            writeKey(writer, "sources", false);
+            writer.append('[');
+            for (int i = 0; i < orderedSources.size(); i++) {
+                if (i > 0) writer.append(',');
+                new JsonString(pathPrefix + orderedSources.get(i)).write(writer);
+            }
+            writer.append(']');
+
+            writeKey(writer, "sourcesContent", false);
+            writer.append('[');
+            for (int i = 0; i < orderedSourceContentSuppliers.size(); i++) {
+                if (i > 0) writer.append(',');
+                Reader reader = orderedSourceContentSuppliers.get(i).get();
+                (reader != null ? new JsonString(TextStreamsKt.readText(reader)) : JsonNull.INSTANCE).write(writer);
+            }
+            writer.append(']');
+
+            writeKey(writer, "names", false);
+            writer.append("[]");
+
+            // The mappings consist of Base64 digits and separators only, so no escaping is needed
+            writeKey(writer, "mappings", false);
+            writer.append('"').append(out).append('"');
+            writer.append('}');
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        json.getProperties().put("sources", array);
     }
 
-    private void appendSourcesContent(JsonObject json) {
-        JsonArray array = new JsonArray();
-        for (Supplier<Reader> contentSupplier : orderedSourceContentSuppliers) {
-            Reader reader = contentSupplier.get();
-            array.getElements().add(reader != null ? new JsonString(TextStreamsKt.readText(reader)) : JsonNull.INSTANCE);
-        }
-        json.getProperties().put("sourcesContent", array);
+    private static void writeKey(@NotNull Writer writer, @NotNull String key, boolean first) throws IOException {
+        if (!first) writer.append(',');
+        new JsonString(key).write(writer);
+        writer.append(':');
     }
 
     @Override
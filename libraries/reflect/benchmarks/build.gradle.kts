@@ -0,0 +1,22 @@
+plugins {
+    kotlin("jvm")
+}
+
+description = "JMH benchmarks for kotlin-reflect"
+
+val jmhVersion = "1.21"
+
+dependencies {
+    compile(kotlinStdlib())
+    compile(project(":kotlin-reflect"))
+    compile("org.openjdk.jmh", "jmh-core", jmhVersion)
+    compile("org.openjdk.jmh", "jmh-generator-bytecode", jmhVersion)
+    compile("org.pcollections", "pcollections", "2.1.3")
+}
+
+sourceSets {
+    "main" { projectDefault() }
+    "test" { }
+}
+
+jmhTasks()
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.reflect.benchmarks
+
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+import org.pcollections.HashPMap
+import org.pcollections.HashTreePMap
+import java.lang.ref.WeakReference
+import java.util.concurrent.TimeUnit
+import kotlin.reflect.jvm.internal.ReflectionFactoryImpl
+
+/**
+ * Compares the KClass cache of kotlin-reflect (used by `Class.kotlin`) with the previous implementation based on [HashPMap].
+ * [HashPMapKClassCache] repeats that implementation on top of the PCollections library, from which the removed copy in kotlin-reflect
+ * was derived. It caches a stand-in object instead of `KClassImpl`, whose constructor is internal.
+ *
+ * To run: `./gradlew :kotlin-reflect-benchmarks:jmhExec`
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+open class KClassCacheBenchmark {
+    private lateinit var classes: List<Class<*>>
+    private val hashPMapCache = HashPMapKClassCache()
+
+    @Setup
+    fun setUp() {
+        classes = CLASS_NAMES.map { Class.forName(it) }
+        for (jClass in classes) {
+            jClass.kotlin
+            hashPMapCache.getOrCreate(jClass)
+        }
+    }
+
+    @Benchmark
+    fun lookup(blackhole: Blackhole) {
+        for (jClass in classes) {
+            blackhole.consume(jClass.kotlin)
+        }
+    }
+
+    @Benchmark
+    fun lookupHashPMap(blackhole: Blackhole) {
+        for (jClass in classes) {
+            blackhole.consume(hashPMapCache.getOrCreate(jClass))
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    fun lookupFromFourThreads(blackhole: Blackhole) {
+        lookup(blackhole)
+    }
+
+    @Benchmark
+    @Threads(4)
+    fun lookupHashPMapFromFourThreads(blackhole: Blackhole) {
+        lookupHashPMap(blackhole)
+    }
+
+    @Benchmark
+    fun fill(blackhole: Blackhole) {
+        ReflectionFactoryImpl.clearCaches()
+        lookup(blackhole)
+    }
+
+    @Benchmark
+    fun fillHashPMap(blackhole: Blackhole) {
+        hashPMapCache.clear()
+        lookupHashPMap(blackhole)
+    }
+
+    companion object {
+        private val CLASS_NAMES = listOf(
+            "java.lang.Object", "java.lang.String", "java.lang.StringBuilder", "java.lang.Integer", "java.lang.Long",
+            "java.lang.Double", "java.lang.Boolean", "java.lang.Character", "java.lang.Number", "java.lang.Enum",
+            "java.lang.Thread", "java.lang.Throwable", "java.lang.Exception", "java.lang.RuntimeException", "java.lang.Iterable",
+            "java.lang.Comparable", "java.lang.CharSequence", "java.lang.Runnable", "java.lang.Class", "java.lang.ClassLoader",
+            "java.util.List", "java.util.ArrayList", "java.util.LinkedList", "java.util.Map", "java.util.HashMap",
+            "java.util.LinkedHashMap", "java.util.TreeMap", "java.util.Set", "java.util.HashSet", "java.util.TreeSet",
+            "java.util.Collection", "java.util.Iterator", "java.util.Optional", "java.util.Date", "java.util.UUID",
+            "java.util.concurrent.ConcurrentHashMap", "java.util.concurrent.Executor", "java.util.concurrent.Future",
+            "java.util.concurrent.TimeUnit", "java.util.concurrent.atomic.AtomicInteger",
+            "java.io.File", "java.io.InputStream", "java.io.OutputStream", "java.io.Reader", "java.io.Writer",
+            "java.io.Serializable", "java.io.IOException", "java.net.URI", "java.net.URL", "java.math.BigDecimal",
+            "java.math.BigInteger", "java.nio.ByteBuffer", "java.nio.charset.Charset", "java.text.SimpleDateFormat",
+            "kotlin.Unit", "kotlin.Pair", "kotlin.Triple", "kotlin.Lazy", "kotlin.Result", "kotlin.text.Regex",
+            "kotlin.ranges.IntRange", "kotlin.collections.AbstractList", "kotlin.jvm.functions.Function0", "kotlin.jvm.functions.Function1"
+        )
+    }
+}
+
+/**
+ * The implementation of the KClass cache before it was replaced with a concurrent map.
+ */
+class HashPMapKClassCache {
+    class CachedClass(val jClass: Class<*>)
+
+    private var cache: HashPMap<String, Any> = HashTreePMap.empty()
+
+    fun getOrCreate(jClass: Class<*>): CachedClass {
+        val name = jClass.name
+        val cached = cache[name]
+        if (cached is WeakReference<*>) {
+            val kClass = cached.get() as CachedClass?
+            if (kClass?.jClass == jClass) {
+                return kClass
+            }
+        } else if (cached != null) {
+            @Suppress("UNCHECKED_CAST")
+            (cached as Array<WeakReference<CachedClass>>)
+            for (ref in cached) {
+                val kClass = ref.get()
+                if (kClass?.jClass == jClass) {
+                    return kClass
+                }
+            }
+
+            val size = cached.size
+            val newArray = arrayOfNulls<WeakReference<CachedClass>>(size + 1)
+            System.arraycopy(cached, 0, newArray, 0, size)
+            val newKClass = CachedClass(jClass)
+            newArray[size] = WeakReference(newKClass)
+            cache = cache.plus(name, newArray)
+            return newKClass
+        }
+
+        val newKClass = CachedClass(jClass)
+        cache = cache.plus(name, WeakReference(newKClass))
+        return newKClass
+    }
+
+    fun clear() {
+        cache = HashTreePMap.empty()
+    }
+}
@@ -94,6 +94,8 @@ class Kapt3KotlinGradleSubplugin : KotlinGradleSubplugin<KotlinCompile> {
         private val INFO_AS_WARNINGS = "kapt.info.as.warnings"
         private val INCLUDE_COMPILE_CLASSPATH = "kapt.include.compile.classpath"
         private val INCREMENTAL_APT = "kapt.incremental.apt"
+        private val INCREMENTAL_STUBS = "kapt.incremental.stubs"
+        private val PARALLEL_STUBS = "kapt.parallel.stubs"
 
         const val KAPT_WORKER_DEPENDENCIES_CONFIGURATION_NAME = "kotlinKaptWorkerDependencies"
 
@@ -127,6 +129,14 @@ class Kapt3KotlinGradleSubplugin : KotlinGradleSubplugin<KotlinCompile> {
             return !(hasProperty(INCREMENTAL_APT) && property(INCREMENTAL_APT) == "false")
         }
 
+        fun Project.isIncrementalStubs(): Boolean {
+            return hasProperty(INCREMENTAL_STUBS) && property(INCREMENTAL_STUBS) == "true"
+        }
+
+        fun Project.isParallelStubs(): Boolean {
+            return hasProperty(PARALLEL_STUBS) && property(PARALLEL_STUBS) == "true"
+        }
+
         fun Project.isInfoAsWarnings(): Boolean {
             return hasProperty(INFO_AS_WARNINGS) && property(INFO_AS_WARNINGS) == "true"
         }
@@ -367,6 +377,8 @@ class Kapt3KotlinGradleSubplugin : KotlinGradleSubplugin<KotlinCompile> {
         pluginOptions += SubpluginOption("detectMemoryLeaks", kaptExtension.detectMemoryLeaks)
         pluginOptions += SubpluginOption("infoAsWarnings", "${project.isInfoAsWarnings()}")
         pluginOptions += FilesSubpluginOption("stubs", listOf(getKaptStubsDir()))
+        pluginOptions += SubpluginOption("incrementalStubs", "${project.isIncrementalStubs()}")
+        pluginOptions += SubpluginOption("parallelStubs", "${project.isParallelStubs()}")
 
         if (project.isKaptVerbose()) {
             pluginOptions += SubpluginOption("verbose", "true")
@@ -106,6 +106,8 @@ enum class KaptFlag(val description: String) {
     STRICT("Strict mode"),
     INCLUDE_COMPILE_CLASSPATH("Detect annotation processors in compile classpath"),
     INCREMENTAL_APT("Incremental annotation processing (apt mode)"),
+    INCREMENTAL_STUBS("Reuse stubs for unchanged classes"),
+    PARALLEL_STUBS("Generate stubs in parallel"),
     ;
 }
 
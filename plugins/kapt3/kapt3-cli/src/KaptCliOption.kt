@@ -102,6 +102,18 @@ enum class KaptCliOption(
         "Use only in apt mode. Enables incremental apt processing"
     ),
 
+    INCREMENTAL_STUBS_OPTION(
+        "incrementalStubs",
+        "true | false",
+        "Reuse stubs for classes whose ABI and source did not change"
+    ),
+
+    PARALLEL_STUBS_OPTION(
+        "parallelStubs",
+        "true | false",
+        "Generate stubs using all available processors"
+    ),
+
     ANNOTATION_PROCESSOR_CLASSPATH_OPTION(
         "apclasspath",
         "<classpath>",
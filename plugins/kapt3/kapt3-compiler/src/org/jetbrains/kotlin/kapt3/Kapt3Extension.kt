@@ -20,8 +20,6 @@ import com.intellij.openapi.project.Project
 import com.sun.tools.javac.code.Flags
 import com.sun.tools.javac.tree.JCTree
 import com.sun.tools.javac.tree.Pretty
-import com.sun.tools.javac.tree.TreeMaker
-import com.sun.tools.javac.util.Context
 import org.jetbrains.kotlin.analyzer.AnalysisResult
 import org.jetbrains.kotlin.backend.common.output.OutputFile
 import org.jetbrains.kotlin.base.kapt3.KaptOptions
@@ -53,6 +51,7 @@ import org.jetbrains.kotlin.kapt3.base.util.info
 import org.jetbrains.kotlin.kapt3.diagnostic.KaptError
 import org.jetbrains.kotlin.kapt3.stubs.ClassFileToSourceStubConverter
 import org.jetbrains.kotlin.kapt3.stubs.ClassFileToSourceStubConverter.KaptStub
+import org.jetbrains.kotlin.kapt3.stubs.KaptStubCache
 import org.jetbrains.kotlin.kapt3.util.MessageCollectorBackedKaptLogger
 import org.jetbrains.kotlin.modules.TargetId
 import org.jetbrains.kotlin.psi.KtFile
@@ -60,10 +59,13 @@ import org.jetbrains.kotlin.resolve.BindingContext
 import org.jetbrains.kotlin.resolve.BindingTrace
 import org.jetbrains.kotlin.resolve.jvm.extensions.PartialAnalysisHandlerExtension
 import org.jetbrains.kotlin.utils.kapt.MemoryLeakDetector
+import org.jetbrains.kotlin.utils.mapInParallel
+import org.jetbrains.kotlin.utils.withThreadPool
 import java.io.File
 import java.io.StringWriter
 import java.io.Writer
 import java.net.URLClassLoader
+import java.util.concurrent.ExecutorService
 import javax.annotation.processing.Processor
 
 private const val KAPT_KOTLIN_GENERATED_OPTION_NAME = "kapt.kotlin.generated"
@@ -288,21 +290,50 @@ abstract class AbstractKapt3Extension(
     }
 
     private fun generateKotlinSourceStubs(kaptContext: KaptContextForStubGeneration) {
-        val converter = ClassFileToSourceStubConverter(kaptContext, generateNonExistentClass = true)
+        val stubCache = if (options[KaptFlag.INCREMENTAL_STUBS]) KaptStubCache.load(options.stubsOutputDir) else null
+        val converter = ClassFileToSourceStubConverter(kaptContext, generateNonExistentClass = true, stubCache = stubCache)
 
+        val threadCount = if (options[KaptFlag.PARALLEL_STUBS]) Runtime.getRuntime().availableProcessors() else 1
+        if (threadCount > 1) {
+            logger.info { "Using $threadCount threads for stub generation" }
+            withThreadPool(threadCount) { pool -> convertAndSaveStubs(kaptContext, converter, pool) }
+        } else {
+            convertAndSaveStubs(kaptContext, converter, null)
+        }
+
+        stubCache?.save()
+        saveIncrementalData(kaptContext, logger.messageCollector, converter)
+    }
+
+    private fun convertAndSaveStubs(
+        kaptContext: KaptContextForStubGeneration,
+        converter: ClassFileToSourceStubConverter,
+        pool: ExecutorService?
+    ) {
         val (stubGenerationTime, kaptStubs) = measureTimeMillis {
-            converter.convert()
+            converter.convert(pool)
         }
 
         logger.info { "Java stub generation took $stubGenerationTime ms" }
         logger.info { "Stubs for Kotlin classes: " + kaptStubs.joinToString { it.file.sourcefile.name } }
 
-        saveStubs(kaptContext, kaptStubs)
-        saveIncrementalData(kaptContext, logger.messageCollector, converter)
+        if (converter.reusedStubs.isNotEmpty()) {
+            logger.info { "Up-to-date stubs: " + converter.reusedStubs.values.joinToString() }
+        }
+
+        val (stubWritingTime) = measureTimeMillis {
+            saveStubs(kaptContext, kaptStubs, pool)
+        }
+
+        logger.info { "Java stub writing took $stubWritingTime ms" }
     }
 
-    protected open fun saveStubs(kaptContext: KaptContext, stubs: List<KaptStub>) {
-        for (kaptStub in stubs) {
+    /**
+     * Stubs are printed and written on the [pool], if there is one. Each stub goes to its own file,
+     * so the output does not depend on the order in which they are processed.
+     */
+    protected open fun saveStubs(kaptContext: KaptContext, stubs: List<KaptStub>, pool: ExecutorService?) {
+        stubs.mapInParallel(pool) { kaptStub ->
             val stub = kaptStub.file
             val className = (stub.defs.first { it is JCTree.JCClassDecl } as JCTree.JCClassDecl).simpleName.toString()
 
@@ -311,7 +342,7 @@ abstract class AbstractKapt3Extension(
             packageDir.mkdirs()
 
             val sourceFile = File(packageDir, "$className.java")
-            sourceFile.writeText(stub.prettyPrint(kaptContext.context))
+            sourceFile.writeText(stub.prettyPrint())
 
             kaptStub.writeMetadataIfNeeded(forSource = sourceFile)
         }
@@ -328,9 +359,10 @@ abstract class AbstractKapt3Extension(
         kaptContext.generationState.factory.writeAll(
             incrementalDataOutputDir,
             if (!reportOutputFiles) null else fun(file: OutputFile, sources: List<File>, output: File) {
-                val stubFileObject = converter.bindings[file.relativePath.substringBeforeLast(".class", missingDelimiterValue = "")]
-                if (stubFileObject != null) {
-                    val stubFile = File(options.stubsOutputDir, stubFileObject.name)
+                val className = file.relativePath.substringBeforeLast(".class", missingDelimiterValue = "")
+                val stubPath = converter.bindings[className]?.name ?: converter.reusedStubs[className]
+                if (stubPath != null) {
+                    val stubFile = File(options.stubsOutputDir, stubPath)
                     val lineMappingsFile = File(stubFile.parentFile, stubFile.nameWithoutExtension + KAPT_METADATA_EXTENSION)
 
                     for (outputFile in listOf(stubFile, lineMappingsFile)) {
@@ -348,11 +380,12 @@ abstract class AbstractKapt3Extension(
     protected abstract fun loadProcessors(): LoadedProcessors
 }
 
-internal fun JCTree.prettyPrint(context: Context): String {
-    return StringWriter().apply { PrettyWithWorkarounds(context, this, false).printStat(this@prettyPrint) }.toString()
+internal fun JCTree.prettyPrint(): String {
+    return StringWriter().apply { PrettyWithWorkarounds(this, false).printStat(this@prettyPrint) }.toString()
 }
 
-private class PrettyWithWorkarounds(private val context: Context, val out: Writer, sourceOutput: Boolean) : Pretty(out, sourceOutput) {
+// Stubs are printed on several threads, so the printer must not use the shared components of the javac context
+private class PrettyWithWorkarounds(val out: Writer, sourceOutput: Boolean) : Pretty(out, sourceOutput) {
     companion object {
         private const val ENUM = Flags.ENUM.toLong()
     }
@@ -364,7 +397,7 @@ private class PrettyWithWorkarounds(private val context: Context, val out: Write
     override fun visitVarDef(tree: JCTree.JCVariableDecl) {
         if ((tree.mods.flags and ENUM) != 0L) {
             // Pretty does not print annotations for enum values for some reason
-            printExpr(TreeMaker.instance(context).Modifiers(0, tree.mods.annotations))
+            printAnnotations(tree.mods.annotations)
         }
 
         super.visitVarDef(tree)
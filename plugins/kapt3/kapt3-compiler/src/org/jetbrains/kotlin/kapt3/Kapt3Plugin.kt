@@ -101,6 +101,8 @@ class Kapt3CommandLineProcessor : CommandLineProcessor {
             INCREMENTAL_CACHE -> incrementalCache = File(value)
             CLASSPATH_CHANGES -> classpathChanges.add(value)
             PROCESS_INCREMENTALLY -> setFlag(KaptFlag.INCREMENTAL_APT, value)
+            INCREMENTAL_STUBS_OPTION -> setFlag(KaptFlag.INCREMENTAL_STUBS, value)
+            PARALLEL_STUBS_OPTION -> setFlag(KaptFlag.PARALLEL_STUBS, value)
 
             ANNOTATION_PROCESSOR_CLASSPATH_OPTION -> processingClasspath += File(value)
             ANNOTATION_PROCESSORS_OPTION -> processors.addAll(value.split(',').map { it.trim() }.filter { it.isNotEmpty() })
@@ -61,14 +61,22 @@ import org.jetbrains.kotlin.resolve.source.PsiSourceElement
 import org.jetbrains.kotlin.types.ErrorUtils
 import org.jetbrains.kotlin.types.KotlinType
 import org.jetbrains.kotlin.types.isError
+import org.jetbrains.kotlin.utils.mapInParallel
+import org.jetbrains.org.objectweb.asm.ClassWriter
 import org.jetbrains.org.objectweb.asm.Opcodes
 import org.jetbrains.org.objectweb.asm.Type
 import org.jetbrains.org.objectweb.asm.tree.*
 import java.io.File
+import java.security.MessageDigest
+import java.util.concurrent.ExecutorService
 import javax.lang.model.element.ElementKind
 import com.sun.tools.javac.util.List as JavacList
 
-class ClassFileToSourceStubConverter(val kaptContext: KaptContextForStubGeneration, val generateNonExistentClass: Boolean) {
+class ClassFileToSourceStubConverter(
+    val kaptContext: KaptContextForStubGeneration,
+    val generateNonExistentClass: Boolean,
+    private val stubCache: KaptStubCache? = null
+) {
     private companion object {
         private const val VISIBILITY_MODIFIERS = (Opcodes.ACC_PUBLIC or Opcodes.ACC_PRIVATE or Opcodes.ACC_PROTECTED).toLong()
         private const val MODALITY_MODIFIERS = (Opcodes.ACC_FINAL or Opcodes.ACC_ABSTRACT).toLong()
@@ -109,6 +117,21 @@ class ClassFileToSourceStubConverter(val kaptContext: KaptContextForStubGenerati
     val bindings: Map<String, KaptJavaFileObject>
         get() = mutableBindings
 
+    private val mutableReusedStubs = mutableMapOf<String, String>()
+
+    /**
+     * Paths of the up-to-date stubs (relative to the stubs output directory) which were not generated again, by class internal names.
+     */
+    val reusedStubs: Map<String, String>
+        get() = mutableReusedStubs
+
+    // Errors of the strict mode are only reported during the conversion, so the stubs are not reused then
+    private val reuseStubs = stubCache != null && !strictMode
+
+    private val precomputedFingerprints = mutableMapOf<ClassNode, String>()
+
+    private val compiledClassesByTopLevelName by lazy { kaptContext.compiledClasses.groupBy { it.name.substringBefore('$') } }
+
     private val typeMapper
         get() = kaptContext.generationState.typeMapper
 
@@ -120,10 +143,22 @@ class ClassFileToSourceStubConverter(val kaptContext: KaptContextForStubGenerati
 
     private var done = false
 
-    fun convert(): List<KaptStub> {
+    /**
+     * Converts the compiled classes to stubs. The javac trees share the name table and the tree maker of the context,
+     * so only the preparatory work which does not touch them is done on the [pool].
+     */
+    fun convert(pool: ExecutorService? = null): List<KaptStub> {
         if (done) error(ClassFileToSourceStubConverter::class.java.simpleName + " can convert classes only once")
         done = true
 
+        if (stubCache != null && pool != null) {
+            val start = System.currentTimeMillis()
+            val topLevelClasses = kaptContext.compiledClasses.mapNotNull { clazz -> getTopLevelClassFile(clazz)?.let { clazz to it } }
+            val fingerprints = topLevelClasses.mapInParallel(pool) { (clazz, ktFile) -> computeFingerprint(clazz, ktFile) }
+            topLevelClasses.zip(fingerprints) { (clazz, _), fingerprint -> precomputedFingerprints[clazz] = fingerprint }
+            kaptContext.logger.info("Stub fingerprints took ${System.currentTimeMillis() - start} ms")
+        }
+
         val stubs = kaptContext.compiledClasses.mapNotNullTo(mutableListOf()) { convertTopLevelClass(it) }
 
         if (generateNonExistentClass) {
@@ -166,7 +201,7 @@ class ClassFileToSourceStubConverter(val kaptContext: KaptContextForStubGenerati
         }
     }
 
-    private fun convertTopLevelClass(clazz: ClassNode): KaptStub? {
+    private fun getTopLevelClassFile(clazz: ClassNode): KtFile? {
         val origin = kaptContext.origins[clazz] ?: return null
         val ktFile = origin.element?.containingFile as? KtFile ?: return null
         val descriptor = origin.descriptor ?: return null
@@ -174,6 +209,21 @@ class ClassFileToSourceStubConverter(val kaptContext: KaptContextForStubGenerati
         // Nested classes will be processed during the outer classes conversion
         if ((descriptor as? ClassDescriptor)?.isNested == true) return null
 
+        return ktFile
+    }
+
+    private fun convertTopLevelClass(clazz: ClassNode): KaptStub? {
+        val ktFile = getTopLevelClassFile(clazz) ?: return null
+
+        val fingerprint = if (stubCache != null) precomputedFingerprints[clazz] ?: computeFingerprint(clazz, ktFile) else null
+        if (reuseStubs && fingerprint != null) {
+            val upToDateStub = stubCache?.getUpToDateStub(clazz.name, fingerprint, kaptContext.options.stubsOutputDir)
+            if (upToDateStub != null) {
+                mutableReusedStubs[clazz.name] = upToDateStub
+                return null
+            }
+        }
+
         val lineMappings = KaptLineMappingCollector(kaptContext)
 
         val packageName = ktFile.packageFqName.asString()
@@ -202,9 +252,33 @@ class ClassFileToSourceStubConverter(val kaptContext: KaptContextForStubGenerati
 
         postProcess(topLevel)
 
+        if (fingerprint != null) {
+            stubCache?.update(clazz.name, fingerprint, topLevel.sourcefile.name)
+        }
+
         return KaptStub(topLevel, lineMappings.serialize())
     }
 
+    /**
+     * The stub is built from the class and its nested classes, as well as from the source file, which provides KDoc comments,
+     * imports, line mappings and the types to correct errors with.
+     */
+    private fun computeFingerprint(clazz: ClassNode, ktFile: KtFile): String {
+        val digest = MessageDigest.getInstance("MD5")
+
+        for (classNode in compiledClassesByTopLevelName[clazz.name.substringBefore('$')].orEmpty()) {
+            if (classNode === clazz || classNode.name.startsWith(clazz.name + "$")) {
+                digest.update(ClassWriter(0).also { classNode.accept(it) }.toByteArray())
+            }
+        }
+
+        digest.update((ktFile.virtualFile?.path ?: ktFile.name).toByteArray())
+        digest.update(ktFile.text.toByteArray())
+        digest.update(byteArrayOf(if (correctErrorTypes) 1 else 0))
+
+        return digest.digest().joinToString("") { "%02x".format(it) }
+    }
+
     private fun postProcess(topLevel: JCCompilationUnit) {
         topLevel.accept(object : TreeScanner() {
             override fun visitClassDef(clazz: JCClassDecl) {
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.kapt3.stubs
+
+import org.jetbrains.kotlin.config.KotlinCompilerVersion
+import org.jetbrains.kotlin.kapt3.base.stubs.KaptStubLineInformation
+import java.io.*
+
+/**
+ * Remembers the fingerprints of the classes the stubs were generated from, so that the stubs of the classes whose ABI
+ * and source did not change since the previous run are neither converted nor written again.
+ *
+ * The cache is kept in the stubs output directory, so it is dropped together with the stubs when the directory is cleaned.
+ * It is also dropped when the compiler version changes, as the same class may be converted to a different stub then.
+ */
+class KaptStubCache private constructor(
+    private val cacheFile: File,
+    private val compilerVersion: String,
+    private val entries: MutableMap<String, Entry>
+) {
+    private class Entry(val fingerprint: String, val stubPath: String)
+
+    // Classes converted or reused in this run, the entries of other classes are dropped on save
+    private val usedClasses = hashSetOf<String>()
+
+    /**
+     * Returns the path of the stub for the class [className] relative to [stubsOutputDir],
+     * if it was generated from the class with the same [fingerprint] and both the stub and its metadata file still exist.
+     */
+    fun getUpToDateStub(className: String, fingerprint: String, stubsOutputDir: File): String? {
+        val entry = entries[className] ?: return null
+        if (entry.fingerprint != fingerprint) return null
+
+        val stubFile = File(stubsOutputDir, entry.stubPath)
+        val metadataFile = File(stubFile.parentFile, stubFile.nameWithoutExtension + KaptStubLineInformation.KAPT_METADATA_EXTENSION)
+        if (!stubFile.isFile || !metadataFile.isFile) return null
+
+        usedClasses += className
+        return entry.stubPath
+    }
+
+    fun update(className: String, fingerprint: String, stubPath: String) {
+        entries[className] = Entry(fingerprint, stubPath)
+        usedClasses += className
+    }
+
+    fun save() {
+        entries.keys.retainAll(usedClasses)
+
+        cacheFile.parentFile.mkdirs()
+        DataOutputStream(BufferedOutputStream(cacheFile.outputStream())).use { output ->
+            output.writeInt(VERSION)
+            output.writeUTF(compilerVersion)
+            output.writeInt(entries.size)
+            for ((className, entry) in entries) {
+                output.writeUTF(className)
+                output.writeUTF(entry.fingerprint)
+                output.writeUTF(entry.stubPath)
+            }
+        }
+    }
+
+    companion object {
+        private const val VERSION = 2
+
+        const val FILE_NAME = "kapt-stubs.cache"
+
+        fun load(stubsOutputDir: File, compilerVersion: String = KotlinCompilerVersion.VERSION): KaptStubCache {
+            val cacheFile = File(stubsOutputDir, FILE_NAME)
+            return KaptStubCache(cacheFile, compilerVersion, readEntries(cacheFile, compilerVersion) ?: hashMapOf())
+        }
+
+        private fun readEntries(cacheFile: File, compilerVersion: String): MutableMap<String, Entry>? {
+            if (!cacheFile.isFile) return null
+
+            return try {
+                DataInputStream(BufferedInputStream(cacheFile.inputStream())).use { input ->
+                    if (input.readInt() != VERSION || input.readUTF() != compilerVersion) return null
+
+                    val size = input.readInt()
+                    val entries = HashMap<String, Entry>(size)
+                    repeat(size) {
+                        val className = input.readUTF()
+                        entries[className] = Entry(input.readUTF(), input.readUTF())
+                    }
+                    entries
+                }
+            } catch (e: IOException) {
+                // cache corrupt
+                null
+            }
+        }
+    }
+}
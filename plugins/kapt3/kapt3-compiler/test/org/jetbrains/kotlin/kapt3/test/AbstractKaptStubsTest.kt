@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.kapt3.test
+
+import org.jetbrains.kotlin.base.kapt3.AptMode
+import org.jetbrains.kotlin.base.kapt3.DetectMemoryLeaksMode
+import org.jetbrains.kotlin.base.kapt3.KaptFlag
+import org.jetbrains.kotlin.base.kapt3.KaptOptions
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector
+import org.jetbrains.kotlin.cli.common.messages.OutputMessageUtil
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.config.CommonConfigurationKeys
+import org.jetbrains.kotlin.config.CompilerConfiguration
+import org.jetbrains.kotlin.kapt3.AbstractKapt3Extension
+import org.jetbrains.kotlin.kapt3.KaptContextForStubGeneration
+import org.jetbrains.kotlin.kapt3.base.LoadedProcessors
+import org.jetbrains.kotlin.kapt3.stubs.ClassFileToSourceStubConverter
+import org.jetbrains.kotlin.kapt3.util.MessageCollectorBackedKaptLogger
+import org.jetbrains.kotlin.resolve.jvm.extensions.AnalysisHandlerExtension
+import org.jetbrains.kotlin.resolve.lazy.JvmResolveUtil
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import org.jetbrains.kotlin.test.TestJdkKind
+import java.io.File
+
+abstract class AbstractKaptStubsTest : TestCaseWithTmpdir() {
+    protected class KaptRun(val convertedClasses: Set<String>, val reusedClasses: Set<String>, val outputs: Set<File>)
+
+    protected fun runKapt(stubsOutputDir: File, flags: Set<KaptFlag>, vararg sources: Pair<String, String>): KaptRun {
+        val configuration = KotlinTestUtils.newConfiguration(ConfigurationKind.ALL, TestJdkKind.MOCK_JDK)
+        val environment = KotlinCoreEnvironment.createForTests(testRootDisposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES)
+        val project = environment.project
+
+        val options = KaptOptions.Builder().apply {
+            projectBaseDir = tmpdir
+            mode = AptMode.STUBS_ONLY
+            this.flags.addAll(flags)
+
+            sourcesOutputDir = File(tmpdir, "sources")
+            classesOutputDir = sourcesOutputDir
+            this.stubsOutputDir = stubsOutputDir
+            incrementalDataOutputDir = File(tmpdir, "incrementalData")
+
+            detectMemoryLeaks = DetectMemoryLeaksMode.NONE
+        }.build()
+
+        val outputs = hashSetOf<File>()
+        val messageCollector = object : MessageCollector {
+            override fun clear() {}
+
+            override fun hasErrors() = false
+
+            override fun report(severity: CompilerMessageSeverity, message: String, location: CompilerMessageLocation?) {
+                if (severity == CompilerMessageSeverity.OUTPUT) {
+                    OutputMessageUtil.parseOutputMessage(message)?.outputFile?.let { outputs += it }
+                }
+            }
+        }
+
+        val extension = StubsExtension(options, messageCollector)
+        AnalysisHandlerExtension.registerExtension(project, extension)
+
+        val files = sources.map { (name, text) -> KotlinTestUtils.createFile(name, text, project) }
+        JvmResolveUtil.analyze(files, environment)
+
+        val converter = extension.converter ?: error("Stubs were not generated")
+        return KaptRun(converter.bindings.keys, converter.reusedStubs.keys, outputs)
+    }
+
+    private class StubsExtension(
+        options: KaptOptions,
+        messageCollector: MessageCollector
+    ) : AbstractKapt3Extension(
+        options,
+        MessageCollectorBackedKaptLogger(options, messageCollector),
+        CompilerConfiguration().apply { put(CommonConfigurationKeys.REPORT_OUTPUT_FILES, true) }
+    ) {
+        var converter: ClassFileToSourceStubConverter? = null
+
+        override fun loadProcessors() = LoadedProcessors(emptyList(), StubsExtension::class.java.classLoader)
+
+        override fun saveIncrementalData(
+            kaptContext: KaptContextForStubGeneration,
+            messageCollector: MessageCollector,
+            converter: ClassFileToSourceStubConverter
+        ) {
+            this.converter = converter
+            super.saveIncrementalData(kaptContext, messageCollector, converter)
+        }
+    }
+}
@@ -43,6 +43,7 @@ import org.jetbrains.kotlin.test.util.trimTrailingWhitespacesAndAddNewlineAtEOF
 import org.jetbrains.kotlin.utils.PathUtil
 import java.io.File
 import java.nio.file.Files
+import java.util.concurrent.ExecutorService
 import javax.annotation.processing.Completion
 import javax.annotation.processing.ProcessingEnvironment
 import javax.annotation.processing.Processor
@@ -178,17 +179,17 @@ abstract class AbstractKotlinKapt3IntegrationTest : CodegenTestCase() {
             processors.map { IncrementalProcessor(it, DeclaredProcType.NON_INCREMENTAL) },
             Kapt3ExtensionForTests::class.java.classLoader)
 
-        override fun saveStubs(kaptContext: KaptContext, stubs: List<KaptStub>) {
+        override fun saveStubs(kaptContext: KaptContext, stubs: List<KaptStub>, pool: ExecutorService?) {
             if (this.savedStubs != null) {
                 error("Stubs are already saved")
             }
 
             this.savedStubs = stubs
-                .map { it.file.prettyPrint(kaptContext.context) }
+                .map { it.file.prettyPrint() }
                 .sorted()
                 .joinToString(AbstractKotlinKapt3Test.FILE_SEPARATOR)
 
-            super.saveStubs(kaptContext, stubs)
+            super.saveStubs(kaptContext, stubs, pool)
         }
 
         override fun saveIncrementalData(
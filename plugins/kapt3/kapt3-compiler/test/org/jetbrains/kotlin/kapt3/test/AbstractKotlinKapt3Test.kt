@@ -175,7 +175,7 @@ abstract class AbstractKotlinKapt3Test : CodegenTestCase() {
 
         val kaptStubs = converter.convert()
         val convertedFiles = kaptStubs.map { stub ->
-            val sourceFile = createTempFile("stub", ".java", stub.file.prettyPrint(kaptContext.context))
+            val sourceFile = createTempFile("stub", ".java", stub.file.prettyPrint())
             stub.writeMetadataIfNeeded(forSource = sourceFile)
             sourceFile
         }
@@ -275,7 +275,7 @@ open class AbstractClassFileToSourceStubConverterTest : AbstractKotlinKapt3Test(
 
         val actualRaw = convertedFiles
             .sortedBy { it.sourceFile.name }
-            .joinToString(FILE_SEPARATOR) { it.prettyPrint(kaptContext.context) }
+            .joinToString(FILE_SEPARATOR) { it.prettyPrint() }
 
         val actual = StringUtil.convertLineSeparators(actualRaw.trim({ it <= ' ' }))
             .trimTrailingWhitespacesAndAddNewlineAtEOF()
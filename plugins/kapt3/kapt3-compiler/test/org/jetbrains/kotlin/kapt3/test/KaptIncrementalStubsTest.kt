@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.kapt3.test
+
+import org.jetbrains.kotlin.base.kapt3.KaptFlag
+import org.jetbrains.kotlin.kapt3.stubs.KaptStubCache
+import java.io.File
+
+class KaptIncrementalStubsTest : AbstractKaptStubsTest() {
+    private val stubsOutputDir get() = File(tmpdir, "stubs")
+
+    fun testUnchangedClassesAreReused() {
+        val first = runKapt(
+            "a.kt" to "package test\n\nclass A { fun a(): Int = 1 }",
+            "b.kt" to "package test\n\nclass B { fun b(): Int = 2 }"
+        )
+        assertEquals(setOf("test/A", "test/B"), first.convertedClasses)
+        assertTrue(first.reusedClasses.isEmpty())
+
+        val second = runKapt(
+            "a.kt" to "package test\n\nclass A { fun a(): Int = 1 }",
+            "b.kt" to "package test\n\nclass B { fun b(): String = \"2\" }"
+        )
+        assertEquals(setOf("test/B"), second.convertedClasses)
+        assertEquals(setOf("test/A"), second.reusedClasses)
+
+        assertTrue(File(stubsOutputDir, "test/A.java").readText().contains("public final int a()"))
+        assertTrue(File(stubsOutputDir, "test/B.java").readText().contains("public final java.lang.String b()"))
+
+        // Reused stubs are reported as outputs just like the regenerated ones
+        for (output in listOf(first.outputs, second.outputs)) {
+            for (name in listOf("test/A.java", "test/A.kapt_metadata", "test/B.java", "test/B.kapt_metadata")) {
+                assertTrue("$name is not reported in $output", File(stubsOutputDir, name) in output)
+            }
+        }
+    }
+
+    fun testRemovedClassesAreDroppedFromCache() {
+        runKapt(
+            "a.kt" to "package test\n\nclass A",
+            "b.kt" to "package test\n\nclass B"
+        )
+
+        val withoutB = runKapt("a.kt" to "package test\n\nclass A")
+        assertEquals(setOf("test/A"), withoutB.reusedClasses)
+
+        // The stub of B is still on disk, but its cache entry was dropped with the class
+        val withB = runKapt(
+            "a.kt" to "package test\n\nclass A",
+            "b.kt" to "package test\n\nclass B"
+        )
+        assertEquals(setOf("test/A"), withB.reusedClasses)
+        assertEquals(setOf("test/B"), withB.convertedClasses)
+    }
+
+    fun testStubsWithoutMetadataAreRegenerated() {
+        runKapt(
+            "a.kt" to "package test\n\nclass A",
+            "b.kt" to "package test\n\nclass B"
+        )
+        val metadataFile = File(stubsOutputDir, "test/A.kapt_metadata")
+        assertTrue(metadataFile.delete())
+
+        val second = runKapt(
+            "a.kt" to "package test\n\nclass A",
+            "b.kt" to "package test\n\nclass B"
+        )
+        assertEquals(setOf("test/A"), second.convertedClasses)
+        assertEquals(setOf("test/B"), second.reusedClasses)
+        assertTrue(metadataFile.isFile)
+    }
+
+    fun testCacheIsDroppedForOtherCompilerVersion() {
+        File(stubsOutputDir, "test").mkdirs()
+        File(stubsOutputDir, "test/A.java").writeText("package test;\n\npublic class A {}")
+        File(stubsOutputDir, "test/A.kapt_metadata").writeBytes(byteArrayOf())
+
+        KaptStubCache.load(stubsOutputDir, compilerVersion = "1.0").apply {
+            update("test/A", "fingerprint", "test/A.java")
+            save()
+        }
+
+        val sameVersion = KaptStubCache.load(stubsOutputDir, compilerVersion = "1.0")
+        assertEquals("test/A.java", sameVersion.getUpToDateStub("test/A", "fingerprint", stubsOutputDir))
+        assertNull(sameVersion.getUpToDateStub("test/A", "other fingerprint", stubsOutputDir))
+
+        val otherVersion = KaptStubCache.load(stubsOutputDir, compilerVersion = "1.1")
+        assertNull(otherVersion.getUpToDateStub("test/A", "fingerprint", stubsOutputDir))
+    }
+
+    private fun runKapt(vararg sources: Pair<String, String>) = runKapt(stubsOutputDir, setOf(KaptFlag.INCREMENTAL_STUBS), *sources)
+}
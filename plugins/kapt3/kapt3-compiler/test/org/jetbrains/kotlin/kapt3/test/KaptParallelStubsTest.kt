@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.kapt3.test
+
+import org.jetbrains.kotlin.base.kapt3.KaptFlag
+import org.jetbrains.kotlin.kapt3.stubs.KaptStubCache
+import org.jetbrains.kotlin.test.util.assertSameFiles
+import java.io.File
+
+class KaptParallelStubsTest : AbstractKaptStubsTest() {
+    fun testParallelStubsAreSameAsSequential() {
+        doTest(emptySet())
+    }
+
+    fun testParallelIncrementalStubsAreSameAsSequential() {
+        doTest(setOf(KaptFlag.INCREMENTAL_STUBS))
+    }
+
+    private fun doTest(flags: Set<KaptFlag>) {
+        val sources = createSources()
+
+        val sequentialDir = File(tmpdir, "sequential")
+        val parallelDir = File(tmpdir, "parallel")
+        val sequential = runKapt(sequentialDir, flags, *sources)
+        val parallel = runKapt(parallelDir, flags + KaptFlag.PARALLEL_STUBS, *sources)
+
+        assertEquals(sequential.convertedClasses, parallel.convertedClasses)
+        assertEquals(sequential.outputs.relativePaths(sequentialDir), parallel.outputs.relativePaths(parallelDir))
+
+        assertTrue(sequentialDir.walkTopDown().any { it.name.endsWith(".kapt_metadata") })
+        assertSameFiles(sequentialDir, parallelDir) { it.name != KaptStubCache.FILE_NAME }
+    }
+
+    private fun Set<File>.relativePaths(dir: File) = filter { it.startsWith(dir) }.map { it.relativeTo(dir).path }.toSet()
+
+    private fun createSources(): Array<Pair<String, String>> =
+        (0 until 16).map { i ->
+            "file$i.kt" to """
+                package p${i % 3}
+
+                annotation class Marker$i(val value: String)
+
+                enum class Kind$i {
+                    @Marker$i("first") FIRST,
+                    @Marker$i("second") SECOND
+                }
+
+                /** Documented class number $i. */
+                open class C$i<T : Comparable<T>>(val value: T) {
+                    @Marker$i("field") var counter: Int = $i
+
+                    fun kind(): Kind$i = if (counter % 2 == 0) Kind$i.FIRST else Kind$i.SECOND
+
+                    class Nested$i(val names: List<String>)
+
+                    companion object {
+                        const val CONSTANT = "constant$i"
+                    }
+                }
+
+                fun topLevel$i(list: List<C$i<Int>>): Int = list.sumBy { it.value }
+            """.trimIndent()
+        }.toTypedArray()
+}